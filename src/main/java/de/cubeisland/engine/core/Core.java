@@ -24,6 +24,7 @@ import de.cubeisland.engine.core.filesystem.FileManager;
 import de.cubeisland.engine.core.i18n.I18n;
 import de.cubeisland.engine.core.logging.LogFactory;
 import de.cubeisland.engine.core.module.ModuleManager;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import de.cubeisland.engine.core.permission.PermissionManager;
 import de.cubeisland.engine.core.storage.database.Database;
 import de.cubeisland.engine.core.task.TaskManager;
@@ -134,6 +135,13 @@ public interface Core
      */
     TaskManager getTaskManager();
 
+    /**
+     * Returns the profiler recording the time used by modules
+     *
+     * @return the module profiler
+     */
+    ModuleProfiler getModuleProfiler();
+
     /**
      * This method returns the web API server
      *
@@ -18,6 +18,7 @@
 package de.cubeisland.engine.core;
 
 import java.util.Date;
+import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -41,9 +42,17 @@ import de.cubeisland.engine.core.command.CommandContext;
 import de.cubeisland.engine.core.command.CommandSender;
 import de.cubeisland.engine.core.command.annotation.CommandPermission;
 import de.cubeisland.engine.core.command.annotation.Unloggable;
+import de.cubeisland.engine.core.module.ModuleProfiler;
+import de.cubeisland.engine.core.module.ModuleProfiler.Category;
+import de.cubeisland.engine.core.storage.database.DatabaseExecutor;
+import de.cubeisland.engine.core.storage.database.QueryMetrics;
+import de.cubeisland.engine.core.storage.database.QueryMetrics.Stats;
+import de.cubeisland.engine.core.task.TickScheduler;
 import de.cubeisland.engine.core.user.User;
+import de.cubeisland.engine.core.user.UserCache;
 import de.cubeisland.engine.core.user.UserList;
 import de.cubeisland.engine.core.user.UserManager;
+import de.cubeisland.engine.core.util.LatencyHistogram;
 import de.cubeisland.engine.core.util.Profiler;
 import de.cubeisland.engine.logscribe.LogLevel;
 import org.bukkit.Bukkit;
@@ -96,15 +105,26 @@ public class CoreCommands extends ContainerCommand
     @Command(alias = "setpw", desc = "Sets your password.")
     public void setPassword(CommandContext context, String password, @Default User player)
     {
-        if ((context.getSource().equals(player)))
+        final boolean self = context.getSource().equals(player);
+        if (!self)
         {
-            um.setPassword(player, password);
-            context.sendTranslated(POSITIVE, "Your password has been set!");
-            return;
+            context.ensurePermission(core.perms().COMMAND_SETPASSWORD_OTHER);
         }
-        context.ensurePermission(core.perms().COMMAND_SETPASSWORD_OTHER);
-        um.setPassword(player, password);
-        context.sendTranslated(POSITIVE, "{user}'s password has been set!", player);
+        um.setPasswordAsync(player, password).whenComplete((result, t) -> {
+            if (t != null)
+            {
+                this.core.getLog().warn(t, "Could not set the password of {}", player.getName());
+                context.sendTranslated(NEGATIVE, "The password could not be set right now, please try again!");
+            }
+            else if (self)
+            {
+                context.sendTranslated(POSITIVE, "Your password has been set!");
+            }
+            else
+            {
+                context.sendTranslated(POSITIVE, "{user}'s password has been set!", player);
+            }
+        });
     }
 
     @Command(alias = "clearpw", desc = "Clears your password.")
@@ -148,33 +168,40 @@ public class CoreCommands extends ContainerCommand
             context.sendTranslated(POSITIVE, "You are already logged in!");
             return;
         }
-        boolean isLoggedIn = um.login(context, password);
-        if (isLoggedIn)
-        {
-            context.sendTranslated(POSITIVE, "You logged in successfully!");
-            return;
-        }
-        context.sendTranslated(NEGATIVE, "Wrong password!");
-        if (this.core.getConfiguration().security.fail2ban)
-        {
-            if (fails.get(context.getUniqueId()) != null)
+        um.loginAsync(context, password).whenComplete((isLoggedIn, t) -> {
+            if (t != null)
             {
-                if (fails.get(context.getUniqueId()) + TimeUnit.SECONDS.toMillis(10) > System.currentTimeMillis())
+                this.core.getLog().warn(t, "Could not check the password of {}", context.getName());
+                context.sendTranslated(NEGATIVE, "Your password could not be checked right now, please try again!");
+                return;
+            }
+            if (isLoggedIn)
+            {
+                context.sendTranslated(POSITIVE, "You logged in successfully!");
+                return;
+            }
+            context.sendTranslated(NEGATIVE, "Wrong password!");
+            if (this.core.getConfiguration().security.fail2ban)
+            {
+                if (fails.get(context.getUniqueId()) != null)
                 {
-                    String msg = context.getTranslation(NEGATIVE, "Too many wrong passwords!");
-                    msg += "\n" + context.getTranslation(NEGATIVE, "For your security you were banned 10 seconds.");
-                    this.banManager.addBan(new UserBan(context.getName(),context.getName(), msg,
-                                                       new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(this.core.getConfiguration().security.banDuration))));
-                    if (!Bukkit.getServer().getOnlineMode())
+                    if (fails.get(context.getUniqueId()) + TimeUnit.SECONDS.toMillis(10) > System.currentTimeMillis())
                     {
-                        this.banManager.addBan(new IpBan(context.getAddress().getAddress(),context.getName(),msg,
-                                                         new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(this.core.getConfiguration().security.banDuration))));
+                        String msg = context.getTranslation(NEGATIVE, "Too many wrong passwords!");
+                        msg += "\n" + context.getTranslation(NEGATIVE, "For your security you were banned 10 seconds.");
+                        this.banManager.addBan(new UserBan(context.getName(),context.getName(), msg,
+                                                           new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(this.core.getConfiguration().security.banDuration))));
+                        if (!Bukkit.getServer().getOnlineMode())
+                        {
+                            this.banManager.addBan(new IpBan(context.getAddress().getAddress(),context.getName(),msg,
+                                                             new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(this.core.getConfiguration().security.banDuration))));
+                        }
+                        context.kickPlayer(msg);
                     }
-                    context.kickPlayer(msg);
                 }
+                fails.put(context.getUniqueId(),System.currentTimeMillis());
             }
-            fails.put(context.getUniqueId(),System.currentTimeMillis());
-        }
+        });
     }
 
     @Command(desc = "Logs you out!")
@@ -238,6 +265,77 @@ public class CoreCommands extends ContainerCommand
         context.sendTranslated(POSITIVE, "Matched not exactly! User: {user}", name);
     }
 
+    @Command(desc = "Shows statistics of the user cache")
+    public void usercache(CommandSender context)
+    {
+        UserCache cache = um.getUserCache();
+        context.sendTranslated(POSITIVE, "{amount} of {amount} users are cached", cache.size(), cache.getMaximumSize());
+        context.sendTranslated(POSITIVE, "Hit rate: {input#rate}% ({amount} hits, {amount} misses)",
+                               String.format("%.2f", cache.getHitRate() * 100), cache.getHitCount(), cache.getMissCount());
+        context.sendTranslated(POSITIVE, "Evicted users: {amount}", cache.getEvictionCount());
+        context.sendTranslated(POSITIVE, "Loaded {amount} users in {integer#time}ms on average", cache.getLoadCount(),
+                               cache.getAverageLoadTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Command(desc = "Shows statistics of the database")
+    public void dbstats(CommandSender context, @Flag boolean reset)
+    {
+        QueryMetrics metrics = core.getDB().getMetrics();
+        if (reset)
+        {
+            metrics.reset();
+            context.sendTranslated(POSITIVE, "Database statistics reset!");
+            return;
+        }
+        DatabaseExecutor executor = core.getDB().getExecutor();
+        context.sendTranslated(POSITIVE, "Queued tasks: {amount} Active threads: {amount} Rejected: {amount}",
+                               executor.getQueueDepth(), executor.getActiveCount(), executor.getRejectedCount());
+        LatencyHistogram poolWait = metrics.getPoolWait();
+        context.sendTranslated(POSITIVE, "Connection pool wait: {integer#time}ms p99 {integer#time}ms max",
+                               poolWait.getPercentile(0.99, TimeUnit.MILLISECONDS), poolWait.getMax(TimeUnit.MILLISECONDS));
+        for (Entry<String, Stats> entry : metrics.getModuleStats().entrySet())
+        {
+            LatencyHistogram latency = entry.getValue().getLatency();
+            context.sendTranslated(NEUTRAL, "{input#module}: {amount} queries {integer#time}ms mean {integer#time}ms p99 {amount} rows",
+                                   entry.getKey(), latency.getCount(), latency.getMean(TimeUnit.MILLISECONDS),
+                                   latency.getPercentile(0.99, TimeUnit.MILLISECONDS), entry.getValue().getRows());
+        }
+    }
+
+    @Command(desc = "Shows the time used by the tasks, listeners and commands of each module")
+    public void tasks(CommandSender context, @Flag boolean reset)
+    {
+        ModuleProfiler profiler = core.getModuleProfiler();
+        if (reset)
+        {
+            profiler.reset();
+            context.sendTranslated(POSITIVE, "Module profiler reset!");
+            return;
+        }
+        if (!profiler.isEnabled())
+        {
+            context.sendTranslated(NEGATIVE, "The module profiler is disabled!");
+            return;
+        }
+        TickScheduler scheduler = core.getTaskManager().getTickScheduler();
+        context.sendTranslated(POSITIVE, "Tasks waiting for the next tick: {amount} (budget: {integer#time}ms)",
+                               scheduler.getBacklogSize(), scheduler.getBudget(TimeUnit.MILLISECONDS));
+        for (String module : profiler.getModules())
+        {
+            for (Category category : Category.values())
+            {
+                ModuleProfiler.Stats stats = profiler.getStats(module, category);
+                LatencyHistogram time = stats.getTime();
+                if (time.getCount() != 0)
+                {
+                    context.sendTranslated(NEUTRAL, "{input#module} {input#category}: {amount} runs {integer#time}ms total {integer#time}\u00B5s p99 {integer#time}\u00B5s max",
+                                           module, category.name().toLowerCase(), time.getCount(), time.getTotal(TimeUnit.MILLISECONDS),
+                                           time.getPercentile(0.99, TimeUnit.MICROSECONDS), time.getMax(TimeUnit.MICROSECONDS));
+                }
+            }
+        }
+    }
+
     public static class FindUserReader implements ArgumentReader<User>
     {
         @Override
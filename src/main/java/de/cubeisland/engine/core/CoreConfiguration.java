@@ -79,10 +79,62 @@ public class CoreConfiguration extends ReflectedYaml
         @Comment("How many Ticks after disconnecting a user should stay in the user manager")
         public int keepInMemory = 300;
 
+        @Comment("The maximum amount of users kept in memory. Online users are never unloaded")
+        public int cacheSize = 1000;
+
+        @Comment("How many minutes an offline user stays in memory after it was last used")
+        public int cacheExpiry = 10;
+
+        @Comment({"How many of the most recently seen users are loaded when the server starts",
+                  "They stay in memory for cache-expiry minutes so the first logins after a restart need no query"})
+        public int preload = 0;
+
         @Comment("How many ticks after PlayerJoinEvent the AfterJoinEvent is fired")
         public long afterJoinEventDelay = 1;
     }
 
+    public SchedulerSection scheduler;
+
+    public class SchedulerSection implements Section
+    {
+        @Comment({"How many milliseconds of each tick the tasks of modules may use",
+                  "Tasks exceeding the budget are continued in the next tick"})
+        public int tickBudget = 10;
+
+        @Comment({"How many milliseconds a task may be delayed by the tick budget",
+                  "Tasks waiting longer run regardless of the budget"})
+        public int maxDeferral = 1000;
+    }
+
+    public ProfilingSection profiling;
+
+    public class ProfilingSection implements Section
+    {
+        @Comment("Whether to measure the time modules use in tasks, listeners and commands")
+        public boolean enabled = true;
+
+        @Comment({"Whether to also measure the memory allocated by modules", "This is only supported on HotSpot JVMs and slightly slower"})
+        public boolean trackAllocations = false;
+
+        @Comment({"How many minutes between writing the measurements to the profiles folder", "0 disables the dumps"})
+        public int dumpInterval = 30;
+    }
+
+    public WatchdogSection watchdog;
+
+    public class WatchdogSection implements Section
+    {
+        @Comment({"After how many milliseconds without a tick the main thread is sampled",
+                  "The samples of each stall are written to the log folder as folded stacks"})
+        public int lagThreshold = 200;
+
+        @Comment("How many milliseconds between two samples of the main thread")
+        public int sampleInterval = 10;
+
+        @Comment("After how many seconds without a tick all threads are dumped")
+        public int freezeThreshold = 20;
+    }
+
     public LoggingSection logging;
 
     public class LoggingSection implements Section
@@ -100,11 +152,17 @@ public class CoreConfiguration extends ReflectedYaml
         public boolean logCommands = false;
 
         public boolean logDatabaseQueries = false;
+
+        @Comment("Queries taking longer than this many milliseconds are logged to the database log")
+        public int slowQueryThreshold = 250;
     }
 
     @Comment("Whether to enable the Web API server")
     public boolean useWebapi = false;
 
+    @Comment({"The database to use: mysql or h2", "h2 stores everything in an embedded database file and needs no database server"})
+    public String database = "mysql";
+
     public SecuritySection security;
 
     public class SecuritySection implements Section
@@ -114,6 +172,12 @@ public class CoreConfiguration extends ReflectedYaml
 
         @Comment("Ban duration on fail2ban")
         public int banDuration = 10;
+
+        @Comment({"The iterations used to hash passwords", "Higher values make stolen hashes harder to crack but logging in takes longer"})
+        public int passwordIterations = 20000;
+
+        @Comment("How many seconds a verified password of a web API client is remembered")
+        public int credentialCacheTime = 60;
     }
 
     @Override
@@ -0,0 +1,151 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.attachment;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Describes an attachment class.
+ * <p>Every attachment class gets a small unique slot which holders use as an index into their attachment array.
+ * The slots of the classes of a module are reused once the module got cleaned up, so holders have to check
+ * the type of the attachment found in a slot.
+ * Instances are created through a MethodHandle resolved once per class.
+ *
+ * @param <A> the attachment class
+ */
+public final class AttachmentType<A extends Attachment>
+{
+    // the slots in use and their types, guarded by USED_SLOTS
+    private static final BitSet USED_SLOTS = new BitSet();
+    private static final Map<Class<?>, AttachmentType<?>> REGISTERED = new HashMap<>();
+    private static final ClassValue<AttachmentType<?>> TYPES = new ClassValue<AttachmentType<?>>()
+    {
+        @Override
+        protected AttachmentType<?> computeValue(Class<?> type)
+        {
+            synchronized (USED_SLOTS)
+            {
+                AttachmentType<?> attachmentType = REGISTERED.get(type);
+                if (attachmentType == null)
+                {
+                    int slot = USED_SLOTS.nextClearBit(0);
+                    USED_SLOTS.set(slot);
+                    attachmentType = new AttachmentType<>(type.asSubclass(Attachment.class), slot);
+                    REGISTERED.put(type, attachmentType);
+                }
+                return attachmentType;
+            }
+        }
+    };
+
+    private final Class<A> type;
+    private final int slot;
+    private volatile MethodHandle factory;
+
+    private AttachmentType(Class<A> type, int slot)
+    {
+        this.type = type;
+        this.slot = slot;
+    }
+
+    /**
+     * Returns the AttachmentType of given class
+     *
+     * @param type the attachment class
+     *
+     * @return the AttachmentType
+     */
+    @SuppressWarnings("unchecked")
+    public static <A extends Attachment> AttachmentType<A> of(Class<A> type)
+    {
+        return (AttachmentType<A>)TYPES.get(type);
+    }
+
+    /**
+     * Frees the slots of all attachment classes loaded by given ClassLoader.
+     * <p>Must only be called once no holder has an attachment of these classes anymore
+     *
+     * @param classLoader the ClassLoader of a module
+     */
+    public static void unregisterAll(ClassLoader classLoader)
+    {
+        synchronized (USED_SLOTS)
+        {
+            Iterator<AttachmentType<?>> it = REGISTERED.values().iterator();
+            while (it.hasNext())
+            {
+                AttachmentType<?> attachmentType = it.next();
+                if (attachmentType.type.getClassLoader() == classLoader)
+                {
+                    it.remove();
+                    TYPES.remove(attachmentType.type);
+                    USED_SLOTS.clear(attachmentType.slot);
+                }
+            }
+        }
+    }
+
+    public Class<A> getType()
+    {
+        return this.type;
+    }
+
+    public int getSlot()
+    {
+        return this.slot;
+    }
+
+    /**
+     * Creates a new instance using the no-args constructor of the attachment class
+     *
+     * @return the new attachment
+     *
+     * @throws IllegalArgumentException if the attachment could not be created
+     */
+    public A newInstance()
+    {
+        try
+        {
+            return this.type.cast((Attachment)this.getFactory().invokeExact());
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalArgumentException("The given attachment could not be created!", t);
+        }
+    }
+
+    private MethodHandle getFactory() throws ReflectiveOperationException
+    {
+        MethodHandle factory = this.factory;
+        if (factory == null)
+        {
+            Constructor<A> constructor = this.type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            factory = MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Attachment.class));
+            this.factory = factory;
+        }
+        return factory;
+    }
+}
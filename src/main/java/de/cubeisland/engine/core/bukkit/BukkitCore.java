@@ -33,6 +33,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import de.cubeisland.engine.converter.ConverterManager;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.CoreCommands;
@@ -48,13 +52,16 @@ import de.cubeisland.engine.core.i18n.I18n;
 import de.cubeisland.engine.core.logging.LogFactory;
 import de.cubeisland.engine.core.module.Module;
 import de.cubeisland.engine.core.module.ModuleCommands;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import de.cubeisland.engine.core.storage.database.Database;
+import de.cubeisland.engine.core.storage.database.h2.H2Database;
 import de.cubeisland.engine.core.storage.database.mysql.MySQLDatabase;
 import de.cubeisland.engine.core.user.TableUser;
 import de.cubeisland.engine.core.user.User;
 import de.cubeisland.engine.core.util.FreezeDetection;
 import de.cubeisland.engine.core.util.InventoryGuardFactory;
 import de.cubeisland.engine.core.util.Profiler;
+import de.cubeisland.engine.core.util.StallReport;
 import de.cubeisland.engine.core.util.Version;
 import de.cubeisland.engine.core.util.WorldLocation;
 import de.cubeisland.engine.core.util.converter.BlockVector3Converter;
@@ -74,6 +81,7 @@ import de.cubeisland.engine.core.util.math.BlockVector3;
 import de.cubeisland.engine.core.webapi.ApiConfig;
 import de.cubeisland.engine.core.webapi.ApiServer;
 import de.cubeisland.engine.core.webapi.CommandController;
+import de.cubeisland.engine.core.webapi.MetricsController;
 import de.cubeisland.engine.core.webapi.ConsoleLogEvent;
 import de.cubeisland.engine.core.webapi.InetAddressConverter;
 import de.cubeisland.engine.core.webapi.exception.ApiStartupException;
@@ -117,6 +125,7 @@ public final class BukkitCore extends JavaPlugin implements Core
     private EventManager eventManager;
     private BukkitCommandManager commandManager;
     private BukkitTaskManager taskManager;
+    private ModuleProfiler moduleProfiler;
     private ApiServer apiServer;
     private BukkitWorldManager worldManager;
     private Match matcherManager;
@@ -196,6 +205,9 @@ public final class BukkitCore extends JavaPlugin implements Core
             BukkitUtils.disableCommandLogging();
         }
 
+        // depends on: core config
+        this.moduleProfiler = new ModuleProfiler(this.config.profiling.enabled, this.config.profiling.trackAllocations);
+
         // depends on: core config, server
         this.taskManager = new BukkitTaskManager(this, this.getServer().getScheduler());
 
@@ -234,7 +246,14 @@ public final class BukkitCore extends JavaPlugin implements Core
 
         // depends on: core config, file manager, task manager
         getLog().info("Connecting to the database...");
-        this.database = MySQLDatabase.loadFromConfig(this, this.fileManager.getDataPath().resolve("database.yml"));
+        if ("h2".equalsIgnoreCase(this.config.database))
+        {
+            this.database = H2Database.loadFromConfig(this, this.fileManager.getDataPath().resolve("database-h2.yml"));
+        }
+        else
+        {
+            this.database = MySQLDatabase.loadFromConfig(this, this.fileManager.getDataPath().resolve("database.yml"));
+        }
         if (this.database == null)
         {
             getLog().error("Failed to connect to the database, aborting...");
@@ -303,6 +322,8 @@ public final class BukkitCore extends JavaPlugin implements Core
                 return;
             }
         }
+        this.taskManager.start();
+
         Iterator<Runnable> it = this.initHooks.iterator();
         while (it.hasNext())
         {
@@ -341,7 +362,8 @@ public final class BukkitCore extends JavaPlugin implements Core
         this.moduleManager.enableModules();
         this.permissionManager.calculatePermissions();
 
-        this.freezeDetection = new FreezeDetection(this, 20);
+        this.freezeDetection = new FreezeDetection(this, this.config.watchdog.freezeThreshold, TimeUnit.SECONDS,
+                                                   this.config.watchdog.lagThreshold, this.config.watchdog.sampleInterval);
         this.freezeDetection.addListener(new Runnable() {
             @Override
             public void run()
@@ -349,17 +371,31 @@ public final class BukkitCore extends JavaPlugin implements Core
                 dumpThreads();
             }
         });
+        this.freezeDetection.addStallListener(this::reportStall);
         this.freezeDetection.start();
 
+        if (this.moduleProfiler.isEnabled() && this.config.profiling.dumpInterval > 0)
+        {
+            long interval = TimeUnit.MINUTES.toSeconds(this.config.profiling.dumpInterval) * 20;
+            this.taskManager.runAsynchronousTimer(this.moduleManager.getCoreModule(), this::dumpProfile, interval, interval);
+        }
+
         this.started = true;
 
         this.apiServer.registerApiHandlers(this.moduleManager.getCoreModule(), new CommandController(this));
+        this.apiServer.registerApiHandlers(this.moduleManager.getCoreModule(), new MetricsController(this));
     }
 
     @Override
     public void onDisable()
     {
         this.loaded = false;
+        if (this.taskManager != null)
+        {
+            // deferred tasks would be lost otherwise
+            this.taskManager.getTickScheduler().drain();
+        }
+
         this.logger.debug("utils cleanup");
         BukkitUtils.cleanup();
 
@@ -482,6 +518,70 @@ public final class BukkitCore extends JavaPlugin implements Core
         }
     }
 
+    /**
+     * Writes the measurements of the module profiler to a file in the profiles folder
+     */
+    public void dumpProfile()
+    {
+        Path profileFolder = this.getDataFolder().toPath().resolve("profiles");
+        try
+        {
+            Files.createDirectories(profileFolder);
+        }
+        catch (IOException ex)
+        {
+            this.getLog().warn(ex, "Failed to create the folder for the profiles!");
+            return;
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(profileFolder.resolve(new SimpleDateFormat("yyyy.MM.dd--HHmmss", Locale.US).format(new Date()) + ".profile"), CubeEngine.CHARSET))
+        {
+            this.moduleProfiler.dump(writer);
+        }
+        catch (IOException ex)
+        {
+            this.getLog().warn(ex, "Failed to write a profile!");
+        }
+    }
+
+    /**
+     * Writes the folded stacks of a stall to the log folder and pushes a summary to the web API
+     *
+     * @param report the report
+     */
+    public void reportStall(StallReport report)
+    {
+        Path file = this.fileManager.getLogPath().resolve("stall-" + new SimpleDateFormat("yyyy.MM.dd--HHmmss", Locale.US).format(new Date()) + ".folded");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, CubeEngine.CHARSET))
+        {
+            report.write(writer);
+        }
+        catch (IOException ex)
+        {
+            this.getLog().warn(ex, "Failed to write a stall report!");
+        }
+        this.getLog().warn("The main thread stalled for {} ms! {} samples were written to {}", report.getDuration(), report.getSamples(), file.getFileName());
+
+        ApiServer apiServer = this.apiServer;
+        if (apiServer != null)
+        {
+            ObjectNode node = JsonNodeFactory.instance.objectNode();
+            node.put("duration", report.getDuration());
+            node.put("samples", report.getSamples());
+            ObjectNode modules = node.putObject("modules");
+            for (Entry<String, Integer> entry : report.getModules().entrySet())
+            {
+                modules.put(entry.getKey(), entry.getValue());
+            }
+            ArrayNode stacks = node.putArray("stacks");
+            for (Entry<String, Integer> entry : report.getTopStacks(10))
+            {
+                stacks.addObject().put("stack", entry.getKey()).put("samples", entry.getValue());
+            }
+            apiServer.fireEvent("stall", node);
+        }
+    }
+
     private static void dumpStackTrace(Writer writer, Thread t, StackTraceElement[] trace, int i) throws IOException
     {
         writer.write("Thread #" + i + "\n");
@@ -604,6 +704,12 @@ public final class BukkitCore extends JavaPlugin implements Core
         return this.taskManager;
     }
 
+    @Override
+    public ModuleProfiler getModuleProfiler()
+    {
+        return this.moduleProfiler;
+    }
+
     @Override
     public ApiServer getApiServer()
     {
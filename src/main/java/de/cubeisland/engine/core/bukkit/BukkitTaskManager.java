@@ -18,7 +18,6 @@
 package de.cubeisland.engine.core.bukkit;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -26,18 +25,24 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import de.cubeisland.engine.core.module.ModuleThreadFactory;
 import de.cubeisland.engine.core.task.TaskManager;
+import de.cubeisland.engine.core.task.TaskPriority;
+import de.cubeisland.engine.core.task.TickScheduler;
 import de.cubeisland.engine.core.task.thread.CoreThreadFactory;
 import org.bukkit.scheduler.BukkitScheduler;
 
 import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
+import static de.cubeisland.engine.core.module.ModuleProfiler.Category.TASK;
 
 public class BukkitTaskManager implements TaskManager
 {
     private final BukkitCore corePlugin;
     private final BukkitScheduler bukkitScheduler;
     private final Map<Module, Set<Integer>> moduleTasks;
+    private final Map<Integer, Task> syncTasks;
+    private final TickScheduler tickScheduler;
     private final CoreThreadFactory threadFactory;
     private final Map<String, ModuleThreadFactory> moduleThreadFactories;
 
@@ -47,22 +52,28 @@ public class BukkitTaskManager implements TaskManager
         this.threadFactory = new CoreThreadFactory(core);
         this.bukkitScheduler = bukkitScheduler;
         this.moduleTasks = new ConcurrentHashMap<>();
+        this.syncTasks = new ConcurrentHashMap<>();
+        this.tickScheduler = new TickScheduler(core, core.getConfiguration().scheduler.tickBudget,
+                                               core.getConfiguration().scheduler.maxDeferral, BukkitUtils::getCurrentTick);
         this.moduleThreadFactories = new HashMap<>();
     }
 
-    private Set<Integer> getModuleIDs(Module module)
+    /**
+     * Starts the TickScheduler, must be called once the core plugin is enabled
+     */
+    public void start()
     {
-        return this.getModuleIDs(module, true);
+        this.bukkitScheduler.runTaskTimer(this.corePlugin, this.tickScheduler, 0, 1);
     }
 
-    private Set<Integer> getModuleIDs(Module module, boolean create)
+    public TickScheduler getTickScheduler()
     {
-        Set<Integer> IDs = this.moduleTasks.get(module);
-        if (create && IDs == null)
-        {
-            this.moduleTasks.put(module, IDs = new HashSet<>());
-        }
-        return IDs;
+        return this.tickScheduler;
+    }
+
+    private Set<Integer> getModuleIDs(Module module)
+    {
+        return this.moduleTasks.computeIfAbsent(module, m -> ConcurrentHashMap.newKeySet());
     }
 
     @Override
@@ -90,36 +101,36 @@ public class BukkitTaskManager implements TaskManager
 
     @Override
     public int runTaskDelayed(Module module, Runnable runnable, long delay)
+    {
+        return this.runTaskDelayed(module, runnable, delay, TaskPriority.NORMAL);
+    }
+
+    @Override
+    public int runTaskDelayed(Module module, Runnable runnable, long delay, TaskPriority priority)
     {
         expectNotNull(module, "The module must not be null!");
         expectNotNull(runnable, "The runnable must not be null!");
+        expectNotNull(priority, "The priority must not be null!");
 
-        final Set<Integer> tasks = this.getModuleIDs(module);
-        final Task task = new Task(runnable, tasks);
-        final int taskID = this.bukkitScheduler.scheduleSyncDelayedTask(this.corePlugin, task, delay);
-        if (taskID > -1)
-        {
-            task.taskID = taskID;
-            tasks.add(taskID);
-        }
-        return taskID;
+        final Task task = new Task(module, runnable, priority, false);
+        return this.register(task, this.bukkitScheduler.scheduleSyncDelayedTask(this.corePlugin, task, delay));
     }
 
     @Override
     public int runTimer(Module module, Runnable runnable, long delay, long interval)
+    {
+        return this.runTimer(module, runnable, delay, interval, TaskPriority.NORMAL);
+    }
+
+    @Override
+    public int runTimer(Module module, Runnable runnable, long delay, long interval, TaskPriority priority)
     {
         expectNotNull(module, "The module must not be null!");
         expectNotNull(runnable, "The runnable must not be null!");
+        expectNotNull(priority, "The priority must not be null!");
 
-        final Set<Integer> tasks = this.getModuleIDs(module);
-        final Task task = new Task(runnable, tasks);
-        final int taskID = this.bukkitScheduler.runTaskTimer(this.corePlugin, task, delay, interval).getTaskId();
-        if (taskID > -1)
-        {
-            task.taskID = taskID;
-            tasks.add(taskID);
-        }
-        return taskID;
+        final Task task = new Task(module, runnable, priority, true);
+        return this.register(task, this.bukkitScheduler.runTaskTimer(this.corePlugin, task, delay, interval).getTaskId());
     }
 
     @Override
@@ -134,15 +145,8 @@ public class BukkitTaskManager implements TaskManager
         expectNotNull(module, "The module must not be null!");
         expectNotNull(runnable, "The runnable must not be null!");
 
-        final Set<Integer> tasks = this.getModuleIDs(module);
-        final Task task = new Task(runnable, tasks);
-        final int taskID = this.bukkitScheduler.runTaskLaterAsynchronously(this.corePlugin, task, delay).getTaskId();
-        if (taskID > -1)
-        {
-            task.taskID = taskID;
-            tasks.add(taskID);
-        }
-        return taskID;
+        final Task task = new Task(module, runnable, null, false);
+        return this.register(task, this.bukkitScheduler.runTaskLaterAsynchronously(this.corePlugin, task, delay).getTaskId());
     }
 
     @Override
@@ -151,17 +155,34 @@ public class BukkitTaskManager implements TaskManager
         expectNotNull(module, "The module must not be null!");
         expectNotNull(runnable, "The runnable must not be null!");
 
-        final Set<Integer> tasks = this.getModuleIDs(module);
-        final Task task = new Task(runnable, tasks);
-        final int taskID = this.bukkitScheduler.runTaskTimerAsynchronously(this.corePlugin, task, delay, interval).getTaskId();
+        final Task task = new Task(module, runnable, null, true);
+        return this.register(task, this.bukkitScheduler.runTaskTimerAsynchronously(this.corePlugin, task, delay, interval).getTaskId());
+    }
+
+    private int register(Task task, int taskID)
+    {
         if (taskID > -1)
         {
             task.taskID = taskID;
-            tasks.add(taskID);
+            this.getModuleIDs(task.module).add(taskID);
+            if (task.priority != null)
+            {
+                this.syncTasks.put(taskID, task);
+            }
         }
         return taskID;
     }
 
+    private void unregister(Module module, int taskID)
+    {
+        Set<Integer> IDs = this.moduleTasks.get(module);
+        if (IDs != null)
+        {
+            IDs.remove(taskID);
+        }
+        this.syncTasks.remove(taskID);
+    }
+
     @Override
     public <T> Future<T> callSync(Callable<T> callable)
     {
@@ -173,11 +194,12 @@ public class BukkitTaskManager implements TaskManager
     public void cancelTask(Module module, int ID)
     {
         this.bukkitScheduler.cancelTask(ID);
-        Set<Integer> IDs = this.getModuleIDs(module, false);
-        if (IDs != null)
+        Task task = this.syncTasks.get(ID);
+        if (task != null)
         {
-            IDs.remove(ID);
+            task.cancelled = true;
         }
+        this.unregister(module, ID);
     }
 
     @Override
@@ -189,6 +211,11 @@ public class BukkitTaskManager implements TaskManager
             for (Integer taskID : taskIDs)
             {
                 this.bukkitScheduler.cancelTask(taskID);
+                Task task = this.syncTasks.remove(taskID);
+                if (task != null)
+                {
+                    task.cancelled = true;
+                }
             }
         }
     }
@@ -196,13 +223,15 @@ public class BukkitTaskManager implements TaskManager
     @Override
     public boolean isCurrentlyRunning(int taskID)
     {
-        return this.bukkitScheduler.isCurrentlyRunning(taskID);
+        Task task = this.syncTasks.get(taskID);
+        return (task != null && task.running) || this.bukkitScheduler.isCurrentlyRunning(taskID);
     }
 
     @Override
     public boolean isQueued(int taskID)
     {
-        return this.bukkitScheduler.isQueued(taskID);
+        Task task = this.syncTasks.get(taskID);
+        return (task != null && task.queued) || this.bukkitScheduler.isQueued(taskID);
     }
 
     @Override
@@ -229,20 +258,62 @@ public class BukkitTaskManager implements TaskManager
     private class Task implements Runnable
     {
         protected int taskID;
+        private final Module module;
         private final Runnable task;
-        private final Set<Integer> taskIDs;
+        private final TaskPriority priority; // null for asynchronous tasks
+        private final boolean repeating;
+        private volatile boolean queued = false;
+        private volatile boolean running = false;
+        private volatile boolean cancelled = false;
 
-        public Task(Runnable task, Set<Integer> taskIDs)
+        public Task(Module module, Runnable task, TaskPriority priority, boolean repeating)
         {
+            this.module = module;
             this.task = task;
-            this.taskIDs = taskIDs;
+            this.priority = priority;
+            this.repeating = repeating;
         }
 
         @Override
         public void run()
         {
-            this.task.run();
-            this.taskIDs.remove(this.taskID);
+            if (this.priority == null)
+            {
+                this.execute();
+            }
+            else if (!this.queued) // a repeating task still waiting for its last run is not queued twice
+            {
+                this.queued = true;
+                tickScheduler.submit(this.module, this.priority, this::execute);
+            }
+        }
+
+        private void execute()
+        {
+            this.queued = false;
+            if (this.cancelled)
+            {
+                return;
+            }
+            this.running = true;
+            final ModuleProfiler profiler = corePlugin.getModuleProfiler();
+            final long start = System.nanoTime();
+            final long allocated = profiler.allocatedBytes();
+            final Module previous = ModuleProfiler.enter(this.module);
+            try
+            {
+                this.task.run();
+            }
+            finally
+            {
+                ModuleProfiler.exit(previous);
+                profiler.record(this.module, TASK, start, allocated);
+                this.running = false;
+                if (!this.repeating)
+                {
+                    unregister(this.module, this.taskID);
+                }
+            }
         }
     }
 }
@@ -18,10 +18,10 @@
 package de.cubeisland.engine.core.bukkit;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
@@ -41,6 +41,7 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerKickEvent;
@@ -49,6 +50,7 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.scheduler.BukkitTask;
 
+import static de.cubeisland.engine.core.user.AttachmentHook.*;
 import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
 import static org.bukkit.event.player.PlayerLoginEvent.Result.ALLOWED;
 
@@ -76,34 +78,36 @@ public class BukkitUserManager extends AbstractUserManager
                 core.getServer().getPluginManager().registerEvents(new UserListener(), core);
                 core.getServer().getPluginManager().registerEvents(new AttachmentHookListener(), core);
 
+                List<UUID> uuids = new ArrayList<>();
                 for (Player player : core.getServer().getOnlinePlayers())
                 {
-                    onlineUsers.add(getExactUser(player.getUniqueId()));
+                    uuids.add(player.getUniqueId());
                 }
+                for (User user : loadUsers(uuids))
+                {
+                    userCache.pin(user);
+                    onlineUsers.add(user);
+                }
+                preloadRecentUsers(core.getConfiguration().usermanager.preload);
             }
         });
     }
 
-    @Override
-    public synchronized Set<User> getOnlineUsers()
+    /**
+     * Removes users from the online users registry which are no longer online
+     */
+    protected void removeStaleOnlineUsers()
     {
-        Set<User> users = super.getOnlineUsers();
-        Iterator<User> it = users.iterator();
-
-        User user;
         int i = 0;
-        while (it.hasNext())
+        for (User user : this.onlineUsers.getAll())
         {
-            user = it.next();
             if (!user.isOnline())
             {
                 core.getLog().warn(++i + ". Found an offline player in the online players list: {}({})", user.getDisplayName(), user.getUniqueId());
                 this.onlineUsers.remove(user);
-                it.remove();
+                this.userCache.unpin(user);
             }
         }
-
-        return users;
     }
 
     @Override
@@ -138,12 +142,15 @@ public class BukkitUserManager extends AbstractUserManager
     @Override
     protected User getUser(String name, boolean create)
     {
-        for (User user : this.getOnlineUsers())
+        User online = this.onlineUsers.getByName(name);
+        if (online != null)
         {
-            if (user.getName().equalsIgnoreCase(name))
-            {
-                return user;
-            }
+            return online;
+        }
+        User loaded = this.nameIndex.get(name);
+        if (loaded != null)
+        {
+            return loaded;
         }
         UserEntity userEntity = this.database.getDSL().selectFrom(TABLE_USER)
                                              .where(TABLE_USER.LASTNAME.eq(name.toLowerCase())).fetchOne();
@@ -157,13 +164,13 @@ public class BukkitUserManager extends AbstractUserManager
                 return user;
             }
             userEntity.setValue(TABLE_USER.LASTNAME, this.core.getConfiguration().nameConflict.replace("{name}", userEntity.getValue(TABLE_USER.LASTNAME)));
-            userEntity.updateAsync();
+            userEntity.updateLater();
         }
         if (create)
         {
             OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(name);
             User user = new User(core, offlinePlayer);
-            user.getEntity().insertAsync();
+            this.insertAsync(user);
             this.cacheUser(user);
             return user;
         }
@@ -172,15 +179,20 @@ public class BukkitUserManager extends AbstractUserManager
 
     private User getExactUser(OfflinePlayer player, boolean login)
     {
-        CompletableFuture<Integer> future = null;
-        User user = this.cachedUserByUUID.get(player.getUniqueId());
+        CompletableFuture<?> future = null;
+        User user = this.userCache.get(player.getUniqueId());
+        CompletableFuture<User> loading = this.loadingUsers.get(player.getUniqueId());
+        if (user != null && loading != null && !loading.isDone())
+        {
+            future = loading; // the user is still being inserted
+        }
         if (user == null)
         {
             user = this.loadUserFromDatabase(player.getUniqueId());
             if (user == null)
             {
                 user = new User(core, player);
-                future = user.getEntity().insertAsync();
+                future = this.insertAsync(user);
             }
             this.cacheUser(user);
         }
@@ -189,7 +201,7 @@ public class BukkitUserManager extends AbstractUserManager
             UserLoadedEvent event = new UserLoadedEvent(core, user);
             if (future != null)
             {
-                future.thenAccept(cnt ->
+                future.thenAccept(result ->
                     core.getServer().getScheduler().runTask(core, () ->
                         core.getEventManager().fireEvent(event)));
             }
@@ -221,12 +233,9 @@ public class BukkitUserManager extends AbstractUserManager
             final BukkitScheduler scheduler = user.getServer().getScheduler();
 
             scheduler.runTask(core, () -> {
-                synchronized (BukkitUserManager.this)
+                if (!user.isOnline())
                 {
-                    if (!user.isOnline())
-                    {
-                        onlineUsers.remove(user);
-                    }
+                    onlineUsers.remove(user);
                 }
             });
 
@@ -234,11 +243,11 @@ public class BukkitUserManager extends AbstractUserManager
                 scheduledForRemoval.remove(user.getUniqueId());
                 user.getEntity().setValue(TABLE_USER.LASTSEEN, new Timestamp(System.currentTimeMillis()));
                 Profiler.startProfiling("removalTask");
-                user.getEntity().updateAsync();
+                user.getEntity().updateLater();
                 core.getLog().debug("BukkitUserManager:UserListener#onQuit:RemovalTask {}ms", Profiler.endProfiling("removalTask", TimeUnit.MILLISECONDS));
-                if (user.isOnline())
+                if (!user.isOnline())
                 {
-                    removeCachedUser(user);
+                    userCache.unpin(user); // the user gets evicted once it expires
                 }
             }, core.getConfiguration().usermanager.keepInMemory);
 
@@ -252,6 +261,24 @@ public class BukkitUserManager extends AbstractUserManager
             scheduledForRemoval.put(user.getUniqueId(), task.getTaskId());
         }
 
+        /**
+         * Starts loading the user off the main thread so the PlayerLoginEvent finds it cached.
+         * <p>New users are created on login as only then the player is known
+         *
+         * @param event the AsyncPlayerPreLoginEvent
+         */
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onPreLogin(final AsyncPlayerPreLoginEvent event)
+        {
+            if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            {
+                loadUserAsync(event.getUniqueId(), false).exceptionally(t -> {
+                    core.getLog().warn(t, "Could not preload the user {}", event.getName());
+                    return null;
+                });
+            }
+        }
+
         @EventHandler(priority = EventPriority.MONITOR)
         public void onLogin(final PlayerLoginEvent event)
         {
@@ -265,6 +292,7 @@ public class BukkitUserManager extends AbstractUserManager
                             core.getLog().warn("A Players entity had to be removed manually: {}", entity.getUniqueId());
                             entity.remove();
                         });*/
+                userCache.pin(user);
                 onlineUsers.add(user);
             }
         }
@@ -291,13 +319,8 @@ public class BukkitUserManager extends AbstractUserManager
         @Override
         public void run()
         {
-            for (User user : cachedUserByUUID.values())
-            {
-                if (!user.isOnline() && scheduledForRemoval.get(user.getUniqueId()) > -1) // Do not delete users that will be deleted anyway
-                {
-                    removeCachedUser(user);
-                }
-            }
+            userCache.cleanUp();
+            mainThreadExecutor.execute(BukkitUserManager.this::removeStaleOnlineUsers);
         }
     }
 
@@ -306,7 +329,7 @@ public class BukkitUserManager extends AbstractUserManager
         @EventHandler(priority = EventPriority.MONITOR)
         public void onJoin(PlayerJoinEvent event)
         {
-            for (UserAttachment attachment : getExactUser(event.getPlayer()).getAll())
+            for (UserAttachment attachment : getExactUser(event.getPlayer()).getSubscribers(JOIN))
             {
                 attachment.onJoin(event.getJoinMessage());
             }
@@ -315,7 +338,7 @@ public class BukkitUserManager extends AbstractUserManager
         @EventHandler(priority = EventPriority.MONITOR)
         public void onQuit(PlayerQuitEvent event)
         {
-            for (UserAttachment attachment : getExactUser(event.getPlayer()).getAll())
+            for (UserAttachment attachment : getExactUser(event.getPlayer()).getSubscribers(QUIT))
             {
                 attachment.onQuit(event.getQuitMessage());
             }
@@ -324,7 +347,7 @@ public class BukkitUserManager extends AbstractUserManager
         @EventHandler(priority = EventPriority.MONITOR)
         public void onKick(PlayerKickEvent event)
         {
-            for (UserAttachment attachment : getExactUser(event.getPlayer()).getAll())
+            for (UserAttachment attachment : getExactUser(event.getPlayer()).getSubscribers(KICK))
             {
                 attachment.onKick(event.getLeaveMessage());
             }
@@ -333,18 +356,27 @@ public class BukkitUserManager extends AbstractUserManager
         @EventHandler(priority = EventPriority.MONITOR)
         public void onChat(AsyncPlayerChatEvent event)
         {
-            for (UserAttachment attachment : getExactUser(event.getPlayer()).getAll())
+            // this runs async, so only look at online users and never load from the database
+            User user = onlineUsers.get(event.getPlayer().getUniqueId());
+            if (user != null)
             {
-                attachment.onChat(event.getFormat(), event.getMessage());
+                for (UserAttachment attachment : user.getSubscribers(CHAT))
+                {
+                    attachment.onChat(event.getFormat(), event.getMessage());
+                }
             }
         }
 
         @EventHandler(priority = EventPriority.MONITOR)
         public void onCommand(PlayerCommandPreprocessEvent event)
         {
-            for (UserAttachment attachment : getExactUser(event.getPlayer()).getAll())
+            User user = onlineUsers.get(event.getPlayer().getUniqueId());
+            if (user != null)
             {
-                attachment.onCommand(event.getMessage());
+                for (UserAttachment attachment : user.getSubscribers(COMMAND))
+                {
+                    attachment.onCommand(event.getMessage());
+                }
             }
         }
     }
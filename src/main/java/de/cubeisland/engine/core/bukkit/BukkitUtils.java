@@ -332,6 +332,16 @@ public class BukkitUtils
         {}
     }
 
+    /**
+     * Returns the number of the current server tick
+     *
+     * @return the current tick
+     */
+    public static int getCurrentTick()
+    {
+        return MinecraftServer.currentTick;
+    }
+
     public static Player getOfflinePlayerAsPlayer(OfflinePlayer player)
     {
         MinecraftServer minecraftServer = DedicatedServer.getServer();
@@ -17,6 +17,7 @@
  */
 package de.cubeisland.engine.core.bukkit;
 
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
@@ -25,12 +26,16 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
 
 import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
+import static de.cubeisland.engine.core.module.ModuleProfiler.Category.LISTENER;
 
 /**
  * This class manages all Event-(Un-)Registration and fires Events.
@@ -64,10 +69,76 @@ public class EventManager
         }
         listeners.add(listener);
 
-        this.pm.registerEvents(listener, this.corePlugin);
+        if (this.corePlugin.getModuleProfiler().isEnabled())
+        {
+            this.registerProfiled(module, listener);
+        }
+        else
+        {
+            this.pm.registerEvents(listener, this.corePlugin);
+        }
         return this;
     }
 
+    /**
+     * Registers the handlers of the listener wrapped in executors recording their time in the module profiler
+     *
+     * @param module   the module
+     * @param listener the listener
+     */
+    private void registerProfiled(final Module module, Listener listener)
+    {
+        if (!this.corePlugin.isEnabled())
+        {
+            throw new IllegalPluginAccessException("Plugin attempted to register " + listener + " while not enabled");
+        }
+        final ModuleProfiler profiler = this.corePlugin.getModuleProfiler();
+        for (Entry<Class<? extends Event>, Set<RegisteredListener>> entry : this.corePlugin.getPluginLoader().createRegisteredListeners(listener, this.corePlugin).entrySet())
+        {
+            HandlerList handlers = getHandlerList(entry.getKey());
+            for (final RegisteredListener handler : entry.getValue())
+            {
+                handlers.register(new RegisteredListener(listener, (l, event) -> {
+                    final long start = System.nanoTime();
+                    final long allocated = profiler.allocatedBytes();
+                    final Module previous = ModuleProfiler.enter(module);
+                    try
+                    {
+                        handler.callEvent(event);
+                    }
+                    finally
+                    {
+                        ModuleProfiler.exit(previous);
+                        profiler.record(module, LISTENER, start, allocated);
+                    }
+                }, handler.getPriority(), handler.getPlugin(), handler.isIgnoringCancelled()));
+            }
+        }
+    }
+
+    private static HandlerList getHandlerList(Class<? extends Event> type)
+    {
+        Class<?> clazz = type;
+        while (clazz != null && Event.class.isAssignableFrom(clazz))
+        {
+            try
+            {
+                Method method = clazz.getDeclaredMethod("getHandlerList");
+                method.setAccessible(true);
+                return (HandlerList)method.invoke(null);
+            }
+            catch (NoSuchMethodException e)
+            {
+                clazz = clazz.getSuperclass();
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new IllegalPluginAccessException("Failed to get the handler list of " + type.getName());
+            }
+        }
+        throw new IllegalPluginAccessException("Unable to find the handler list for event " + type.getName());
+    }
+
     /**
      * Removes an event listener from a module
      *
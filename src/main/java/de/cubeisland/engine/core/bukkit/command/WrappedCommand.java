@@ -32,6 +32,7 @@ import de.cubeisland.engine.core.command.CubeDescriptor;
 import de.cubeisland.engine.core.command.sender.BlockCommandSender;
 import de.cubeisland.engine.core.command.sender.WrappedCommandSender;
 import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import de.cubeisland.engine.core.permission.Permission;
 import de.cubeisland.engine.core.util.StringUtils;
 import org.bukkit.command.Command;
@@ -39,6 +40,8 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.help.HelpTopic;
 
+import static de.cubeisland.engine.core.module.ModuleProfiler.Category.COMMAND;
+
 public class WrappedCommand extends Command
 {
     private final CommandBase command;
@@ -166,6 +169,10 @@ public class WrappedCommand extends Command
     @Override
     public boolean execute(CommandSender sender, String label, String[] args)
     {
+        final ModuleProfiler profiler = core.getModuleProfiler();
+        final long start = System.nanoTime();
+        final long allocated = profiler.allocatedBytes();
+        final Module previous = ModuleProfiler.enter(this.getModule());
         try
         {
             long delta = System.currentTimeMillis();
@@ -184,6 +191,11 @@ public class WrappedCommand extends Command
             core.getLog().error(e, "An Unknown Exception occurred while executing a command! Command: {}", command.getDescriptor().getName());
             return false;
         }
+        finally
+        {
+            ModuleProfiler.exit(previous);
+            profiler.record(this.getModule(), COMMAND, start, allocated);
+        }
     }
 
     private CommandInvocation newInvocation(CommandSource source, String label, String[] args)
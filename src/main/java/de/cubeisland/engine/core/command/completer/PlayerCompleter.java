@@ -25,8 +25,6 @@ import de.cubeisland.engine.core.CubeEngine;
 import de.cubeisland.engine.core.command.CommandSender;
 import de.cubeisland.engine.core.user.User;
 
-import static de.cubeisland.engine.core.util.StringUtils.startsWithIgnoreCase;
-
 /**
  * A PlayerCompleter for the other online users but not the user sending the command
  */
@@ -43,12 +41,11 @@ public class PlayerCompleter implements Completer
     {
         List<String> playerNames = new ArrayList<>();
         final CommandSender sender = (CommandSender)invocation.getCommandSource(); // TODO prevent class cast exceptions
-        for (User player : CubeEngine.getUserManager().getOnlineUsers())
+        for (User player : CubeEngine.getUserManager().getOnlineUsersByPrefix(invocation.currentToken()))
         {
-            String name = player.getName();
-            if (canSee(sender,  player) && startsWithIgnoreCase(name, invocation.currentToken()))
+            if (canSee(sender,  player))
             {
-                playerNames.add(name);
+                playerNames.add(player.getName());
             }
         }
         playerNames.remove(sender.getName());
@@ -63,12 +63,20 @@ public class FuzzyUserReader implements ArgumentReader<List<User>>
         String token = invocation.currentToken();
         if (token.contains("*"))
         {
-            Pattern pattern = Pattern.compile(token.replace("*", ".*"));
-            for (User user : core.getUserManager().getOnlineUsers())
+            int wildcard = token.indexOf('*');
+            if (wildcard == token.length() - 1)
             {
-                if (pattern.matcher(user.getName()).matches())
+                users.addAll(core.getUserManager().getOnlineUsersByPrefix(token.substring(0, wildcard)));
+            }
+            else
+            {
+                Pattern pattern = Pattern.compile(token.replace("*", ".*"), Pattern.CASE_INSENSITIVE);
+                for (User user : core.getUserManager().getOnlineUsersByPrefix(token.substring(0, wildcard)))
                 {
-                    users.add(user);
+                    if (pattern.matcher(user.getName()).matches())
+                    {
+                        users.add(user);
+                    }
                 }
             }
             if (users.isEmpty())
@@ -22,6 +22,7 @@ import de.cubeisland.engine.butler.parameter.reader.ArgumentReader;
 import de.cubeisland.engine.butler.parameter.reader.ReaderException;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.bukkit.BukkitCore;
+import de.cubeisland.engine.core.user.User;
 import org.bukkit.OfflinePlayer;
 
 public class OfflinePlayerReader implements ArgumentReader<OfflinePlayer>
@@ -40,6 +41,12 @@ public class OfflinePlayerReader implements ArgumentReader<OfflinePlayer>
         {
             throw new ReaderException("Players do not start with -");
         }
-        return ((BukkitCore)this.core).getServer().getOfflinePlayer(invocation.consume(1));
+        String name = invocation.consume(1);
+        User user = this.core.getUserManager().getLoadedUser(name);
+        if (user != null)
+        {
+            return ((BukkitCore)this.core).getServer().getOfflinePlayer(user.getUniqueId());
+        }
+        return ((BukkitCore)this.core).getServer().getOfflinePlayer(name);
     }
 }
@@ -40,6 +40,7 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.util.Profiler;
 import de.cubeisland.engine.core.util.formatter.ColoredMessageCompositor;
 import de.cubeisland.engine.core.util.formatter.MessageType;
 import de.cubeisland.engine.core.util.matcher.Match;
@@ -57,6 +58,8 @@ import static de.cubeisland.engine.core.filesystem.FileExtensionFilter.PO;
 
 public class I18n
 {
+    private static final Profiler.Handle COMPOSE = Profiler.handle("i18n.compose", 8);
+
     final Core core;
     private final I18nService service;
     private List<URL> poFiles = new LinkedList<>();
@@ -166,7 +169,10 @@ public class I18n
 
     public String composeMessage(Locale locale, MessageType type, String message, Object[] args)
     {
-        return this.compositor.composeMessage(type, locale, message, args);
+        try (Profiler.Span span = Profiler.start(COMPOSE))
+        {
+            return this.compositor.composeMessage(type, locale, message, args);
+        }
     }
 
     public String translateN(MessageType type, int n, String singular, String plural, Object... args)
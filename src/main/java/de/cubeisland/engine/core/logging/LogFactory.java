@@ -102,7 +102,7 @@ public class LogFactory extends DefaultLogFactory
             AsyncFileTarget target = new AsyncFileTarget(LoggingUtil.getLogFile(core, "Database"),
                                                          LoggingUtil.getFileFormat(true, false),
                                                          true, LoggingUtil.getCycler(), core.getTaskManager().getThreadFactory());
-            target.setLevel(this.core.getConfiguration().logging.logDatabaseQueries ? LogLevel.ALL : LogLevel.NONE);
+            target.setLevel(this.core.getConfiguration().logging.logDatabaseQueries ? LogLevel.ALL : LogLevel.WARN);
             databaseLog.addTarget(target);
         }
         return this.databaseLog;
@@ -472,6 +472,7 @@ public abstract class BaseModuleManager implements ModuleManager
 
         module.disable();
         this.core.getUserManager().cleanup(module);
+        this.core.getDB().flushUpdates();
         this.core.getEventManager().removeListeners(module);
         this.core.getPermissionManager().removePermissions(module);
         this.core.getTaskManager().clean(module);
@@ -96,6 +96,19 @@ public class ModuleClassLoader extends URLClassLoader
         return url;
     }
 
+    /**
+     * Checks whether the class with the given name was defined by this ClassLoader
+     *
+     * @param name the binary name of the class
+     *
+     * @return true if the class belongs to the module
+     */
+    public boolean hasDefined(String name)
+    {
+        Class<?> clazz = this.classMap.get(name);
+        return clazz != null && clazz.getClassLoader() == this;
+    }
+
     public ModuleInfo getModuleInfo()
     {
         return moduleInfo;
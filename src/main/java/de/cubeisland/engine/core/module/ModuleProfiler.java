@@ -0,0 +1,257 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.module;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import de.cubeisland.engine.core.util.LatencyHistogram;
+
+/**
+ * Records the time and memory modules use in their tasks, listeners and commands.
+ * <p>All counters are striped so recording from many threads at once does not contend.
+ */
+public class ModuleProfiler
+{
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadMXBean();
+    private static final ThreadLocal<Module> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Stats[]> stats = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final boolean trackAllocations;
+
+    /**
+     * @param enabled          whether to record anything at all
+     * @param trackAllocations whether to record the bytes allocated, only supported on HotSpot JVMs
+     */
+    public ModuleProfiler(boolean enabled, boolean trackAllocations)
+    {
+        this.enabled = enabled;
+        this.trackAllocations = enabled && trackAllocations && THREADS != null;
+        if (this.trackAllocations && !THREADS.isThreadAllocatedMemoryEnabled())
+        {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+            if (threads.isThreadAllocatedMemorySupported())
+            {
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    /**
+     * Marks the module as running a task, listener or command on the current thread
+     *
+     * @param module the module
+     *
+     * @return the module running before, pass it to {@link #exit(Module)}
+     */
+    public static Module enter(Module module)
+    {
+        Module previous = CURRENT.get();
+        CURRENT.set(module);
+        return previous;
+    }
+
+    /**
+     * Restores the module running before {@link #enter(Module)}
+     *
+     * @param previous the module returned by {@link #enter(Module)}
+     */
+    public static void exit(Module previous)
+    {
+        if (previous == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Returns the module running a task, listener or command on the current thread
+     *
+     * @return the module or null
+     */
+    public static Module getCurrentModule()
+    {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread so far, pass it to {@link #record}
+     *
+     * @return the allocated bytes or 0 if allocations are not tracked
+     */
+    public long allocatedBytes()
+    {
+        return this.trackAllocations ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * Records an invocation that started at the given time
+     *
+     * @param module    the module
+     * @param category  the kind of invocation
+     * @param start     the start time from {@link System#nanoTime()}
+     * @param allocated the result of {@link #allocatedBytes()} at the start
+     */
+    public void record(Module module, Category category, long start, long allocated)
+    {
+        if (!this.enabled)
+        {
+            return;
+        }
+        long time = System.nanoTime() - start;
+        Stats stats = this.getStats(module.getId())[category.ordinal()];
+        stats.time.record(time);
+        if (this.trackAllocations)
+        {
+            stats.allocated.add(this.allocatedBytes() - allocated);
+        }
+    }
+
+    private Stats[] getStats(String module)
+    {
+        Stats[] stats = this.stats.get(module);
+        if (stats == null)
+        {
+            stats = new Stats[Category.values().length];
+            for (int i = 0; i < stats.length; i++)
+            {
+                stats[i] = new Stats();
+            }
+            Stats[] old = this.stats.putIfAbsent(module, stats);
+            if (old != null)
+            {
+                stats = old;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of a module
+     *
+     * @param module   the module id
+     * @param category the category
+     *
+     * @return the statistics or null if nothing was recorded for the module
+     */
+    public Stats getStats(String module, Category category)
+    {
+        Stats[] stats = this.stats.get(module);
+        return stats == null ? null : stats[category.ordinal()];
+    }
+
+    /**
+     * Returns the ids of all modules something was recorded for
+     *
+     * @return the sorted module ids
+     */
+    public Set<String> getModules()
+    {
+        return new TreeSet<>(this.stats.keySet());
+    }
+
+    public void reset()
+    {
+        this.stats.clear();
+    }
+
+    /**
+     * Writes all statistics as a table
+     *
+     * @param writer the writer
+     *
+     * @throws IOException if the writer fails
+     */
+    public void dump(Writer writer) throws IOException
+    {
+        writer.write(String.format("%-20s %-9s %10s %12s %10s %10s %14s%n", "module", "category", "count", "total(ms)", "p99(us)",
+                                   "max(us)", "allocated(kb)"));
+        for (Entry<String, Stats[]> entry : new TreeMap<>(this.stats).entrySet())
+        {
+            for (Category category : Category.values())
+            {
+                Stats stats = entry.getValue()[category.ordinal()];
+                LatencyHistogram time = stats.getTime();
+                if (time.getCount() != 0)
+                {
+                    writer.write(String.format("%-20s %-9s %10d %12d %10d %10d %14d%n", entry.getKey(), category.name().toLowerCase(),
+                                               time.getCount(), time.getTotal(TimeUnit.MILLISECONDS),
+                                               time.getPercentile(0.99, TimeUnit.MICROSECONDS), time.getMax(TimeUnit.MICROSECONDS),
+                                               stats.getAllocated() / 1024));
+                }
+            }
+        }
+    }
+
+    public enum Category
+    {
+        TASK,
+        LISTENER,
+        COMMAND
+    }
+
+    public static final class Stats
+    {
+        private final LatencyHistogram time = new LatencyHistogram();
+        private final LongAdder allocated = new LongAdder();
+
+        public LatencyHistogram getTime()
+        {
+            return this.time;
+        }
+
+        /**
+         * Returns the bytes allocated, always 0 if allocations are not tracked
+         *
+         * @return the allocated bytes
+         */
+        public long getAllocated()
+        {
+            return this.allocated.sum();
+        }
+    }
+}
@@ -17,15 +17,17 @@
  */
 package de.cubeisland.engine.core.storage.database;
 
+import java.lang.reflect.Constructor;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import de.cubeisland.engine.core.Core;
 import org.jooq.Query;
 import org.jooq.Record;
@@ -41,53 +43,64 @@ import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
  */
 public abstract class AbstractDatabase implements Database
 {
-    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final DatabaseExecutor executor;
+    private final WriteBehindQueue writeBehindQueue;
 
     protected final Core core;
     protected final ThreadFactory threadFactory;
+    protected final QueryMetrics metrics;
 
-    protected AbstractDatabase(Core core)
+    protected AbstractDatabase(Core core, DatabaseConfiguration config)
     {
         this.core = core;
         this.threadFactory = new DatabaseThreadFactory();
-        this.executor = Executors.newSingleThreadExecutor(this.threadFactory);
+        this.metrics = new QueryMetrics(core.getLogFactory().getDatabaseLog(), core.getConfiguration().logging.slowQueryThreshold);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(this.threadFactory);
+        this.executor = new DatabaseExecutor(this.threadFactory, config.connectionPoolSize, config.queueSize);
+        this.writeBehindQueue = new WriteBehindQueue(this, core.getLog(), this.scheduler, config.batchInterval, config.batchSize);
+    }
+
+    @Override
+    public QueryMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    @Override
+    public DatabaseExecutor getExecutor()
+    {
+        return this.executor;
+    }
+
+    @Override
+    public PreparedQuery prepare(String sql)
+    {
+        return new PreparedQuery(this, sql);
     }
 
     @Override
     public CompletableFuture<ResultSet> query(final String query, final Object... params)
     {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Connection connection = getConnection())
-            {
-                try (PreparedStatement stmt = prepareStatement(connection, query))
-                {
-                    bindValues(stmt, params);
-                    return stmt.executeQuery();
-                }
-            }
-            catch (SQLException e)
-            {
-                throw new DataAccessException("SQL-Error while doing a query: " + query, e);
-            }
-        });
+        return this.prepare(query).query(stmt -> bindValues(stmt, params)).thenApply(Result::intoResultSet);
     }
 
     @Override
     public <R extends Record> CompletableFuture<Result<R>> query(final ResultQuery<R> query)
     {
-        return CompletableFuture.supplyAsync(query::fetch);
+        return DatabaseExecutor.supplyAsync(query::fetch, this.executor.forClass(query.getRecordType()));
     }
 
     @Override
     public <R extends Record> CompletableFuture<R> queryOne(final ResultQuery<R> query)
     {
-        return CompletableFuture.supplyAsync(query::fetchOne);
+        return DatabaseExecutor.supplyAsync(query::fetchOne, this.executor.forClass(query.getRecordType()));
     }
 
     @Override
     public CompletableFuture<Boolean> execute(final String query, final Object... params)
     {
-        return CompletableFuture.supplyAsync(() -> {
+        return DatabaseExecutor.supplyAsync(() -> {
             try (Connection connection = getConnection())
             {
                 try (PreparedStatement stmt = prepareStatement(connection, query))
@@ -100,19 +113,19 @@ public abstract class AbstractDatabase implements Database
             {
                 throw new DataAccessException("SQL-Error while doing an execute-query: " + query, e);
             }
-        });
+        }, this.executor);
     }
 
     @Override
     public CompletableFuture<Integer> execute(final Query query)
     {
-        return CompletableFuture.supplyAsync(query::execute);
+        return DatabaseExecutor.supplyAsync(query::execute, this.executor);
     }
 
     @Override
     public CompletableFuture<Integer> update(final String query, final Object... params)
     {
-        return CompletableFuture.supplyAsync(() -> {
+        return DatabaseExecutor.supplyAsync(() -> {
             try (Connection connection = getConnection())
             {
                 try (PreparedStatement stmt = prepareStatement(connection, query))
@@ -137,7 +150,7 @@ public abstract class AbstractDatabase implements Database
     @Override
     public CompletableFuture<DatabaseMetaData> getMetaData()
     {
-        return CompletableFuture.supplyAsync(() -> {
+        return DatabaseExecutor.supplyAsync(() -> {
             try (Connection c = getConnection())
             {
                 return c.getMetaData();
@@ -146,7 +159,7 @@ public abstract class AbstractDatabase implements Database
             {
                 throw new DataAccessException(e.getMessage(), e);
             }
-        });
+        }, this.executor);
     }
 
     private PreparedStatement bindValues(PreparedStatement statement, Object... params) throws SQLException
@@ -158,10 +171,48 @@ public abstract class AbstractDatabase implements Database
         return statement;
     }
 
+    @Override
+    public void registerTable(Class<? extends Table<?>> clazz)
+    {
+        try
+        {
+            Constructor<? extends Table<?>> constructor = clazz.getDeclaredConstructor(String.class);
+            Table<?> table = constructor.newInstance(this.getTablePrefix());
+            this.registerTable(table);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Unable to instantiate Table! " + clazz.getName(), e);
+        }
+    }
+
+    @Override
+    public void queueUpdate(AsyncRecord<?> record)
+    {
+        this.writeBehindQueue.add(record);
+    }
+
+    @Override
+    public void flushUpdates()
+    {
+        this.writeBehindQueue.flush();
+    }
+
     @Override
     public void shutdown()
     {
-        this.executor.shutdown();
+        // a periodic flush may still be running, the final flush must come after it and before the pool closes
+        this.scheduler.shutdown();
+        try
+        {
+            this.scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        this.writeBehindQueue.flush();
+        this.executor.shutdown(5, TimeUnit.SECONDS);
     }
 
     @Override
@@ -19,9 +19,10 @@ package de.cubeisland.engine.core.storage.database;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import de.cubeisland.engine.core.CubeEngine;
 import org.jooq.impl.UpdatableRecordImpl;
 
-import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static de.cubeisland.engine.core.storage.database.DatabaseExecutor.supplyAsync;
 
 public abstract class AsyncRecord<T extends AsyncRecord<T>> extends UpdatableRecordImpl<T>
 {
@@ -32,7 +33,7 @@ public abstract class AsyncRecord<T extends AsyncRecord<T>> extends UpdatableRec
 
     public CompletableFuture<Integer> updateAsync()
     {
-        return supplyAsync(this::update);
+        return supplyAsync(this::update, this.executor());
     }
 
     public CompletableFuture<Integer> updateAsync(Executor executor)
@@ -40,9 +41,20 @@ public abstract class AsyncRecord<T extends AsyncRecord<T>> extends UpdatableRec
         return supplyAsync(this::update, executor);
     }
 
+    /**
+     * Queues the changes of this record to be written with the next batch of updates.
+     * <p>The changed fields are copied when queueing, so this must be called by the thread modifying the record.
+     * The changed flags of this record are left untouched.
+     * All changes queued until the batch gets written are merged into one update
+     */
+    public void updateLater()
+    {
+        CubeEngine.getCore().getDB().queueUpdate(this);
+    }
+
     public CompletableFuture<Integer> insertAsync()
     {
-        return supplyAsync(this::insert);
+        return supplyAsync(this::insert, this.executor());
     }
 
     public CompletableFuture<Integer> insertAsync(Executor executor)
@@ -52,11 +64,19 @@ public abstract class AsyncRecord<T extends AsyncRecord<T>> extends UpdatableRec
 
     public CompletableFuture<Integer> deleteAsync()
     {
-        return supplyAsync(this::delete);
+        return supplyAsync(this::delete, this.executor());
     }
 
     public CompletableFuture<Integer> deleteAsync(Executor executor)
     {
         return supplyAsync(this::delete, executor);
     }
+
+    /**
+     * Returns the executor accounting the work to the module owning this record
+     */
+    private Executor executor()
+    {
+        return CubeEngine.getCore().getDB().getExecutor().forClass(this.getClass());
+    }
 }
@@ -21,6 +21,7 @@ import de.cubeisland.engine.core.storage.database.mysql.Keys;
 import de.cubeisland.engine.core.util.Version;
 import org.jooq.Identity;
 import org.jooq.Record;
+import org.jooq.SQLDialect;
 import org.jooq.TableField;
 
 public abstract class AutoIncrementTable<R extends Record, K extends Number> extends Table<R>
@@ -45,9 +46,9 @@ public abstract class AutoIncrementTable<R extends Record, K extends Number> ext
     }
 
     @Override
-    protected void appendColumnDefinition(StringBuilder sb, TableField<R, ?> field)
+    protected void appendColumnDefinition(StringBuilder sb, TableField<R, ?> field, SQLDialect dialect)
     {
-        super.appendColumnDefinition(sb, field);
+        super.appendColumnDefinition(sb, field, dialect);
         if (identity.getField() == field)
         {
             sb.append(" AUTO_INCREMENT");
@@ -58,12 +58,21 @@ public interface Database
      */
     PreparedStatement prepareStatement(Connection c, String statement) throws SQLException;
 
+    /**
+     * Prepares a raw SQL statement for repeated execution
+     *
+     * @param sql the SQL with ? as parameter placeholders
+     * @return the prepared query
+     */
+    PreparedQuery prepare(String sql);
+
     /**
      * Executes a query.
+     * <p>For frequently executed queries use {@link #prepare(String)}
      *
      * @param query  the query to execute
      * @param params the params
-     * @return the ResultSet
+     * @return the ResultSet detached from the connection
      */
     CompletableFuture<ResultSet> query(String query, Object... params);
 
@@ -95,6 +104,34 @@ public interface Database
 
     CompletableFuture<Integer> update(Query query);
 
+    /**
+     * Returns the executor running the asynchronous database operations.
+     * <p>Records and result queries are accounted to the module owning their record type,
+     * use {@link DatabaseExecutor#forModule} to account other work to a module
+     *
+     * @return the database executor
+     */
+    DatabaseExecutor getExecutor();
+
+    /**
+     * Returns the latency metrics of the queries executed through jOOQ
+     *
+     * @return the query metrics
+     */
+    QueryMetrics getMetrics();
+
+    /**
+     * Queues the record to be updated with the next batch of updates
+     *
+     * @param record the record
+     */
+    void queueUpdate(AsyncRecord<?> record);
+
+    /**
+     * Writes all queued updates on the current thread
+     */
+    void flushUpdates();
+
     void shutdown();
 
     CompletableFuture<DatabaseMetaData> getMetaData();
@@ -17,6 +17,7 @@
  */
 package de.cubeisland.engine.core.storage.database;
 
+import de.cubeisland.engine.reflect.annotations.Comment;
 import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
 
 /**
@@ -25,5 +26,18 @@ import de.cubeisland.engine.reflect.codec.yaml.ReflectedYaml;
 @SuppressWarnings("all")
 public abstract class DatabaseConfiguration extends ReflectedYaml
 {
+    @Comment("The table prefix to use for all CubeEngine tables")
+    public String tablePrefix = "cube_";
 
+    @Comment("The maximum amount of connections to the database. This also limits the threads executing queries")
+    public int connectionPoolSize = 20;
+
+    @Comment("The maximum amount of queued queries. When exceeded further queries fail until there is room again")
+    public int queueSize = 1000;
+
+    @Comment("How many milliseconds queued updates are collected before they get written")
+    public int batchInterval = 1000;
+
+    @Comment("The amount of queued updates that get written immediately")
+    public int batchSize = 200;
 }
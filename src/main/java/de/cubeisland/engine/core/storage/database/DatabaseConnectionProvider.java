@@ -0,0 +1,62 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Provides jOOQ with the connections of a {@link Database}
+ */
+public class DatabaseConnectionProvider implements ConnectionProvider
+{
+    private final Database database;
+
+    public DatabaseConnectionProvider(Database database)
+    {
+        this.database = database;
+    }
+
+    @Override
+    public Connection acquire() throws DataAccessException
+    {
+        try
+        {
+            return this.database.getConnection();
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException("Could not acquire a connection", e);
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws DataAccessException
+    {
+        try
+        {
+            connection.close();
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException("Could not release a connection", e);
+        }
+    }
+}
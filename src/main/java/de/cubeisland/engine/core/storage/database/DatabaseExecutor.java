@@ -0,0 +1,245 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleClassLoader;
+import de.cubeisland.engine.core.module.ModuleProfiler;
+import de.cubeisland.engine.core.util.Profiler;
+
+/**
+ * The Executor running all blocking database work.
+ * <p>It uses as many threads as the database has connections and a bounded queue.
+ * When the queue is full new tasks are rejected, {@link #supplyAsync} turns that into a failed future.
+ * No thread ever waits for room in the queue, so neither the main thread, network threads nor the database
+ * threads themselves can be stalled by a saturated queue. The executed tasks are accounted per module.
+ */
+public class DatabaseExecutor implements Executor
+{
+    public static final String CORE = "core";
+    private static final ThreadLocal<String> OWNER = new ThreadLocal<>();
+    private static final Profiler.Handle DATABASE_TASK = Profiler.handle("database.task", 1);
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Usage> usages = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public DatabaseExecutor(ThreadFactory threadFactory, int threads, int queueSize)
+    {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                               new ArrayBlockingQueue<Runnable>(queueSize), threadFactory,
+                                               this::reject);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        Module module = ModuleProfiler.getCurrentModule();
+        this.execute(module == null ? CORE : module.getId(), task);
+    }
+
+    /**
+     * Returns an Executor accounting all its tasks to given module
+     *
+     * @param module the module
+     *
+     * @return the executor
+     */
+    public Executor forModule(Module module)
+    {
+        return this.forOwner(module.getId());
+    }
+
+    /**
+     * Returns an Executor accounting all its tasks to the module that loaded the class
+     *
+     * @param type a class of a module, e.g. the type of a record
+     *
+     * @return the executor, accounting like {@link #execute(Runnable)} if the class was not loaded by a module
+     */
+    public Executor forClass(Class<?> type)
+    {
+        ClassLoader classLoader = type.getClassLoader();
+        if (classLoader instanceof ModuleClassLoader)
+        {
+            return this.forOwner(((ModuleClassLoader)classLoader).getModuleInfo().getId());
+        }
+        return this;
+    }
+
+    private Executor forOwner(final String owner)
+    {
+        return task -> this.execute(owner, task);
+    }
+
+    private void execute(final String owner, final Runnable task)
+    {
+        final Usage usage = this.getUsage(owner);
+        usage.submitted.increment();
+        this.executor.execute(() -> {
+            final long start = System.nanoTime();
+            OWNER.set(owner);
+            try (Profiler.Span span = Profiler.start(DATABASE_TASK))
+            {
+                task.run();
+            }
+            finally
+            {
+                OWNER.remove();
+                usage.completed.increment();
+                usage.time.add(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor pool)
+    {
+        this.rejected.increment();
+        if (pool.isShutdown())
+        {
+            throw new RejectedExecutionException("The database executor was shut down!");
+        }
+        throw new RejectedExecutionException("The database queue is full!");
+    }
+
+    /**
+     * Runs the supplier asynchronously like {@link CompletableFuture#supplyAsync(Supplier, Executor)},
+     * but a rejected task fails the returned future instead of throwing
+     *
+     * @param supplier the supplier
+     * @param executor the executor
+     *
+     * @return the future
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor)
+    {
+        try
+        {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        }
+        catch (RejectedExecutionException e)
+        {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Returns the id of the module the task currently running on this thread was submitted for
+     *
+     * @return the module id or null if the current thread is not running a database task
+     */
+    public static String getCurrentOwner()
+    {
+        return OWNER.get();
+    }
+
+    private Usage getUsage(String owner)
+    {
+        Usage usage = this.usages.get(owner);
+        if (usage == null)
+        {
+            usage = new Usage();
+            Usage old = this.usages.putIfAbsent(owner, usage);
+            if (old != null)
+            {
+                usage = old;
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the usage of this executor by module id
+     *
+     * @return an unmodifiable map of module ids to their usage
+     */
+    public Map<String, Usage> getUsages()
+    {
+        return Collections.unmodifiableMap(this.usages);
+    }
+
+    public int getQueueDepth()
+    {
+        return this.executor.getQueue().size();
+    }
+
+    public int getActiveCount()
+    {
+        return this.executor.getActiveCount();
+    }
+
+    /**
+     * Returns how often a task was rejected because the queue was full or the executor shut down
+     *
+     * @return the amount of rejected tasks
+     */
+    public long getRejectedCount()
+    {
+        return this.rejected.sum();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit)
+    {
+        this.executor.shutdown();
+        try
+        {
+            this.executor.awaitTermination(timeout, unit);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static final class Usage
+    {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder time = new LongAdder();
+
+        public long getSubmitted()
+        {
+            return this.submitted.sum();
+        }
+
+        public long getCompleted()
+        {
+            return this.completed.sum();
+        }
+
+        public long getTime(TimeUnit unit)
+        {
+            return unit.convert(this.time.sum(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.exception.DataAccessException;
+
+import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
+
+/**
+ * A raw SQL statement prepared for repeated execution.
+ * <p>The amount of parameters is determined once when the query is prepared. The JDBC driver caches the
+ * statement per pooled connection, so executing a PreparedQuery does not parse the SQL again.
+ * Results are fetched completely into a detached {@link Result} which stays usable after the connection was released.
+ */
+public class PreparedQuery
+{
+    private final Database database;
+    private final String sql;
+    private final int parameterCount;
+
+    PreparedQuery(Database database, String sql)
+    {
+        expectNotNull(sql, "The statement must not be null!");
+        this.database = database;
+        this.sql = sql;
+        this.parameterCount = countParameters(sql);
+    }
+
+    public String getSQL()
+    {
+        return this.sql;
+    }
+
+    public int getParameterCount()
+    {
+        return this.parameterCount;
+    }
+
+    /**
+     * Executes this query asynchronously
+     *
+     * @param params the parameters
+     *
+     * @return the detached result
+     */
+    public CompletableFuture<Result<Record>> query(Object... params)
+    {
+        this.checkParameters(params);
+        return this.query(statement -> bind(statement, params));
+    }
+
+    /**
+     * Executes this query asynchronously
+     *
+     * @param binder the binder setting the parameters
+     *
+     * @return the detached result
+     */
+    public CompletableFuture<Result<Record>> query(Binder binder)
+    {
+        return DatabaseExecutor.supplyAsync(() -> this.fetch(binder), this.database.getExecutor());
+    }
+
+    /**
+     * Executes this query on the current thread
+     *
+     * @param binder the binder setting the parameters
+     *
+     * @return the detached result
+     */
+    public Result<Record> fetch(Binder binder)
+    {
+        try (Connection connection = this.database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(this.sql))
+        {
+            binder.bind(statement);
+            try (ResultSet resultSet = statement.executeQuery())
+            {
+                return this.database.getDSL().fetch(resultSet);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException("SQL-Error while doing a query: " + this.sql, e);
+        }
+    }
+
+    /**
+     * Executes this statement asynchronously
+     *
+     * @param params the parameters
+     *
+     * @return the affected rows
+     */
+    public CompletableFuture<Integer> update(Object... params)
+    {
+        this.checkParameters(params);
+        return this.update(statement -> bind(statement, params));
+    }
+
+    /**
+     * Executes this statement asynchronously
+     *
+     * @param binder the binder setting the parameters
+     *
+     * @return the affected rows
+     */
+    public CompletableFuture<Integer> update(Binder binder)
+    {
+        return DatabaseExecutor.supplyAsync(() -> this.executeUpdate(binder), this.database.getExecutor());
+    }
+
+    /**
+     * Executes this statement on the current thread
+     *
+     * @param binder the binder setting the parameters
+     *
+     * @return the affected rows
+     */
+    public int executeUpdate(Binder binder)
+    {
+        try (Connection connection = this.database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(this.sql))
+        {
+            binder.bind(statement);
+            return statement.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException("SQL-Error while doing an update-query: " + this.sql, e);
+        }
+    }
+
+    private void checkParameters(Object[] params)
+    {
+        if (params.length != this.parameterCount)
+        {
+            throw new IllegalArgumentException("Expected " + this.parameterCount + " parameters but got " + params.length + " for: " + this.sql);
+        }
+    }
+
+    /**
+     * Binds the parameters using the setter matching their type.
+     * <p>UUIDs are bound as their string representation, unknown types using setObject
+     *
+     * @param statement the statement
+     * @param params    the parameters
+     */
+    private static void bind(PreparedStatement statement, Object... params) throws SQLException
+    {
+        for (int i = 0; i < params.length; ++i)
+        {
+            final int index = i + 1;
+            final Object param = params[i];
+            if (param == null)
+            {
+                statement.setNull(index, Types.NULL);
+            }
+            else if (param instanceof String)
+            {
+                statement.setString(index, (String)param);
+            }
+            else if (param instanceof Integer)
+            {
+                statement.setInt(index, (Integer)param);
+            }
+            else if (param instanceof Long)
+            {
+                statement.setLong(index, (Long)param);
+            }
+            else if (param instanceof Boolean)
+            {
+                statement.setBoolean(index, (Boolean)param);
+            }
+            else if (param instanceof Double)
+            {
+                statement.setDouble(index, (Double)param);
+            }
+            else if (param instanceof Float)
+            {
+                statement.setFloat(index, (Float)param);
+            }
+            else if (param instanceof Short)
+            {
+                statement.setShort(index, (Short)param);
+            }
+            else if (param instanceof Byte)
+            {
+                statement.setByte(index, (Byte)param);
+            }
+            else if (param instanceof byte[])
+            {
+                statement.setBytes(index, (byte[])param);
+            }
+            else if (param instanceof Timestamp)
+            {
+                statement.setTimestamp(index, (Timestamp)param);
+            }
+            else if (param instanceof BigDecimal)
+            {
+                statement.setBigDecimal(index, (BigDecimal)param);
+            }
+            else if (param instanceof UUID)
+            {
+                statement.setString(index, param.toString());
+            }
+            else
+            {
+                statement.setObject(index, param);
+            }
+        }
+    }
+
+    /**
+     * Counts the parameter placeholders outside of quoted strings, identifiers and comments
+     */
+    private static int countParameters(String sql)
+    {
+        int count = 0;
+        final int length = sql.length();
+        for (int i = 0; i < length; i++)
+        {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`')
+            {
+                // skip to the closing quote, a backslash escapes the next character of a string literal
+                for (i++; i < length && sql.charAt(i) != c; i++)
+                {
+                    if (c != '`' && sql.charAt(i) == '\\')
+                    {
+                        i++;
+                    }
+                }
+            }
+            else if (c == '#' || (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-'))
+            {
+                while (i < length && sql.charAt(i) != '\n')
+                {
+                    i++;
+                }
+            }
+            else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*')
+            {
+                int end = sql.indexOf("*/", i + 2);
+                i = end == -1 ? length : end + 1;
+            }
+            else if (c == '?')
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Sets the parameters of a statement
+     */
+    @FunctionalInterface
+    public interface Binder
+    {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+}
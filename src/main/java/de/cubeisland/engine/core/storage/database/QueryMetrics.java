@@ -0,0 +1,202 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleProfiler;
+import de.cubeisland.engine.core.util.LatencyHistogram;
+import de.cubeisland.engine.logscribe.Log;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListener;
+
+/**
+ * Measures every query executed through jOOQ.
+ * <p>Latencies and fetched rows are recorded per query shape (the SQL with bind placeholders) and per module.
+ * A query is accounted to the module owning the database task running it, or else to the module whose task,
+ * listener or command is running on the current thread.
+ * Queries exceeding the slow query threshold are logged to the database log.
+ */
+public class QueryMetrics extends DefaultExecuteListener implements ExecuteListenerProvider
+{
+    private static final String START = "cubeengine.metrics.start";
+    private static final String ROWS = "cubeengine.metrics.rows";
+    private static final String OTHER = "other";
+    private static final int MAX_SHAPES = 500;
+
+    private final Log log;
+    private final long slowQueryThreshold;
+    private final Map<String, Stats> byShape = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byModule = new ConcurrentHashMap<>();
+    private final LatencyHistogram poolWait = new LatencyHistogram();
+
+    /**
+     * @param log                the log to write slow queries to
+     * @param slowQueryThreshold the time in milliseconds after which a query is considered slow
+     */
+    public QueryMetrics(Log log, long slowQueryThreshold)
+    {
+        this.log = log;
+        this.slowQueryThreshold = TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold);
+    }
+
+    @Override
+    public ExecuteListener provide()
+    {
+        return this;
+    }
+
+    @Override
+    public void start(ExecuteContext ctx)
+    {
+        ctx.data(START, System.nanoTime());
+        ctx.data(ROWS, new int[1]);
+    }
+
+    @Override
+    public void recordEnd(ExecuteContext ctx)
+    {
+        int[] rows = (int[])ctx.data(ROWS);
+        if (rows != null)
+        {
+            rows[0]++;
+        }
+    }
+
+    @Override
+    public void end(ExecuteContext ctx)
+    {
+        Long start = (Long)ctx.data(START);
+        if (start == null)
+        {
+            return;
+        }
+        long time = System.nanoTime() - start;
+        int rows = ((int[])ctx.data(ROWS))[0];
+        String sql = ctx.sql();
+        if (sql == null)
+        {
+            String[] batch = ctx.batchSQL();
+            sql = batch.length == 0 ? OTHER : batch[0];
+        }
+        Stats shapeStats = this.byShape.get(sql);
+        if (shapeStats == null)
+        {
+            shapeStats = getStats(this.byShape, this.byShape.size() < MAX_SHAPES ? sql : OTHER);
+        }
+        shapeStats.record(time, rows);
+
+        String owner = DatabaseExecutor.getCurrentOwner();
+        if (owner == null)
+        {
+            Module module = ModuleProfiler.getCurrentModule();
+            owner = module == null ? DatabaseExecutor.CORE : module.getId();
+        }
+        getStats(this.byModule, owner).record(time, rows);
+
+        if (time >= this.slowQueryThreshold)
+        {
+            this.log.warn("Slow query ({} ms, {} rows) by {}: {}", TimeUnit.NANOSECONDS.toMillis(time), rows, owner, sql);
+        }
+    }
+
+    /**
+     * Records the time a thread waited to get a connection from the pool
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void recordPoolWait(long nanos)
+    {
+        this.poolWait.record(nanos);
+    }
+
+    private static Stats getStats(Map<String, Stats> map, String key)
+    {
+        Stats stats = map.get(key);
+        if (stats == null)
+        {
+            stats = new Stats();
+            Stats old = map.putIfAbsent(key, stats);
+            if (old != null)
+            {
+                stats = old;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics by query shape
+     *
+     * @return an unmodifiable map of SQL strings to their statistics
+     */
+    public Map<String, Stats> getShapeStats()
+    {
+        return Collections.unmodifiableMap(this.byShape);
+    }
+
+    /**
+     * Returns the statistics by module
+     *
+     * @return an unmodifiable map of module ids to their statistics
+     */
+    public Map<String, Stats> getModuleStats()
+    {
+        return Collections.unmodifiableMap(this.byModule);
+    }
+
+    public LatencyHistogram getPoolWait()
+    {
+        return this.poolWait;
+    }
+
+    public void reset()
+    {
+        this.byShape.clear();
+        this.byModule.clear();
+        this.poolWait.reset();
+    }
+
+    public static final class Stats
+    {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+
+        private void record(long time, int rows)
+        {
+            this.latency.record(time);
+            this.rows.add(rows);
+        }
+
+        public LatencyHistogram getLatency()
+        {
+            return this.latency;
+        }
+
+        public long getRows()
+        {
+            return this.rows.sum();
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.jooq.UniqueKey;
 import org.jooq.impl.DefaultDataType;
 import org.jooq.impl.SQLDataType;
 import org.jooq.impl.TableImpl;
+import org.jooq.tools.jdbc.JDBCUtils;
 import org.jooq.types.UInteger;
 import org.jooq.types.UShort;
 
@@ -114,8 +115,11 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
         {
             throw new IllegalStateException("Add your fields to the table OR implement createTable yourself!");
         }
+        SQLDialect dialect = JDBCUtils.dialect(connection);
+        char quote = dialect == SQLDialect.MYSQL ? '`' : '"';
+        List<String> statements = new ArrayList<>();
         StringBuilder sb = new StringBuilder("CREATE TABLE IF NOT EXISTS ");
-        sb.append(QUOTE).append(this.getName()).append(QUOTE).append(" (\n");
+        sb.append(quote).append(this.getName()).append(quote).append(" (\n");
         boolean first = true;
         for (TableField<R, ?> field : this.fields)
         {
@@ -123,19 +127,34 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
             {
                 sb.append(",\n");
             }
-            this.appendColumnDefinition(sb, field);
+            this.appendColumnDefinition(sb, field, dialect);
             first = false;
         }
         if (this.primaryKey != null)
         {
             sb.append(",\nPRIMARY KEY ");
-            this.appendFieldList(sb, primaryKey.getFields());
+            this.appendFieldList(sb, primaryKey.getFields(), quote);
         }
         for (TableField<R, ?>[] index : this.indices)
         {
-            sb.append(",\nINDEX ");
-            // TODO index Key Name
-            this.appendFieldList(sb, Arrays.asList(index));
+            if (dialect == SQLDialect.MYSQL)
+            {
+                sb.append(",\nINDEX ");
+                // TODO index Key Name
+                this.appendFieldList(sb, Arrays.asList(index), quote);
+            }
+            else
+            {
+                StringBuilder indexSb = new StringBuilder("CREATE INDEX IF NOT EXISTS ");
+                indexSb.append(quote).append(this.getName());
+                for (TableField<R, ?> field : index)
+                {
+                    indexSb.append("_").append(field.getName());
+                }
+                indexSb.append(quote).append(" ON ").append(quote).append(this.getName()).append(quote);
+                this.appendFieldList(indexSb, Arrays.asList(index), quote);
+                statements.add(indexSb.toString());
+            }
         }
         for (UniqueKey<R> uniqueKey : this.uniqueKeys)
         {
@@ -143,17 +162,17 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
             {
                 continue;
             }
-            sb.append(",\nUNIQUE KEY ");
+            sb.append(",\nUNIQUE ");
             // TODO unique Key Name
-            this.appendFieldList(sb, uniqueKey.getFields());
+            this.appendFieldList(sb, uniqueKey.getFields(), quote);
         }
         for (ForeignKey<R, ?> foreignKey : this.foreignKeys)
         {
             sb.append(",\nFOREIGN KEY ");
             // TODO foreign Key Name
-            this.appendFieldList(sb, foreignKey.getFields());
+            this.appendFieldList(sb, foreignKey.getFields(), quote);
             UniqueKey<? extends Record> key = foreignKey.getKey();
-            sb.append(" REFERENCES ").append(QUOTE).append(key.getTable().getName()).append(QUOTE);
+            sb.append(" REFERENCES ").append(quote).append(key.getTable().getName()).append(quote);
             sb.append("(");
             first = true;
             for (TableField field : key.getFields())
@@ -162,20 +181,30 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
                 {
                     sb.append(",");
                 }
-                sb.append(QUOTE).append(field.getName()).append(QUOTE);
+                sb.append(quote).append(field.getName()).append(quote);
                 first = false;
             }
             sb.append(") ON UPDATE CASCADE ON DELETE CASCADE");
         }
         sb.append(")\n");
-        sb.append("ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci\n"); // TODO configurable?
-        sb.append("COMMENT='").append(this.version.toString()).append("'");
-        CubeEngine.getCore().getLogFactory().getDatabaseLog().info(sb.toString());
-        connection.prepareStatement(sb.toString()).execute();
+        if (dialect == SQLDialect.MYSQL)
+        {
+            sb.append("ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci\n"); // TODO configurable?
+            sb.append("COMMENT='").append(this.version.toString()).append("'");
+        }
+        else
+        {
+            statements.add("COMMENT ON TABLE " + quote + this.getName() + quote + " IS '" + this.version.toString() + "'");
+        }
+        statements.add(0, sb.toString());
+        for (String statement : statements)
+        {
+            CubeEngine.getCore().getLogFactory().getDatabaseLog().info(statement);
+            connection.prepareStatement(statement).execute();
+        }
     }
-    private static final char QUOTE = '`';
 
-    private void appendFieldList(StringBuilder sb, List<TableField<R, ?>> fields)
+    private void appendFieldList(StringBuilder sb, List<TableField<R, ?>> fields, char quote)
     {
         sb.append("(");
         boolean first = true;
@@ -185,16 +214,17 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
             {
                 sb.append(",");
             }
-            sb.append(QUOTE).append(field.getName()).append(QUOTE);
+            sb.append(quote).append(field.getName()).append(quote);
             first = false;
         }
         sb.append(")");
     }
 
-    protected void appendColumnDefinition(StringBuilder sb, TableField<R, ?> field)
+    protected void appendColumnDefinition(StringBuilder sb, TableField<R, ?> field, SQLDialect dialect)
     {
-        sb.append(QUOTE).append(field.getName()).append(QUOTE).append(" ");
-        sb.append(field.getDataType().getCastTypeName());
+        char quote = dialect == SQLDialect.MYSQL ? '`' : '"';
+        sb.append(quote).append(field.getName()).append(quote).append(" ");
+        sb.append(getTypeName(field.getDataType(), dialect));
         if (field.getDataType().nullable())
         {
             sb.append(" DEFAULT NULL");
@@ -205,6 +235,37 @@ public abstract class Table<R extends Record> extends TableImpl<R> implements Ta
         }
     }
 
+    /**
+     * Returns the name of given type in the dialect.
+     * <p>The types are declared for MySQL. Other dialects have no unsigned types,
+     * so those get mapped to the next larger signed type.
+     *
+     * @param type    the type
+     * @param dialect the dialect
+     *
+     * @return the type name
+     */
+    protected static String getTypeName(DataType<?> type, SQLDialect dialect)
+    {
+        String name = type.getCastTypeName();
+        if (dialect == SQLDialect.MYSQL)
+        {
+            return name;
+        }
+        switch (name.toLowerCase())
+        {
+            case "integer unsigned":
+                return "bigint";
+            case "mediumint unsigned":
+            case "smallint unsigned":
+                return "integer";
+            case "longtext":
+                return "clob";
+            default:
+                return name;
+        }
+    }
+
     public void addIndex(TableField<R,?>... fields)
     {
         this.indices.add(fields);
@@ -0,0 +1,155 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import de.cubeisland.engine.logscribe.Log;
+import org.jooq.Field;
+import org.jooq.UpdatableRecord;
+import org.jooq.exception.DataAccessException;
+
+/**
+ * Collects updated records and writes them in JDBC batches.
+ * <p>A record queued multiple times before the next flush is written once with all its changed fields.
+ * The queue is flushed every interval or as soon as it reaches the batch size.
+ * <p>The changed fields are copied into a detached snapshot when the record is queued, on the thread owning
+ * the record. The flush only writes the snapshots, so the owner may keep modifying the record meanwhile.
+ */
+public class WriteBehindQueue
+{
+    private final Database database;
+    private final Log log;
+    private final ScheduledExecutorService executor;
+    private final int batchSize;
+
+    private final Object lock = new Object();
+    private Map<AsyncRecord<?>, UpdatableRecord<?>> pending = new IdentityHashMap<>();
+    private boolean flushScheduled = false;
+
+    public WriteBehindQueue(Database database, Log log, ScheduledExecutorService executor, long interval, int batchSize)
+    {
+        this.database = database;
+        this.log = log;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the changes of the record to be written with the next flush.
+     * <p>This must be called by the thread modifying the record. The record itself is not modified,
+     * so a pending insert or update of it still writes all its changed fields
+     *
+     * @param record the record
+     */
+    public void add(AsyncRecord<?> record)
+    {
+        synchronized (this.lock)
+        {
+            UpdatableRecord<?> snapshot = this.pending.get(record);
+            if (snapshot == null)
+            {
+                snapshot = this.newSnapshot(record);
+                this.pending.put(record, snapshot);
+            }
+            for (Field<?> field : record.fields())
+            {
+                if (record.changed(field))
+                {
+                    copy(record, snapshot, field);
+                }
+            }
+            if (this.pending.size() >= this.batchSize && !this.flushScheduled)
+            {
+                this.flushScheduled = true;
+                this.executor.execute(this::flush);
+            }
+        }
+    }
+
+    /**
+     * Writes all queued records on the current thread
+     */
+    public void flush()
+    {
+        List<UpdatableRecord<?>> records;
+        synchronized (this.lock)
+        {
+            this.flushScheduled = false;
+            if (this.pending.isEmpty())
+            {
+                return;
+            }
+            records = new ArrayList<>(this.pending.values());
+            this.pending = new IdentityHashMap<>();
+        }
+        try
+        {
+            this.database.getDSL().batchUpdate(records).execute();
+        }
+        catch (DataAccessException e)
+        {
+            this.log.warn(e, "Could not write a batch of {} records, falling back to single updates", records.size());
+            for (UpdatableRecord<?> record : records)
+            {
+                try
+                {
+                    record.update();
+                }
+                catch (DataAccessException ex)
+                {
+                    this.log.error(ex, "Could not update a record of {}", record.getTable().getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a detached record of the same table only holding the primary key of the record
+     */
+    @SuppressWarnings("unchecked")
+    private UpdatableRecord<?> newSnapshot(AsyncRecord<?> record)
+    {
+        UpdatableRecord<?> snapshot = (UpdatableRecord<?>)this.database.getDSL().newRecord((org.jooq.Table)record.getTable());
+        for (Field<?> field : record.getTable().getPrimaryKey().getFields())
+        {
+            copy(record, snapshot, field);
+            snapshot.changed(field, false);
+        }
+        return snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void copy(AsyncRecord<?> from, UpdatableRecord<?> to, Field<?> field)
+    {
+        to.setValue((Field<Object>)field, from.getValue(field));
+    }
+
+    public int size()
+    {
+        synchronized (this.lock)
+        {
+            return this.pending.size();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database.h2;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.storage.database.AbstractDatabase;
+import de.cubeisland.engine.core.storage.database.DatabaseConfiguration;
+import de.cubeisland.engine.core.storage.database.DatabaseConnectionProvider;
+import de.cubeisland.engine.core.storage.database.TableCreator;
+import de.cubeisland.engine.core.storage.database.TableUpdateCreator;
+import de.cubeisland.engine.core.storage.database.mysql.JooqLogger;
+import de.cubeisland.engine.core.util.Version;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+
+/**
+ * A Database stored in an embedded H2 database file.
+ * <p>The table version is kept in the table remarks like the table comment of MySQL
+ */
+public class H2Database extends AbstractDatabase
+{
+    private final H2DatabaseConfiguration config;
+    private final HikariDataSource dataSource;
+    private final DSLContext dsl;
+
+    public H2Database(Core core, H2DatabaseConfiguration config, Path file)
+    {
+        super(core, config);
+        this.config = config;
+
+        HikariConfig dsConf = new HikariConfig();
+        dsConf.setPoolName("CubeEngine");
+        dsConf.setDataSourceClassName("org.h2.jdbcx.JdbcDataSource");
+        dsConf.addDataSourceProperty("URL", "jdbc:h2:" + file.toAbsolutePath() +
+            ";MODE=MySQL" +
+            ";DB_CLOSE_ON_EXIT=FALSE" +
+            ";WRITE_DELAY=" + config.writeDelay +
+            ";CACHE_SIZE=" + config.cacheSize +
+            ";LOCK_TIMEOUT=" + config.lockTimeout);
+        dsConf.addDataSourceProperty("user", "sa");
+        dsConf.addDataSourceProperty("password", "");
+        dsConf.setMinimumIdle(1);
+        dsConf.setMaximumPoolSize(config.connectionPoolSize);
+        dsConf.setThreadFactory(threadFactory);
+        this.dataSource = new HikariDataSource(dsConf);
+
+        Settings settings = new Settings().withExecuteLogging(false);
+        this.dsl = DSL.using(new DefaultConfiguration().set(SQLDialect.H2)
+                                                       .set(new DatabaseConnectionProvider(this))
+                                                       .set(new JooqLogger(), this.metrics)
+                                                       .set(settings));
+    }
+
+    public static H2Database loadFromConfig(Core core, Path file)
+    {
+        H2DatabaseConfiguration config = core.getConfigFactory().load(H2DatabaseConfiguration.class, file.toFile());
+        try
+        {
+            return new H2Database(core, config, file.resolveSibling(config.file));
+        }
+        catch (RuntimeException ex)
+        {
+            core.getLog().error(ex, "Could not open the database!");
+        }
+        return null;
+    }
+
+    @Override
+    public void registerTable(TableCreator<?> table)
+    {
+        try (Connection connection = this.getConnection())
+        {
+            Version dbVersion = this.getTableVersion(connection, table.getName());
+            if (dbVersion == null)
+            {
+                table.createTable(connection);
+            }
+            else if (dbVersion.isNewerThan(table.getTableVersion()))
+            {
+                this.core.getLog().info("table-version is newer than expected! {}: {} expected version: {}",
+                                        table.getName(), dbVersion.toString(), table.getTableVersion().toString());
+            }
+            else if (dbVersion.isOlderThan(table.getTableVersion()) && table instanceof TableUpdateCreator)
+            {
+                Version version = table.getTableVersion();
+                this.core.getLog().info("table-version is too old! Updating {} from {} to {}", table.getName(), dbVersion.toString(), version.toString());
+                ((TableUpdateCreator)table).update(connection, dbVersion);
+                connection.prepareStatement("COMMENT ON TABLE \"" + table.getName() + "\" IS '" + version.toString() + "'").execute();
+                this.core.getLog().info("{} got updated to {}", table.getName(), version.toString());
+            }
+        }
+        catch (SQLException ex)
+        {
+            throw new IllegalStateException("Cannot create table " + table.getName(), ex);
+        }
+        this.core.getLog().debug("Database-Table {0} registered!", table.getName());
+    }
+
+    private Version getTableVersion(Connection connection, String name) throws SQLException
+    {
+        try (PreparedStatement s = connection.prepareStatement("SELECT REMARKS FROM INFORMATION_SCHEMA.TABLES " +
+                                                                   "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = ?"))
+        {
+            s.setString(1, name);
+            ResultSet result = s.executeQuery();
+            if (result.next())
+            {
+                return Version.fromString(result.getString("REMARKS"));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        final long start = System.nanoTime();
+        Connection connection = this.dataSource.getConnection();
+        this.metrics.recordPoolWait(System.nanoTime() - start);
+        return connection;
+    }
+
+    @Override
+    public DSLContext getDSL()
+    {
+        return this.dsl;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        super.shutdown();
+        this.dataSource.shutdown();
+    }
+
+    @Override
+    public String getName()
+    {
+        return "H2";
+    }
+
+    @Override
+    public DatabaseConfiguration getDatabaseConfig()
+    {
+        return this.config;
+    }
+
+    @Override
+    public String getTablePrefix()
+    {
+        return this.config.tablePrefix;
+    }
+}
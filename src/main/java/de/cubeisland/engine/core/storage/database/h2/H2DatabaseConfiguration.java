@@ -0,0 +1,40 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database.h2;
+
+import de.cubeisland.engine.core.storage.database.DatabaseConfiguration;
+import de.cubeisland.engine.reflect.annotations.Comment;
+
+/**
+ * H2DatabaseConfiguration containing all needed information to open an embedded H2 database
+ */
+public class H2DatabaseConfiguration extends DatabaseConfiguration
+{
+    @Comment("The database file relative to the CubeEngine folder. H2 appends .mv.db to the name")
+    public String file = "database";
+
+    @Comment({"How many milliseconds committed changes may be kept in memory before they are written to the file",
+              "Higher values write more changes at once, but the last changes may be lost when the server crashes"})
+    public int writeDelay = 500;
+
+    @Comment("The size of the page cache in KB")
+    public int cacheSize = 16384;
+
+    @Comment("How many milliseconds a query waits for a locked row before it fails")
+    public int lockTimeout = 10000;
+}
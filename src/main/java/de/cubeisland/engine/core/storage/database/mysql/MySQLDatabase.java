@@ -17,19 +17,20 @@
  */
 package de.cubeisland.engine.core.storage.database.mysql;
 
-import java.lang.reflect.Constructor;
 import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.storage.database.AbstractDatabase;
+import de.cubeisland.engine.core.storage.database.DatabaseConnectionProvider;
 import de.cubeisland.engine.core.storage.database.DatabaseConfiguration;
-import de.cubeisland.engine.core.storage.database.Table;
 import de.cubeisland.engine.core.storage.database.TableCreator;
 import de.cubeisland.engine.core.storage.database.TableUpdateCreator;
 import de.cubeisland.engine.core.util.Version;
@@ -40,7 +41,6 @@ import org.jooq.conf.MappedTable;
 import org.jooq.conf.RenderMapping;
 import org.jooq.conf.Settings;
 import org.jooq.impl.DSL;
-import org.jooq.impl.DataSourceConnectionProvider;
 import org.jooq.impl.DefaultConfiguration;
 
 public class MySQLDatabase extends AbstractDatabase
@@ -48,12 +48,13 @@ public class MySQLDatabase extends AbstractDatabase
     private final MySQLDatabaseConfiguration config;
     private final HikariDataSource dataSource;
 
-    private final Settings settings;
-    private final MappedSchema mappedSchema;
+    private final List<MappedTable> mappedTables = new ArrayList<>();
+    private final JooqLogger jooqLogger = new JooqLogger();
+    private volatile DSLContext dsl;
 
     public MySQLDatabase(Core core, MySQLDatabaseConfiguration config) throws SQLException
     {
-        super(core);
+        super(core, config);
         this.config = config;
 
         HikariConfig dsConf = new HikariDataSource();
@@ -71,8 +72,8 @@ public class MySQLDatabase extends AbstractDatabase
         dsConf.addDataSourceProperty("useUnicode", "yes");
         dsConf.addDataSourceProperty("characterEncoding", "UTF-8");
         dsConf.addDataSourceProperty("connectionCollation", "utf8_general_ci");
-        dsConf.setMinimumIdle(5);
-        dsConf.setMaximumPoolSize(20);
+        dsConf.setMinimumIdle(Math.min(5, config.connectionPoolSize));
+        dsConf.setMaximumPoolSize(config.connectionPoolSize);
         dsConf.setThreadFactory(threadFactory);
         dataSource = new HikariDataSource(dsConf);
 
@@ -95,10 +96,7 @@ public class MySQLDatabase extends AbstractDatabase
             }
         }
 
-        this.mappedSchema = new MappedSchema().withInput(config.database);
-        this.settings = new Settings();
-        this.settings.withRenderMapping(new RenderMapping().withSchemata(this.mappedSchema));
-        this.settings.setExecuteLogging(false);
+        this.dsl = this.createDSL();
     }
 
     public static MySQLDatabase loadFromConfig(Core core, Path file)
@@ -165,16 +163,35 @@ public class MySQLDatabase extends AbstractDatabase
         this.core.getLog().debug("Database-Table {0} registered!", name);
     }
 
-    private void registerTableMapping(String name)
+    private synchronized void registerTableMapping(String name)
     {
-        for (final MappedTable mappedTable : this.mappedSchema.getTables())
+        for (final MappedTable mappedTable : this.mappedTables)
         {
             if (name.equals(mappedTable.getInput()))
             {
                 return;
             }
         }
-        this.mappedSchema.withTables(new MappedTable().withInput(name).withOutput(getTablePrefix() + name));
+        this.mappedTables.add(new MappedTable().withInput(name).withOutput(getTablePrefix() + name));
+        this.dsl = this.createDSL();
+    }
+
+    /**
+     * Creates a new DSLContext with a snapshot of the current table mappings.
+     * <p>The settings are never modified after creation so the context can be shared between threads.
+     *
+     * @return the DSLContext
+     */
+    private DSLContext createDSL()
+    {
+        MappedSchema mappedSchema = new MappedSchema().withInput(this.config.database)
+                                                      .withTables(new ArrayList<>(this.mappedTables));
+        Settings settings = new Settings().withRenderMapping(new RenderMapping().withSchemata(mappedSchema))
+                                          .withExecuteLogging(false);
+        return DSL.using(new DefaultConfiguration().set(SQLDialect.MYSQL)
+                                                   .set(new DatabaseConnectionProvider(this))
+                                                   .set(this.jooqLogger, this.metrics)
+                                                   .set(settings));
     }
 
     protected void initializeTable(TableCreator<?> table)
@@ -195,33 +212,19 @@ public class MySQLDatabase extends AbstractDatabase
         }
     }
 
-    @Override
-    public void registerTable(Class<? extends Table<?>> clazz)
-    {
-        try
-        {
-            Constructor<? extends Table<?>> constructor = clazz.getDeclaredConstructor(String.class);
-            Table<?> table = constructor.newInstance(this.config.tablePrefix);
-            this.registerTable(table);
-        }
-        catch (ReflectiveOperationException e)
-        {
-            throw new IllegalStateException("Unable to instantiate Table! " + clazz.getName(), e);
-        }
-    }
-
     @Override
     public Connection getConnection() throws SQLException
     {
-        return this.dataSource.getConnection();
+        final long start = System.nanoTime();
+        Connection connection = this.dataSource.getConnection();
+        this.metrics.recordPoolWait(System.nanoTime() - start);
+        return connection;
     }
 
-    private final JooqLogger jooqLogger = new JooqLogger();
     @Override
     public DSLContext getDSL()
     {
-        return DSL.using(new DefaultConfiguration().set(SQLDialect.MYSQL).set(new DataSourceConnectionProvider(
-            this.dataSource)).set(jooqLogger).set(settings));
+        return this.dsl;
     }
 
     @Override
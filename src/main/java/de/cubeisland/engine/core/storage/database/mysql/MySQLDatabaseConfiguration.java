@@ -39,7 +39,4 @@ public class MySQLDatabaseConfiguration extends DatabaseConfiguration
 
     @Comment("The name of the database")
     public String database = "minecraft";
-
-    @Comment("The table prefix to use for all CubeEngine tables")
-    public String tablePrefix = "cube_";
 }
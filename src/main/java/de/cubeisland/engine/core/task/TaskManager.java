@@ -75,6 +75,29 @@ public interface TaskManager extends Cleanable
      */
     int runTimer(Module module, Runnable runnable, long delay, long interval);
 
+    /**
+     * Schedules a delayed task for a module with the given delay and priority on the main server thread
+     *
+     * @param module   the module
+     * @param runnable the task
+     * @param delay    the delay in ticks
+     * @param priority the priority once the task is due
+     * @return the ID of the task
+     */
+    int runTaskDelayed(Module module, Runnable runnable, long delay, TaskPriority priority);
+
+    /**
+     * Schedules a repeating task for a module with the given delay, interval and priority
+     *
+     * @param module   the module
+     * @param runnable the task
+     * @param delay    the delay in ticks
+     * @param interval the interval in ticks
+     * @param priority the priority once the task is due
+     * @return the ID of the task
+     */
+    int runTimer(Module module, Runnable runnable, long delay, long interval, TaskPriority priority);
+
     /**
      * Schedules a asynchronous delayed task for a module
      *
@@ -0,0 +1,37 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.task;
+
+/**
+ * The priority of a task on the main thread
+ */
+public enum TaskPriority
+{
+    /**
+     * Runs in the tick it is due, even if the tick budget is used up
+     */
+    HIGH,
+    /**
+     * Runs as soon as the tick budget allows
+     */
+    NORMAL,
+    /**
+     * Runs after all due tasks of higher priority
+     */
+    LOW
+}
@@ -0,0 +1,291 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.task;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.util.LatencyHistogram;
+
+import static de.cubeisland.engine.core.task.TaskPriority.HIGH;
+
+/**
+ * Runs the module tasks on the main thread within a time budget per tick.
+ * <p>Due tasks run right away while the budget of the current server tick lasts. Once it is used up
+ * they are kept in a backlog which is drained by priority and age when the scheduler runs in the next ticks.
+ * {@link TaskPriority#HIGH} tasks are never deferred and tasks waiting longer than the maximum deferral
+ * run regardless of the budget.
+ * <p>All methods except the statistics must be called on the main thread.
+ */
+public class TickScheduler implements Runnable
+{
+    private static final long WARN_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+    private final Core core;
+    private final long budget;
+    private final long maxDeferral;
+    private final IntSupplier ticks;
+    private final PriorityQueue<Job> backlog = new PriorityQueue<>();
+    // the deferred jobs in the order they were deferred, may contain jobs already executed
+    private final Queue<Job> arrivals = new ArrayDeque<>();
+    private final Map<String, Usage> usages = new ConcurrentHashMap<>();
+    private volatile int backlogSize = 0;
+    private long sequence = 0;
+    private int tick;
+    private long used = 0;
+    private long lastWarning = System.nanoTime() - WARN_INTERVAL;
+
+    /**
+     * @param core        the core
+     * @param budget      the time in milliseconds module tasks may use per tick
+     * @param maxDeferral the time in milliseconds after which a deferred task runs regardless of the budget
+     * @param ticks       supplies the current server tick
+     */
+    public TickScheduler(Core core, long budget, long maxDeferral, IntSupplier ticks)
+    {
+        this.core = core;
+        this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+        this.maxDeferral = TimeUnit.MILLISECONDS.toNanos(maxDeferral);
+        this.ticks = ticks;
+        this.tick = ticks.getAsInt();
+    }
+
+    /**
+     * Drains the backlog within the budget of the current tick.
+     * <p>Must be called once every tick
+     */
+    @Override
+    public void run()
+    {
+        this.checkTick();
+        this.runOverdue();
+        Job job;
+        while ((job = this.backlog.peek()) != null && (job.priority == HIGH || this.used < this.budget))
+        {
+            this.backlog.poll();
+            this.execute(job);
+        }
+        this.backlogSize = this.backlog.size();
+        for (Job deferred : this.backlog)
+        {
+            deferred.usage.deferred.increment();
+        }
+    }
+
+    /**
+     * Runs the task now if the budget of this tick allows it, otherwise it is deferred
+     *
+     * @param module   the module owning the task
+     * @param priority the priority
+     * @param task     the task
+     */
+    public void submit(Module module, TaskPriority priority, Runnable task)
+    {
+        this.checkTick();
+        Job job = new Job(this.getUsage(module.getId()), priority, this.sequence++, task);
+        if (priority == HIGH || (this.backlog.isEmpty() && this.used < this.budget))
+        {
+            this.execute(job);
+        }
+        else
+        {
+            this.backlog.add(job);
+            this.arrivals.add(job);
+            this.backlogSize = this.backlog.size();
+        }
+    }
+
+    /**
+     * Runs all deferred tasks regardless of the budget, e.g. before shutting down
+     */
+    public void drain()
+    {
+        Job job;
+        while ((job = this.backlog.poll()) != null)
+        {
+            this.execute(job);
+        }
+        this.arrivals.clear();
+        this.backlogSize = 0;
+    }
+
+    /**
+     * Starts a new budget once the server advanced to the next tick
+     */
+    private void checkTick()
+    {
+        int current = this.ticks.getAsInt();
+        if (current != this.tick)
+        {
+            this.tick = current;
+            this.used = 0;
+        }
+    }
+
+    /**
+     * Runs the deferred tasks waiting longer than the maximum deferral and warns about them
+     */
+    private void runOverdue()
+    {
+        final long now = System.nanoTime();
+        int overdue = 0;
+        Job job;
+        while ((job = this.arrivals.peek()) != null && (job.done || now - job.deferredAt >= this.maxDeferral))
+        {
+            this.arrivals.poll();
+            if (!job.done)
+            {
+                this.backlog.remove(job);
+                this.execute(job);
+                overdue++;
+            }
+        }
+        if (overdue != 0 && now - this.lastWarning >= WARN_INTERVAL)
+        {
+            this.lastWarning = now;
+            this.core.getLog().warn("{} tasks were deferred for more than {}ms, the tick budget of {}ms is too small!",
+                                    overdue, TimeUnit.NANOSECONDS.toMillis(this.maxDeferral),
+                                    TimeUnit.NANOSECONDS.toMillis(this.budget));
+        }
+    }
+
+    private void execute(Job job)
+    {
+        job.done = true;
+        final long start = System.nanoTime();
+        try
+        {
+            job.task.run();
+        }
+        catch (Exception e)
+        {
+            this.core.getLog().error(e, "A task of {} threw an exception!", job.usage.module);
+        }
+        finally
+        {
+            long time = System.nanoTime() - start;
+            this.used += time;
+            job.usage.time.record(time);
+        }
+    }
+
+    private Usage getUsage(String module)
+    {
+        Usage usage = this.usages.get(module);
+        if (usage == null)
+        {
+            usage = new Usage(module);
+            Usage old = this.usages.putIfAbsent(module, usage);
+            if (old != null)
+            {
+                usage = old;
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the time used by the tasks of each module
+     *
+     * @return an unmodifiable map of module ids to their usage
+     */
+    public Map<String, Usage> getUsages()
+    {
+        return Collections.unmodifiableMap(this.usages);
+    }
+
+    /**
+     * Returns the amount of tasks waiting for a tick with enough budget left
+     *
+     * @return the size of the backlog
+     */
+    public int getBacklogSize()
+    {
+        return this.backlogSize;
+    }
+
+    public long getBudget(TimeUnit unit)
+    {
+        return unit.convert(this.budget, TimeUnit.NANOSECONDS);
+    }
+
+    public static final class Usage
+    {
+        private final String module;
+        private final LatencyHistogram time = new LatencyHistogram();
+        private final LongAdder deferred = new LongAdder();
+
+        private Usage(String module)
+        {
+            this.module = module;
+        }
+
+        /**
+         * Returns the time taken by the tasks of the module
+         *
+         * @return the histogram of task times
+         */
+        public LatencyHistogram getTime()
+        {
+            return this.time;
+        }
+
+        /**
+         * Returns how often a task of the module had to wait for the next tick because the budget was used up
+         *
+         * @return the amount of deferrals
+         */
+        public long getDeferred()
+        {
+            return this.deferred.sum();
+        }
+    }
+
+    private static final class Job implements Comparable<Job>
+    {
+        private final Usage usage;
+        private final TaskPriority priority;
+        private final long sequence;
+        private final Runnable task;
+        private final long deferredAt = System.nanoTime();
+        private boolean done = false;
+
+        private Job(Usage usage, TaskPriority priority, long sequence, Runnable task)
+        {
+            this.usage = usage;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public int compareTo(Job o)
+        {
+            int cmp = this.priority.compareTo(o.priority);
+            return cmp != 0 ? cmp : Long.compare(this.sequence, o.sequence);
+        }
+    }
+}
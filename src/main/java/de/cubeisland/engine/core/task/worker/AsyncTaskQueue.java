@@ -17,24 +17,36 @@
  */
 package de.cubeisland.engine.core.task.worker;
 
+import java.util.ArrayDeque;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
 
 /**
- * This TaskQueue will execute all tasks in an async thread.
+ * This TaskQueue will execute all tasks in async threads.
+ * <p>Up to parallelism workers take tasks from the queue at once. Tasks added with a key are
+ * executed one after another in the order they were added, while tasks of other keys continue
+ * on the other workers. When capacity tasks are waiting, new tasks are handled by the {@link RejectionPolicy}.
  */
 public class AsyncTaskQueue implements TaskQueue
 {
-    private final Worker workerTask = new Worker();
     private final ExecutorService executorService;
     private final Queue<Runnable> taskQueue;
-    private final AtomicReference<Future<?>> executorFuture;
-    private boolean isShutdown;
+    private final Map<Object, KeyQueue> keyQueues = new ConcurrentHashMap<>();
+    private final Set<Thread> workerThreads = ConcurrentHashMap.newKeySet();
+    private final int parallelism;
+    private final int capacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger workers = new AtomicInteger();
+    private volatile boolean isShutdown;
+    private volatile boolean isStopped;
 
     public AsyncTaskQueue(ExecutorService executorService)
     {
@@ -43,10 +55,37 @@ public class AsyncTaskQueue implements TaskQueue
 
     public AsyncTaskQueue(ExecutorService executorService, Queue<Runnable> taskQueue)
     {
+        this(executorService, taskQueue, 1, Integer.MAX_VALUE, RejectionPolicy.ABORT);
+    }
+
+    public AsyncTaskQueue(ExecutorService executorService, int parallelism, int capacity, RejectionPolicy rejectionPolicy)
+    {
+        this(executorService, new ConcurrentLinkedQueue<Runnable>(), parallelism, capacity, rejectionPolicy);
+    }
+
+    /**
+     * @param executorService the executor to run the workers on
+     * @param taskQueue       the queue to hold the tasks, it must be thread-safe
+     * @param parallelism     the maximum amount of tasks executed at once
+     * @param capacity        the maximum amount of tasks waiting
+     * @param rejectionPolicy what to do with tasks added while the queue is full
+     */
+    public AsyncTaskQueue(ExecutorService executorService, Queue<Runnable> taskQueue, int parallelism, int capacity, RejectionPolicy rejectionPolicy)
+    {
+        expectNotNull(executorService, "The executor must not be null!");
+        expectNotNull(taskQueue, "The queue must not be null!");
+        expectNotNull(rejectionPolicy, "The rejection policy must not be null!");
+        if (parallelism < 1 || capacity < 1)
+        {
+            throw new IllegalArgumentException("The parallelism and the capacity must be at least 1!");
+        }
         this.executorService = executorService;
         this.taskQueue = taskQueue;
-        this.executorFuture = new AtomicReference<>();
+        this.parallelism = parallelism;
+        this.capacity = capacity;
+        this.rejectionPolicy = rejectionPolicy;
         this.isShutdown = false;
+        this.isStopped = false;
     }
 
     @Override
@@ -58,10 +97,68 @@ public class AsyncTaskQueue implements TaskQueue
         }
         expectNotNull(runnable, "The task must not be null!");
 
-        this.taskQueue.offer(runnable);
+        if (this.reserve())
+        {
+            this.taskQueue.offer(runnable);
+            this.start();
+        }
+        else
+        {
+            this.rejectionPolicy.reject(runnable);
+        }
+    }
+
+    @Override
+    public void addTask(Object key, Runnable runnable)
+    {
+        if (this.isShutdown)
+        {
+            return;
+        }
+        expectNotNull(key, "The key must not be null!");
+        expectNotNull(runnable, "The task must not be null!");
+
+        if (!this.reserve())
+        {
+            this.rejectionPolicy.reject(runnable);
+            return;
+        }
+        while (true)
+        {
+            KeyQueue keyQueue = this.keyQueues.computeIfAbsent(key, KeyQueue::new);
+            synchronized (keyQueue)
+            {
+                if (keyQueue.removed)
+                {
+                    continue; // the queue just finished, a new one is needed
+                }
+                keyQueue.tasks.add(runnable);
+                if (!keyQueue.scheduled)
+                {
+                    keyQueue.scheduled = true;
+                    this.taskQueue.offer(keyQueue);
+                }
+                break;
+            }
+        }
         this.start();
     }
 
+    private boolean reserve()
+    {
+        int pending;
+        do
+        {
+            pending = this.pending.get();
+            if (pending >= this.capacity)
+            {
+                return false;
+            }
+        }
+        while (!this.pending.compareAndSet(pending, pending + 1));
+        return true;
+    }
+
     @Override
     public void start()
     {
@@ -69,9 +166,24 @@ public class AsyncTaskQueue implements TaskQueue
         {
             throw new IllegalArgumentException("This task queue has been shut down!");
         }
-        if (!this.isRunning())
+        this.isStopped = false;
+        this.startWorker();
+    }
+
+    private void startWorker()
+    {
+        while (!this.isStopped && !this.taskQueue.isEmpty())
         {
-            this.executorFuture.set(this.executorService.submit(this.workerTask));
+            int workers = this.workers.get();
+            if (workers >= this.parallelism)
+            {
+                return;
+            }
+            if (this.workers.compareAndSet(workers, workers + 1))
+            {
+                this.executorService.execute(new Worker());
+                return;
+            }
         }
     }
 
@@ -79,7 +191,28 @@ public class AsyncTaskQueue implements TaskQueue
     public void shutdown()
     {
         this.isShutdown = true;
-        this.taskQueue.clear();
+        // only the tasks removed here are subtracted, running workers account for the tasks they took themselves
+        int drained = 0;
+        Runnable task;
+        while ((task = this.taskQueue.poll()) != null)
+        {
+            if (!(task instanceof KeyQueue))
+            {
+                drained++;
+            }
+        }
+        for (KeyQueue keyQueue : this.keyQueues.values())
+        {
+            synchronized (keyQueue)
+            {
+                drained += keyQueue.tasks.size();
+                keyQueue.tasks.clear();
+                keyQueue.scheduled = false;
+                keyQueue.removed = true;
+            }
+        }
+        this.keyQueues.clear();
+        this.pending.addAndGet(-drained);
         this.stop();
     }
 
@@ -98,38 +231,107 @@ public class AsyncTaskQueue implements TaskQueue
     @Override
     public void stop(boolean interupt)
     {
-        Future<?> future = this.executorFuture.get();
-        if (future != null)
+        this.isStopped = true;
+        if (interupt)
         {
-            future.cancel(interupt);
-            this.executorFuture.set(null);
+            for (Thread thread : this.workerThreads)
+            {
+                thread.interrupt();
+            }
         }
     }
 
     @Override
     public boolean isRunning()
     {
-        Future<?> future = this.executorFuture.get();
-        return future != null && !future.isDone();
+        return this.workers.get() > 0;
     }
 
     @Override
     public int size()
     {
-        return this.taskQueue.size();
+        return this.pending.get();
     }
 
     private class Worker implements Runnable
     {
+        @Override
+        public void run()
+        {
+            workerThreads.add(Thread.currentThread());
+            try
+            {
+                Runnable task;
+                while (!isStopped && (task = taskQueue.poll()) != null)
+                {
+                    if (!(task instanceof KeyQueue))
+                    {
+                        pending.decrementAndGet();
+                    }
+                    task.run();
+                }
+            }
+            finally
+            {
+                workerThreads.remove(Thread.currentThread());
+                workers.decrementAndGet();
+                startWorker(); // tasks added while this worker was finishing would be stranded otherwise
+            }
+        }
+    }
+
+    /**
+     * The tasks of one key. It is in the task queue at most once, so only one worker runs its tasks at a time.
+     */
+    private final class KeyQueue implements Runnable
+    {
+        private final Object key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled = false;
+        private boolean removed = false;
+
+        private KeyQueue(Object key)
+        {
+            this.key = key;
+        }
+
         @Override
         public void run()
         {
             Runnable task;
-            while ((task = AsyncTaskQueue.this.taskQueue.poll()) != null)
+            synchronized (this)
+            {
+                task = this.tasks.poll();
+                if (task == null)
+                {
+                    // drained by shutdown after this queue was taken from the task queue
+                    this.scheduled = false;
+                    this.removed = true;
+                    keyQueues.remove(this.key, this);
+                    return;
+                }
+            }
+            pending.decrementAndGet();
+            try
             {
                 task.run();
             }
-            AsyncTaskQueue.this.executorFuture.set(null);
+            finally
+            {
+                synchronized (this)
+                {
+                    if (this.tasks.isEmpty())
+                    {
+                        this.scheduled = false;
+                        this.removed = true;
+                        keyQueues.remove(this.key, this);
+                    }
+                    else
+                    {
+                        taskQueue.offer(this);
+                    }
+                }
+            }
         }
     }
 }
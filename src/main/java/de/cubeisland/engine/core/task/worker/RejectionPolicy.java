@@ -0,0 +1,61 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.task.worker;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * What a {@link TaskQueue} does with a task when it is full
+ */
+public enum RejectionPolicy
+{
+    /**
+     * Throws a {@link RejectedExecutionException}
+     */
+    ABORT
+    {
+        @Override
+        void reject(Runnable task)
+        {
+            throw new RejectedExecutionException("The task queue is full!");
+        }
+    },
+    /**
+     * Silently drops the task
+     */
+    DISCARD
+    {
+        @Override
+        void reject(Runnable task)
+        {}
+    },
+    /**
+     * Runs the task in the thread adding it, this slows down producers until the queue has room again.
+     * <p>A task with a key may then run before or alongside earlier tasks with the same key
+     */
+    CALLER_RUNS
+    {
+        @Override
+        void reject(Runnable task)
+        {
+            task.run();
+        }
+    };
+
+    abstract void reject(Runnable task);
+}
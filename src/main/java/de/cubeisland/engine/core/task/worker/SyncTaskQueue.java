@@ -26,7 +26,8 @@ import org.bukkit.scheduler.BukkitScheduler;
 import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
 
 /**
- * This TaskQueue will execute one task every serverTick.
+ * This TaskQueue will execute up to a given amount of tasks every server tick.
+ * <p>All tasks run on the main thread in the order they were added, so keys need no special treatment.
  */
 public class SyncTaskQueue implements TaskQueue
 {
@@ -34,8 +35,11 @@ public class SyncTaskQueue implements TaskQueue
     private final BukkitCore corePlugin;
     private final BukkitScheduler scheduler;
     private final Queue<Runnable> taskQueue;
+    private final int tasksPerTick;
+    private final int capacity;
+    private final RejectionPolicy rejectionPolicy;
     private int taskID;
-    private boolean isShutdown;
+    private volatile boolean isShutdown;
 
     public SyncTaskQueue(Core core)
     {
@@ -44,39 +48,82 @@ public class SyncTaskQueue implements TaskQueue
 
     public SyncTaskQueue(Core core, Queue<Runnable> taskQueue)
     {
+        this(core, taskQueue, 1, Integer.MAX_VALUE, RejectionPolicy.ABORT);
+    }
+
+    public SyncTaskQueue(Core core, int tasksPerTick, int capacity, RejectionPolicy rejectionPolicy)
+    {
+        this(core, new LinkedList<Runnable>(), tasksPerTick, capacity, rejectionPolicy);
+    }
+
+    /**
+     * @param core            the core
+     * @param taskQueue       the queue to hold the tasks
+     * @param tasksPerTick    the maximum amount of tasks executed per tick
+     * @param capacity        the maximum amount of tasks waiting
+     * @param rejectionPolicy what to do with tasks added while the queue is full
+     */
+    public SyncTaskQueue(Core core, Queue<Runnable> taskQueue, int tasksPerTick, int capacity, RejectionPolicy rejectionPolicy)
+    {
+        expectNotNull(taskQueue, "The queue must not be null!");
+        expectNotNull(rejectionPolicy, "The rejection policy must not be null!");
+        if (tasksPerTick < 1 || capacity < 1)
+        {
+            throw new IllegalArgumentException("The tasks per tick and the capacity must be at least 1!");
+        }
         this.corePlugin = (BukkitCore)core;
         this.scheduler = this.corePlugin.getServer().getScheduler();
         this.taskQueue = taskQueue;
+        this.tasksPerTick = tasksPerTick;
+        this.capacity = capacity;
+        this.rejectionPolicy = rejectionPolicy;
         this.taskID = -1;
         this.isShutdown = false;
     }
 
-    public synchronized void run()
+    /**
+     * Executes the tasks of one tick
+     */
+    public void run()
     {
-        if (this.taskQueue.isEmpty())
-        {
-            this.scheduler.cancelTask(this.taskID);
-            return;
-        }
-        this.taskQueue.poll().run();
+        this.workerTask.run();
     }
 
     @Override
-    public synchronized void addTask(Runnable runnable)
+    public void addTask(Runnable runnable)
     {
-        if (!this.isShutdown)
+        if (this.isShutdown)
         {
             return;
         }
         expectNotNull(runnable, "The runnable must not be null!");
 
-        this.taskQueue.offer(runnable);
-        this.start();
+        synchronized (this)
+        {
+            if (this.taskQueue.size() < this.capacity)
+            {
+                this.taskQueue.offer(runnable);
+                this.start();
+                return;
+            }
+        }
+        this.rejectionPolicy.reject(runnable);
+    }
+
+    @Override
+    public void addTask(Object key, Runnable runnable)
+    {
+        expectNotNull(key, "The key must not be null!");
+        this.addTask(runnable);
     }
 
     @Override
     public synchronized void start()
     {
+        if (this.isShutdown)
+        {
+            throw new IllegalArgumentException("This task queue has been shut down!");
+        }
         if (!this.isRunning())
         {
             this.taskID = this.scheduler.scheduleSyncRepeatingTask(this.corePlugin, this.workerTask, 0, 1);
@@ -87,7 +134,10 @@ public class SyncTaskQueue implements TaskQueue
     public void shutdown()
     {
         this.isShutdown = true;
-        this.taskQueue.clear();
+        synchronized (this)
+        {
+            this.taskQueue.clear();
+        }
         this.stop();
     }
 
@@ -125,15 +175,25 @@ public class SyncTaskQueue implements TaskQueue
         return this.taskQueue.size();
     }
 
+    private synchronized Runnable poll()
+    {
+        Runnable task = this.taskQueue.poll();
+        if (task == null)
+        {
+            this.stop();
+        }
+        return task;
+    }
+
     private class Worker implements Runnable
     {
         @Override
         public void run()
         {
-            taskQueue.poll().run();
-            if (taskQueue.isEmpty())
+            Runnable task;
+            for (int i = 0; i < tasksPerTick && (task = poll()) != null; i++)
             {
-                stop();
+                task.run();
             }
         }
     }
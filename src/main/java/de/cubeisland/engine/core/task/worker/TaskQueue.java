@@ -32,6 +32,15 @@ public interface TaskQueue
      */
     void addTask(@NotNull Runnable runnable);
 
+    /**
+     * Adds the runnable to this task queue.
+     * Tasks with equal keys are executed one after another in the order they were added.
+     *
+     * @param key      the key, for example the UUID of a user
+     * @param runnable the runnable to enqueue
+     */
+    void addTask(@NotNull Object key, @NotNull Runnable runnable);
+
     /**
      * Starts to execute the queued tasks.
      */
@@ -23,36 +23,55 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.sql.Timestamp;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.CoreConfiguration.SecuritySection;
+import de.cubeisland.engine.core.CoreConfiguration.UsermanagerSection;
+import de.cubeisland.engine.core.CubeEngine;
+import de.cubeisland.engine.core.attachment.AttachmentType;
 import de.cubeisland.engine.core.command.CommandSender;
 import de.cubeisland.engine.core.command.sender.ConsoleCommandSender;
 import de.cubeisland.engine.core.filesystem.FileUtil;
+import de.cubeisland.engine.core.i18n.I18n;
 import de.cubeisland.engine.core.module.Module;
 import de.cubeisland.engine.core.permission.Permission;
 import de.cubeisland.engine.core.storage.database.Database;
+import de.cubeisland.engine.core.task.TaskPriority;
 import de.cubeisland.engine.core.util.ChatFormat;
+import de.cubeisland.engine.core.util.Profiler;
 import de.cubeisland.engine.core.util.StringUtils;
 import de.cubeisland.engine.core.util.Triplet;
 import de.cubeisland.engine.core.util.formatter.MessageType;
-import de.cubeisland.engine.core.util.matcher.Match;
 import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
 import org.jooq.Record1;
+import org.jooq.ResultQuery;
+import org.jooq.Row2;
+import org.jooq.impl.DSL;
 import org.jooq.types.UInteger;
 
+import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
 import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
 import static de.cubeisland.engine.core.util.ChatFormat.WHITE;
 import static de.cubeisland.engine.core.util.formatter.MessageType.NONE;
@@ -63,13 +82,22 @@ import static de.cubeisland.engine.core.util.formatter.MessageType.NONE;
  */
 public abstract class AbstractUserManager implements UserManager
 {
+    private static final int BULK_LOAD_SIZE = 500;
+    private static final int HASH_QUEUE_SIZE = 100;
+    private static final int WRITE_ATTEMPTS = 3;
+    private static final Profiler.Handle USER_LOAD = Profiler.handle("user.load", 1);
+
     private final Core core;
-    protected List<User> onlineUsers;
-    protected ConcurrentHashMap<UUID, User> cachedUserByUUID = new ConcurrentHashMap<>();
-    protected ConcurrentHashMap<UInteger, User> cachedUserByDbId = new ConcurrentHashMap<>();
+    protected final OnlineUsers onlineUsers = new OnlineUsers();
+    protected final NameIndex nameIndex = new NameIndex();
+    protected final UserCache userCache;
+    protected final ConcurrentHashMap<UUID, CompletableFuture<User>> loadingUsers = new ConcurrentHashMap<>();
+    protected final Executor mainThreadExecutor;
     protected Set<DefaultAttachment> defaultAttachments;
     protected String salt;
-    protected final MessageDigest messageDigest;
+    protected volatile PasswordHasher passwordHasher;
+    private final CredentialCache credentialCache;
+    private final ThreadPoolExecutor hashExecutor;
 
     protected final Database database;
 
@@ -79,20 +107,33 @@ public abstract class AbstractUserManager implements UserManager
 
         this.core = core;
 
-        this.onlineUsers = new CopyOnWriteArrayList<>();
-
         this.defaultAttachments = new HashSet<>();
 
+        this.mainThreadExecutor = task -> {
+            if (CubeEngine.isMainThread())
+            {
+                task.run();
+            }
+            else
+            {
+                // continuations of the core must not wait for the tick budget
+                core.getTaskManager().runTaskDelayed(core.getModuleManager().getCoreModule(), task, 0, TaskPriority.HIGH);
+            }
+        };
+
+        UsermanagerSection config = core.getConfiguration().usermanager;
+        this.userCache = new UserCache(config.cacheSize, TimeUnit.MINUTES.toMillis(config.cacheExpiry), this::onEvict);
+
         this.loadSalt();
 
-        try
-        {
-            messageDigest = MessageDigest.getInstance("SHA-512");
-        }
-        catch (NoSuchAlgorithmException e)
-        {
-            throw new RuntimeException("SHA-512 hash algorithm not available!");
-        }
+        SecuritySection security = core.getConfiguration().security;
+        this.passwordHasher = new DefaultPasswordHasher(this.salt, security.passwordIterations);
+        this.credentialCache = new CredentialCache(TimeUnit.SECONDS.toMillis(security.credentialCacheTime));
+        final int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.hashExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                   new ArrayBlockingQueue<Runnable>(HASH_QUEUE_SIZE),
+                                                   core.getTaskManager().getThreadFactory());
+        this.hashExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -106,42 +147,165 @@ public abstract class AbstractUserManager implements UserManager
         return user.isLoggedIn();
     }
 
+    @Override
+    public CompletableFuture<Boolean> loginAsync(final User user, String password)
+    {
+        CompletableFuture<Boolean> check;
+        if (user.isLoggedIn())
+        {
+            check = CompletableFuture.completedFuture(true);
+        }
+        else
+        {
+            check = this.checkPasswordAsync(user, password);
+        }
+        return check.handleAsync((result, t) -> {
+            if (t != null)
+            {
+                throw t instanceof CompletionException ? (CompletionException)t : new CompletionException(t);
+            }
+            if (!user.isLoggedIn())
+            {
+                user.loggedInState = result;
+            }
+            core.getEventManager().fireEvent(new UserAuthorizedEvent(this.core, user));
+            return user.isLoggedIn();
+        }, this.mainThreadExecutor);
+    }
+
     @Override
     public boolean checkPassword(User user, String password)
     {
-        synchronized (this.messageDigest)
+        byte[] hash = user.getEntity().getValue(TABLE_USER.PASSWD);
+        Verification verification = this.verify(user, password, hash);
+        this.applyRehash(user, hash, verification);
+        return verification.valid;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(final User user, final String password)
+    {
+        final byte[] hash = user.getEntity().getValue(TABLE_USER.PASSWD);
+        CompletableFuture<Verification> verification;
+        try
+        {
+            verification = CompletableFuture.supplyAsync(() -> this.verify(user, password, hash), this.hashExecutor);
+        }
+        catch (RejectedExecutionException e)
         {
-            messageDigest.reset();
-            password += this.salt;
-            password += user.getEntity().getValue(TABLE_USER.FIRSTSEEN).toString();
-            return Arrays.equals(user.getEntity().getValue(TABLE_USER.PASSWD), messageDigest.digest(password.getBytes()));
+            CompletableFuture<Boolean> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
         }
+        return verification.thenApply(result -> {
+            if (result.rehash != null)
+            {
+                // the record may only be modified on the main thread
+                this.mainThreadExecutor.execute(() -> this.applyRehash(user, hash, result));
+            }
+            return result.valid;
+        });
+    }
+
+    /**
+     * Verifies the password against the hash without modifying the user
+     */
+    private Verification verify(User user, String password, byte[] hash)
+    {
+        if (hash == null || hash.length == 0)
+        {
+            return Verification.INVALID;
+        }
+        PasswordHasher hasher = this.passwordHasher;
+        if (!hasher.verify(user, password, hash))
+        {
+            return Verification.INVALID;
+        }
+        return new Verification(true, hasher.needsRehash(hash) ? hasher.hash(user, password) : null);
+    }
+
+    /**
+     * Stores the new hash of a verified password unless the password was changed in the meantime
+     */
+    private void applyRehash(User user, byte[] verifiedHash, Verification verification)
+    {
+        if (verification.rehash != null && user.getEntity().getValue(TABLE_USER.PASSWD) == verifiedHash)
+        {
+            this.storePassword(user, verification.rehash);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> checkPasswordAsync(final User user, final String password, final String connection)
+    {
+        if (this.credentialCache.isVerified(user, connection, password))
+        {
+            return CompletableFuture.completedFuture(true);
+        }
+        return this.checkPasswordAsync(user, password).thenApply(result -> {
+            if (result)
+            {
+                this.credentialCache.put(user, connection, password);
+            }
+            return result;
+        });
     }
 
     @Override
     public void setPassword(User user, String password)
     {
-        synchronized (this.messageDigest)
+        this.storePassword(user, this.passwordHasher.hash(user, password));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPasswordAsync(final User user, final String password)
+    {
+        final PasswordHasher hasher = this.passwordHasher;
+        try
+        {
+            return CompletableFuture.supplyAsync(() -> hasher.hash(user, password), this.hashExecutor)
+                                    .thenAcceptAsync(hash -> this.storePassword(user, hash), this.mainThreadExecutor);
+        }
+        catch (RejectedExecutionException e)
         {
-            this.messageDigest.reset();
-            password += this.salt;
-            password += user.getEntity().getValue(TABLE_USER.FIRSTSEEN).toString();
-            user.getEntity().setValue(TABLE_USER.PASSWD, this.messageDigest.digest(password.getBytes()));
-            user.getEntity().updateAsync();
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
         }
     }
 
+    private void storePassword(User user, byte[] hash)
+    {
+        user.getEntity().setValue(TABLE_USER.PASSWD, hash);
+        user.getEntity().updateLater();
+        this.credentialCache.invalidate(user);
+    }
+
+    @Override
+    public PasswordHasher getPasswordHasher()
+    {
+        return this.passwordHasher;
+    }
+
+    @Override
+    public void setPasswordHasher(PasswordHasher hasher)
+    {
+        expectNotNull(hasher, "The hasher must not be null!");
+        this.passwordHasher = hasher;
+        this.credentialCache.clear();
+    }
+
     @Override
     public void resetPassword(User user)
     {
-        user.getEntity().setValue(TABLE_USER.PASSWD, null);
-        user.getEntity().updateAsync();
+        this.storePassword(user, null);
     }
 
     @Override
     public void resetAllPasswords()
     {
         this.database.getDSL().update(TABLE_USER).set(TABLE_USER.PASSWD, (byte[])null).execute();
+        this.credentialCache.clear();
         for (User user : this.getLoadedUsers())
         {
             user.getEntity().refresh();
@@ -151,7 +315,7 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public void removeUser(final User user)
     {
-        user.getEntity().deleteAsync();
+        this.writeAsync(user, user.getEntity()::deleteAsync, "delete");
         this.removeCachedUser(user);
     }
 
@@ -164,42 +328,240 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public User getExactUser(UUID uuid)
     {
-        User user = this.cachedUserByUUID.get(uuid);
+        User user = this.userCache.get(uuid);
         if (user == null)
         {
+            final long start = System.nanoTime();
             user = this.loadUserFromDatabase(uuid);
+            this.userCache.recordLoad(System.nanoTime() - start);
             if (user == null)
             {
                 user = new User(core, Bukkit.getOfflinePlayer(uuid));
-                user.getEntity().insertAsync();
+                this.insertAsync(user);
             }
             this.cacheUser(user);
         }
         return user;
     }
 
+    @Override
+    public CompletableFuture<User> getExactUserAsync(final UUID uuid)
+    {
+        return this.loadUserAsync(uuid, true);
+    }
+
+    /**
+     * Loads the user asynchronously and caches it
+     *
+     * @param uuid   the UUID of the user
+     * @param create whether to create the user if it does not exist yet
+     *
+     * @return the user or null if it does not exist and create is false
+     */
+    protected CompletableFuture<User> loadUserAsync(final UUID uuid, final boolean create)
+    {
+        User user = this.userCache.get(uuid);
+        if (user != null)
+        {
+            return CompletableFuture.completedFuture(user);
+        }
+        final CompletableFuture<User> future = new CompletableFuture<>();
+        final CompletableFuture<User> loading = this.loadingUsers.putIfAbsent(uuid, future);
+        if (loading != null)
+        {
+            if (!create)
+            {
+                return loading;
+            }
+            // the running load might not create the user
+            return loading.thenCompose(u -> {
+                if (u != null)
+                {
+                    return CompletableFuture.completedFuture(u);
+                }
+                this.loadingUsers.remove(uuid, loading);
+                return this.loadUserAsync(uuid, true);
+            });
+        }
+        future.whenComplete((u, t) -> this.loadingUsers.remove(uuid, future));
+        final long start = System.nanoTime();
+        this.database.queryOne(this.selectUser(uuid)).whenCompleteAsync((entity, throwable) -> {
+            try
+            {
+                if (throwable != null)
+                {
+                    future.completeExceptionally(throwable);
+                    return;
+                }
+                this.userCache.recordLoad(System.nanoTime() - start);
+                User loaded = this.userCache.peek(uuid); // might got loaded synchronously in the meantime
+                if (loaded != null)
+                {
+                    future.complete(loaded);
+                }
+                else if (entity != null)
+                {
+                    loaded = new User(entity);
+                    this.cacheUser(loaded);
+                    future.complete(loaded);
+                }
+                else if (!create)
+                {
+                    future.complete(null);
+                }
+                else
+                {
+                    OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
+                    if (player.getName() == null)
+                    {
+                        future.completeExceptionally(new IllegalArgumentException("The name of the player " + uuid + " is unknown!"));
+                        return;
+                    }
+                    final User created = new User(core, player);
+                    this.cacheUser(created);
+                    this.insertAsync(created).whenCompleteAsync((cnt, t) -> {
+                        if (t != null)
+                        {
+                            future.completeExceptionally(t);
+                        }
+                        else
+                        {
+                            future.complete(created);
+                        }
+                    }, this.mainThreadExecutor);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                future.completeExceptionally(e);
+            }
+        }, this.mainThreadExecutor);
+        return future;
+    }
+
+    /**
+     * Loads all given users not cached yet with as few queries as possible and caches them.
+     * <p>Users not found in the database get created.
+     *
+     * @param uuids the UUIDs of the users
+     *
+     * @return the users
+     */
+    protected List<User> loadUsers(Collection<UUID> uuids)
+    {
+        List<User> users = new ArrayList<>(uuids.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids)
+        {
+            User user = this.userCache.get(uuid);
+            if (user == null)
+            {
+                missing.add(uuid);
+            }
+            else
+            {
+                users.add(user);
+            }
+        }
+        if (missing.isEmpty())
+        {
+            return users;
+        }
+
+        final long start = System.nanoTime();
+        List<User> loaded = new ArrayList<>(missing.size());
+        for (int i = 0; i < missing.size(); i += BULK_LOAD_SIZE)
+        {
+            for (UserEntity entity : this.selectUsers(missing.subList(i, Math.min(missing.size(), i + BULK_LOAD_SIZE))).fetch())
+            {
+                loaded.add(new User(entity));
+            }
+        }
+        this.userCache.recordLoad(System.nanoTime() - start);
+
+        Set<UUID> found = new HashSet<>();
+        for (User user : loaded)
+        {
+            found.add(user.getUniqueId());
+        }
+        for (UUID uuid : missing)
+        {
+            if (!found.contains(uuid))
+            {
+                User user = new User(core, Bukkit.getOfflinePlayer(uuid));
+                this.insertAsync(user);
+                loaded.add(user);
+            }
+        }
+        this.cacheUsers(loaded);
+        users.addAll(loaded);
+        return users;
+    }
+
+    /**
+     * Loads the most recently seen users in the background to have them cached when they log in
+     *
+     * @param amount the amount of users to load
+     */
+    protected void preloadRecentUsers(int amount)
+    {
+        amount = Math.min(amount, this.userCache.getMaximumSize() - this.userCache.size());
+        if (amount <= 0)
+        {
+            return;
+        }
+        final long start = System.nanoTime();
+        this.database.query(this.database.getDSL().selectFrom(TABLE_USER).orderBy(TABLE_USER.LASTSEEN.desc()).limit(amount))
+                     .thenAcceptAsync(result -> {
+                         List<User> users = new ArrayList<>(result.size());
+                         for (UserEntity entity : result)
+                         {
+                             if (this.userCache.peek(entity.getUniqueId()) == null)
+                             {
+                                 users.add(new User(entity));
+                             }
+                         }
+                         this.cacheUsers(users);
+                         this.core.getLog().debug("Preloaded {} users in {}ms", users.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                     }, this.mainThreadExecutor);
+    }
+
+    private ResultQuery<UserEntity> selectUsers(List<UUID> uuids)
+    {
+        List<Row2<Long, Long>> rows = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids)
+        {
+            rows.add(DSL.row(uuid.getLeastSignificantBits(), uuid.getMostSignificantBits()));
+        }
+        return this.database.getDSL().selectFrom(TABLE_USER).where(DSL.row(TABLE_USER.LEAST, TABLE_USER.MOST).in(rows));
+    }
+
     protected User loadUserFromDatabase(UUID uuid)
     {
-        UserEntity entity = this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LEAST.eq(uuid.getLeastSignificantBits()).and(TABLE_USER.MOST.eq(uuid.getMostSignificantBits()))).fetchOne();
-        return entity == null ? null : new User(entity);
+        try (Profiler.Span span = Profiler.start(USER_LOAD))
+        {
+            UserEntity entity = this.selectUser(uuid).fetchOne();
+            return entity == null ? null : new User(entity);
+        }
+    }
+
+    protected ResultQuery<UserEntity> selectUser(UUID uuid)
+    {
+        return this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LEAST.eq(uuid.getLeastSignificantBits()).and(TABLE_USER.MOST.eq(uuid.getMostSignificantBits())));
     }
 
     @Override
     public synchronized User getUser(UInteger id)
     {
-        User user = this.cachedUserByDbId.get(id);
+        User user = this.userCache.get(id);
         if (user != null)
         {
             return user;
         }
+        final long start = System.nanoTime();
         UserEntity entity = this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.KEY.eq(id)).fetchOne();
-        if (entity == null)
-        {
-            return null;
-        }
-        user = new User(entity);
-        this.cacheUser(user);
-        return user;
+        this.userCache.recordLoad(System.nanoTime() - start);
+        return this.cacheEntity(entity);
     }
 
     @Override
@@ -208,6 +570,17 @@ public abstract class AbstractUserManager implements UserManager
         return this.getUser(name, false);
     }
 
+    @Override
+    public CompletableFuture<User> findExactUserAsync(final String name)
+    {
+        User user = this.getLoadedUser(name);
+        if (user != null)
+        {
+            return CompletableFuture.completedFuture(user);
+        }
+        return this.database.queryOne(this.selectUserByName(name)).thenApplyAsync(this::cacheEntity, this.mainThreadExecutor);
+    }
+
     /**
      * Gets a user by his name
      *
@@ -226,6 +599,68 @@ public abstract class AbstractUserManager implements UserManager
         return record1 == null ? null : record1.value1();
     }
 
+    /**
+     * Inserts a new user asynchronously and indexes it by its database ID once inserted
+     *
+     * @param user the new user
+     *
+     * @return the result of the insert
+     */
+    protected CompletableFuture<Integer> insertAsync(final User user)
+    {
+        CompletableFuture<Integer> insert = this.writeAsync(user, user.getEntity()::insertAsync, "insert");
+        insert.thenRunAsync(() -> this.userCache.index(user), this.mainThreadExecutor);
+        return insert;
+    }
+
+    /**
+     * Writes a user asynchronously and logs a failed write.
+     * <p>Writes rejected by a full database queue get retried from the main thread a few times
+     *
+     * @param user   the user to write
+     * @param write  starts the write
+     * @param action the name of the write for the log
+     *
+     * @return the result of the last attempt
+     */
+    protected CompletableFuture<Integer> writeAsync(User user, Supplier<CompletableFuture<Integer>> write, String action)
+    {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        this.writeAsync(user, write, action, 1, result);
+        return result;
+    }
+
+    private void writeAsync(final User user, final Supplier<CompletableFuture<Integer>> write, final String action, final int attempt, final CompletableFuture<Integer> result)
+    {
+        CompletableFuture<Integer> future;
+        try
+        {
+            future = write.get();
+        }
+        catch (RejectedExecutionException e)
+        {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((cnt, t) -> {
+            if (t == null)
+            {
+                result.complete(cnt);
+                return;
+            }
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            if (cause instanceof RejectedExecutionException && attempt < WRITE_ATTEMPTS)
+            {
+                this.core.getLog().debug("Could not {} the user {} yet, retrying...", action, user.getName());
+                this.core.getTaskManager().runTaskDelayed(this.core.getModuleManager().getCoreModule(),
+                                                          () -> this.writeAsync(user, write, action, attempt + 1, result), 20L * attempt);
+                return;
+            }
+            this.core.getLog().error(cause, "Could not {} the user {}!", action, user.getName());
+            result.completeExceptionally(cause);
+        });
+    }
+
     protected synchronized void attachDefaults(User user)
     {
         for (DefaultAttachment defaultAttachment : this.defaultAttachments)
@@ -237,75 +672,134 @@ public abstract class AbstractUserManager implements UserManager
     protected synchronized void cacheUser(User user)
     {
         updateLastName(user);
-        this.cachedUserByUUID.put(user.getUniqueId(), user);
-        this.cachedUserByDbId.put(user.getEntity().getKey(), user);
+        this.userCache.put(user);
+        this.nameIndex.add(user);
         this.core.getLog().debug("User {} cached!", user.getName());
         this.attachDefaults(user);
     }
 
+    /**
+     * Caches all given users and attaches the default attachments in one pass
+     *
+     * @param users the users
+     */
+    protected synchronized void cacheUsers(Collection<User> users)
+    {
+        for (User user : users)
+        {
+            updateLastName(user);
+            this.userCache.put(user);
+            this.nameIndex.add(user);
+        }
+        for (DefaultAttachment defaultAttachment : this.defaultAttachments)
+        {
+            for (User user : users)
+            {
+                defaultAttachment.attachTo(user);
+            }
+        }
+        this.core.getLog().debug("{} users cached!", users.size());
+    }
+
     protected void updateLastName(User user)
     {
         if (!user.getName().equalsIgnoreCase(user.getEntity().getValue(TABLE_USER.LASTNAME)))
         {
             user.getEntity().setValue(TABLE_USER.LASTNAME, user.getName());
-            user.getEntity().updateAsync();
+            user.getEntity().updateLater();
         }
     }
 
     protected synchronized void removeCachedUser(User user)
     {
-        this.cachedUserByUUID.remove(user.getUniqueId());
-        this.cachedUserByDbId.remove(user.getEntity().getKey());
+        this.userCache.remove(user);
+        this.nameIndex.remove(user);
         this.core.getLog().debug("Removed cached user {}!", user.getName());
         user.detachAll();
     }
 
+    /**
+     * Called by the UserCache for every evicted user.
+     * <p>The attachments get detached on the main thread
+     *
+     * @param user the evicted user
+     */
+    protected void onEvict(final User user)
+    {
+        this.nameIndex.remove(user);
+        this.core.getLog().debug("Evicted cached user {}!", user.getName());
+        this.mainThreadExecutor.execute(user::detachAll);
+    }
+
     @Override
-    public synchronized Set<User> getOnlineUsers()
+    public UserCache getUserCache()
     {
-        return new HashSet<>(this.onlineUsers); // TODO this is not working as it should
+        return this.userCache;
     }
 
     @Override
-    public synchronized Set<User> getLoadedUsers()
+    public Set<User> getOnlineUsers()
     {
-        return new HashSet<>(this.cachedUserByUUID.values());
+        return this.onlineUsers.getAll();
     }
 
     @Override
-    public void broadcastTranslatedWithPerm(MessageType messageType, String message, Permission perm, Object... params)
+    public Collection<User> getOnlineUsersByPrefix(String prefix)
     {
-        if (message.isEmpty())
-        {
-            return;
-        }
+        return this.onlineUsers.getByPrefix(prefix);
+    }
 
-        for (User user : this.onlineUsers)
+    @Override
+    public synchronized Set<User> getLoadedUsers()
+    {
+        return new HashSet<>(this.userCache.values());
+    }
+
+    /**
+     * Sends a message to all online users having the permission.
+     * <p>The message is composed only once for every locale of the recipients.
+     * The permission is still checked for every online user, which is a lookup in the permissions
+     * Bukkit already resolved for the player
+     *
+     * @param perm     the permission or null
+     * @param composer composes the message for a locale
+     */
+    protected void broadcast(Permission perm, Function<Locale, String> composer)
+    {
+        Map<Locale, String> messages = new HashMap<>();
+        for (User user : this.onlineUsers.getAll())
         {
             if (perm == null || perm.isAuthorized(user))
             {
-                user.sendTranslated(messageType, message, params);
+                String message = messages.computeIfAbsent(user.getLocale(), composer.andThen(ChatFormat::parseFormats));
+                user.sendComposedMessage(message);
             }
         }
-        this.core.getCommandManager().getConsoleSender().sendTranslated(messageType, message, params);
     }
 
     @Override
-    public void broadcastMessageWithPerm(MessageType type, String message, Permission perm, Object... params)
+    public void broadcastTranslatedWithPerm(MessageType messageType, String message, Permission perm, Object... params)
     {
         if (message.isEmpty())
         {
             return;
         }
-        for (User user : this.onlineUsers)
+        final I18n i18n = this.core.getI18n();
+        this.broadcast(perm, locale -> i18n.translate(locale, messageType, message, params));
+        this.core.getCommandManager().getConsoleSender().sendTranslated(messageType, message, params);
+    }
+
+    @Override
+    public void broadcastMessageWithPerm(MessageType type, String message, Permission perm, Object... params)
+    {
+        if (message.isEmpty())
         {
-            if (perm == null || perm.isAuthorized(user))
-            {
-                user.sendMessage(NONE, message, params);
-            }
+            return;
         }
+        final I18n i18n = this.core.getI18n();
+        this.broadcast(perm, locale -> i18n.composeMessage(locale, NONE, message, params));
         ConsoleCommandSender cSender = this.core.getCommandManager().getConsoleSender();
-        cSender.sendMessage(this.core.getI18n().composeMessage(cSender.getLocale(), type, message, params));
+        cSender.sendMessage(i18n.composeMessage(cSender.getLocale(), type, message, params));
     }
 
     @Override
@@ -323,20 +817,17 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public void broadcastStatus(ChatFormat starColor, String message, CommandSender sender, Object... params)
     {
-        for (User user : this.onlineUsers)
-        {
-            user.sendMessage(MessageType.of(starColor), "* {user} {input#message:color=WHITE}", sender.getDisplayName(), message);
-        }
+        final I18n i18n = this.core.getI18n();
+        this.broadcast(null, locale -> i18n.composeMessage(locale, MessageType.of(starColor), "* {user} {input#message:color=WHITE}",
+                                                           sender.getDisplayName(), message));
     }
 
     @Override
     public void broadcastTranslatedStatus(ChatFormat starColor, String message, CommandSender sender, Object... params)
     {
-        for (User user : this.onlineUsers)
-        {
-            user.sendMessage(MessageType.of(starColor), "* {user} {input#message:color=WHITE}", sender.getDisplayName(),
-                             user.getTranslation(NONE, message, params));
-        }
+        final I18n i18n = this.core.getI18n();
+        this.broadcast(null, locale -> i18n.composeMessage(locale, MessageType.of(starColor), "* {user} {input#message:color=WHITE}",
+                                                           sender.getDisplayName(), i18n.translate(locale, NONE, message, params)));
     }
 
     @Override
@@ -407,7 +898,7 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public synchronized void kickAll(String message)
     {
-        for (User user : this.cachedUserByUUID.values())
+        for (User user : this.userCache.values())
         {
             user.kickPlayer(message);
         }
@@ -416,9 +907,11 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public synchronized void kickAll(String message, Object... params)
     {
-        for (User user : this.cachedUserByUUID.values())
+        final I18n i18n = this.core.getI18n();
+        Map<Locale, String> messages = new HashMap<>();
+        for (User user : this.onlineUsers.getAll())
         {
-            user.kickPlayer(user.getTranslation(NONE, message, params));
+            user.kickPlayer(messages.computeIfAbsent(user.getLocale(), locale -> i18n.translate(locale, NONE, message, params)));
         }
     }
 
@@ -452,6 +945,7 @@ public abstract class AbstractUserManager implements UserManager
     @Override
     public synchronized void addDefaultAttachment(Class<? extends UserAttachment> attachmentClass, Module module)
     {
+        AttachmentHook.overriddenBy(attachmentClass); // detect the overridden hooks once on registration
         DefaultAttachment attachment = new DefaultAttachment(attachmentClass, module);
         this.defaultAttachments.add(attachment);
         for (User user : this.getLoadedUsers())
@@ -509,6 +1003,7 @@ public abstract class AbstractUserManager implements UserManager
     {
         this.removeDefaultAttachments(module);
         this.detachAllOf(module);
+        AttachmentType.unregisterAll(module.getClassLoader());
     }
 
     @Override
@@ -524,45 +1019,104 @@ public abstract class AbstractUserManager implements UserManager
         {
             return null;
         }
-        // Direct Match Online Players:
-        for (User onlineUser : this.getOnlineUsers())
+        User user = this.getLoadedUser(name);
+        if (user != null)
         {
-            if (name.equals(onlineUser.getName()))
-            {
-                return this.getExactUser(onlineUser.getUniqueId());
-            }
+            return user;
         }
-        // Find Online Players with similar name
-        Map<String, User> onlinePlayerMap = new HashMap<>();
-        for (User onlineUser : this.getOnlineUsers())
+        // Lookup in saved users
+        UserEntity entity = this.selectUserByName(name).fetchOne();
+        if (entity != null)
         {
-            onlinePlayerMap.put(onlineUser.getName(), onlineUser);
+            return this.cacheEntity(entity);
         }
-        String foundUser = Match.string().matchString(name, onlinePlayerMap.keySet());
-        if (foundUser != null)
+        // Match loaded users
+        user = this.matchLoadedUser(name);
+        if (user == null && searchDatabase)
         {
-            return this.getExactUser(onlinePlayerMap.get(foundUser).getUniqueId());
+            // Match in saved users
+            user = this.cacheEntity(this.selectUserByNameMatch(name).fetchOne());
         }
-        // Lookup in saved users
-        UserEntity entity = this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LASTNAME.eq(name))
-                                         .fetchOne();
-        if (entity == null && searchDatabase)
+        return user;
+    }
+
+    @Override
+    public CompletableFuture<User> findUserAsync(final String name, boolean searchDatabase)
+    {
+        if (name == null)
         {
-            // Match in saved users
-            entity = this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LASTNAME.like("%" + name + "%"))
-                                  .limit(1).fetchOne();
+            return CompletableFuture.completedFuture(null);
         }
-        if (entity != null)
+        User user = this.getLoadedUser(name);
+        if (user != null)
         {
-            User user = this.cachedUserByDbId.get(entity.getKey());
-            if (user == null)
+            return CompletableFuture.completedFuture(user);
+        }
+        return this.database.queryOne(this.selectUserByName(name)).thenComposeAsync(entity -> {
+            if (entity != null)
             {
-                user = new User(entity);
-                this.cacheUser(user);
+                return CompletableFuture.completedFuture(this.cacheEntity(entity));
             }
+            User match = this.matchLoadedUser(name);
+            if (match != null || !searchDatabase)
+            {
+                return CompletableFuture.completedFuture(match);
+            }
+            return this.database.queryOne(this.selectUserByNameMatch(name)).thenApplyAsync(this::cacheEntity, this.mainThreadExecutor);
+        }, this.mainThreadExecutor);
+    }
+
+    @Override
+    public User getLoadedUser(String name)
+    {
+        User user = this.onlineUsers.getByName(name);
+        if (user != null)
+        {
             return user;
         }
-        return null;
+        return this.nameIndex.get(name);
+    }
+
+    @Override
+    public User matchLoadedUser(String name)
+    {
+        return this.nameIndex.find(name);
+    }
+
+    private ResultQuery<UserEntity> selectUserByName(String name)
+    {
+        return this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LASTNAME.eq(name));
+    }
+
+    /**
+     * Selects the most recently seen user whose name starts with the name.
+     * <p>Only a prefix is matched so the query can use the index on the name
+     */
+    private ResultQuery<UserEntity> selectUserByNameMatch(String name)
+    {
+        String pattern = name.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return this.database.getDSL().selectFrom(TABLE_USER).where(TABLE_USER.LASTNAME.like(pattern, '!'))
+                            .orderBy(TABLE_USER.LASTSEEN.desc()).limit(1);
+    }
+
+    private User cacheEntity(UserEntity entity)
+    {
+        if (entity == null)
+        {
+            return null;
+        }
+        // a cached user might not be indexed by its ID yet
+        User user = this.userCache.get(entity.getUniqueId());
+        if (user == null)
+        {
+            user = new User(entity);
+            this.cacheUser(user);
+        }
+        else
+        {
+            this.userCache.index(user);
+        }
+        return user;
     }
 
     @Override
@@ -571,19 +1125,17 @@ public abstract class AbstractUserManager implements UserManager
         this.clean();
 
         this.onlineUsers.clear();
-        this.onlineUsers = null;
-
-        this.cachedUserByUUID.clear();
-        this.cachedUserByUUID = null;
 
-        this.cachedUserByDbId.clear();
-        this.cachedUserByDbId = null;
+        this.userCache.clear();
+        this.nameIndex.clear();
 
         this.removeDefaultAttachments();
         this.defaultAttachments.clear();
         this.defaultAttachments = null;
 
         this.salt = null;
+        this.hashExecutor.shutdown();
+        this.credentialCache.clear();
     }
 
     @Override
@@ -611,4 +1163,18 @@ public abstract class AbstractUserManager implements UserManager
             user.attach(this.type, this.module);
         }
     }
+
+    private static final class Verification
+    {
+        private static final Verification INVALID = new Verification(false, null);
+
+        private final boolean valid;
+        private final byte[] rehash;
+
+        private Verification(boolean valid, byte[] rehash)
+        {
+            this.valid = valid;
+            this.rehash = rehash;
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.Arrays;
+
+/**
+ * The hooks a {@link UserAttachment} can override.
+ * <p>Users keep a list of subscribers for every hook so events only reach the attachments overriding it.
+ */
+public enum AttachmentHook
+{
+    JOIN("onJoin", String.class),
+    QUIT("onQuit", String.class),
+    KICK("onKick", String.class),
+    CHAT("onChat", String.class, String.class),
+    COMMAND("onCommand", String.class);
+
+    private static final AttachmentHook[] HOOKS = values();
+    private static final ClassValue<AttachmentHook[]> OVERRIDDEN = new ClassValue<AttachmentHook[]>()
+    {
+        @Override
+        protected AttachmentHook[] computeValue(Class<?> type)
+        {
+            int count = 0;
+            AttachmentHook[] hooks = new AttachmentHook[HOOKS.length];
+            for (AttachmentHook hook : HOOKS)
+            {
+                if (hook.isOverriddenBy(type))
+                {
+                    hooks[count++] = hook;
+                }
+            }
+            return Arrays.copyOf(hooks, count);
+        }
+    };
+
+    private final String method;
+    private final Class<?>[] parameters;
+
+    AttachmentHook(String method, Class<?>... parameters)
+    {
+        this.method = method;
+        this.parameters = parameters;
+    }
+
+    private boolean isOverriddenBy(Class<?> type)
+    {
+        try
+        {
+            return type.getMethod(this.method, this.parameters).getDeclaringClass() != UserAttachment.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new IllegalStateException("UserAttachment is missing the hook " + this.method, e);
+        }
+    }
+
+    /**
+     * Returns the hooks overridden by given attachment class, the result is computed once per class
+     *
+     * @param type the attachment class
+     *
+     * @return the overridden hooks, must not be modified
+     */
+    static AttachmentHook[] overriddenBy(Class<? extends UserAttachment> type)
+    {
+        return OVERRIDDEN.get(type);
+    }
+
+    static int count()
+    {
+        return HOOKS.length;
+    }
+}
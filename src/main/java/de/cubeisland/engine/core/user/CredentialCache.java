@@ -0,0 +1,176 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+
+/**
+ * Remembers verified passwords per user and connection for a short time,
+ * so repeated requests of a client do not compute the password hash again.
+ * <p>Only a HMAC-SHA256 of the password is kept. Its key is random and never leaves the memory of this cache,
+ * so the kept values can not be attacked with precomputed tables. An entry is no longer valid once the stored
+ * password changed.
+ */
+class CredentialCache
+{
+    private static final int PURGE_THRESHOLD = 1000;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final long timeToLive;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
+        try
+        {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(this.key);
+            return mac;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException(MAC_ALGORITHM + " not available!", e);
+        }
+    });
+
+    /**
+     * @param timeToLive the time in milliseconds a verified password is remembered
+     */
+    CredentialCache(long timeToLive)
+    {
+        this.timeToLive = timeToLive;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+    }
+
+    boolean isVerified(User user, String connection, String password)
+    {
+        if (this.timeToLive <= 0)
+        {
+            return false;
+        }
+        Entry entry = this.entries.get(new Key(user.getUniqueId(), connection));
+        return entry != null && entry.expires > System.currentTimeMillis()
+            && Arrays.equals(entry.storedHash, user.getEntity().getValue(TABLE_USER.PASSWD))
+            && MessageDigest.isEqual(entry.passwordDigest, this.digest(password));
+    }
+
+    void put(User user, String connection, String password)
+    {
+        if (this.timeToLive <= 0)
+        {
+            return;
+        }
+        if (this.entries.size() >= PURGE_THRESHOLD)
+        {
+            this.purge();
+        }
+        this.entries.put(new Key(user.getUniqueId(), connection), new Entry(user.getEntity().getValue(TABLE_USER.PASSWD),
+                                                                           this.digest(password),
+                                                                           System.currentTimeMillis() + this.timeToLive));
+    }
+
+    void invalidate(User user)
+    {
+        this.entries.keySet().removeIf(key -> key.user.equals(user.getUniqueId()));
+    }
+
+    void clear()
+    {
+        this.entries.clear();
+    }
+
+    private void purge()
+    {
+        final long now = System.currentTimeMillis();
+        Iterator<Entry> it = this.entries.values().iterator();
+        while (it.hasNext())
+        {
+            if (it.next().expires <= now)
+            {
+                it.remove();
+            }
+        }
+    }
+
+    private byte[] digest(String password)
+    {
+        Mac mac = this.mac.get();
+        mac.reset();
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Key
+    {
+        private final UUID user;
+        private final String connection;
+
+        private Key(UUID user, String connection)
+        {
+            this.user = user;
+            this.connection = connection;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key key = (Key)o;
+            return this.user.equals(key.user) && this.connection.equals(key.connection);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * this.user.hashCode() + this.connection.hashCode();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final byte[] storedHash;
+        private final byte[] passwordDigest;
+        private final long expires;
+
+        private Entry(byte[] storedHash, byte[] passwordDigest, long expires)
+        {
+            this.storedHash = storedHash;
+            this.passwordDigest = passwordDigest;
+            this.expires = expires;
+        }
+    }
+}
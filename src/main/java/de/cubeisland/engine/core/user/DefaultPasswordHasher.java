@@ -0,0 +1,121 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+
+/**
+ * Hashes passwords with PBKDF2 and a random salt per password.
+ * <p>Hashes created by older versions (SHA-512 with the static salt) are still verified and reported as outdated.
+ */
+public class DefaultPasswordHasher implements PasswordHasher
+{
+    private static final byte VERSION = 1;
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+    private static final int LENGTH = 1 + 4 + SALT_LENGTH + HASH_LENGTH;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+
+    private final String staticSalt;
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<MessageDigest> legacyDigest = ThreadLocal.withInitial(() -> {
+        try
+        {
+            return MessageDigest.getInstance("SHA-512");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-512 hash algorithm not available!", e);
+        }
+    });
+
+    /**
+     * @param staticSalt the salt used by the legacy hashes
+     * @param iterations the iterations of PBKDF2
+     */
+    public DefaultPasswordHasher(String staticSalt, int iterations)
+    {
+        this.staticSalt = staticSalt;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public byte[] hash(User user, String password)
+    {
+        byte[] salt = new byte[SALT_LENGTH];
+        this.random.nextBytes(salt);
+        return ByteBuffer.allocate(LENGTH).put(VERSION).putInt(this.iterations).put(salt)
+                         .put(pbkdf2(password, salt, this.iterations)).array();
+    }
+
+    @Override
+    public boolean verify(User user, String password, byte[] hash)
+    {
+        if (hash.length != LENGTH || hash[0] != VERSION)
+        {
+            return MessageDigest.isEqual(hash, this.legacyHash(user, password));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(hash, 1, LENGTH - 1);
+        int iterations = buffer.getInt();
+        byte[] salt = new byte[SALT_LENGTH];
+        buffer.get(salt);
+        return MessageDigest.isEqual(Arrays.copyOfRange(hash, LENGTH - HASH_LENGTH, LENGTH), pbkdf2(password, salt, iterations));
+    }
+
+    @Override
+    public boolean needsRehash(byte[] hash)
+    {
+        return hash.length != LENGTH || hash[0] != VERSION || ByteBuffer.wrap(hash, 1, 4).getInt() < this.iterations;
+    }
+
+    private byte[] legacyHash(User user, String password)
+    {
+        MessageDigest digest = this.legacyDigest.get();
+        digest.reset();
+        password += this.staticSalt;
+        password += user.getEntity().getValue(TABLE_USER.FIRSTSEEN).toString();
+        return digest.digest(password.getBytes());
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations)
+    {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH * 8);
+        try
+        {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new IllegalStateException(ALGORITHM + " is not available!", e);
+        }
+        finally
+        {
+            spec.clearPassword();
+        }
+    }
+}
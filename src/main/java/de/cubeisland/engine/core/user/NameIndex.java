@@ -0,0 +1,313 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An index of the names of all loaded users for exact, prefix and fuzzy lookups.
+ * <p>Exact and prefix lookups use a sorted map, fuzzy lookups a BK-tree over the lower case names,
+ * so a lookup only compares the name with a small part of the indexed names.
+ * Removed names stay in the tree until it gets rebuilt, they are skipped when searching.
+ */
+public class NameIndex
+{
+    private static final int MIN_PERCENT_CORRECT = 40;
+
+    private final NavigableMap<String, User> byName = new ConcurrentSkipListMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private int treeSize = 0;
+
+    public void add(User user)
+    {
+        String name = key(user.getName());
+        this.byName.put(name, user);
+        this.lock.writeLock().lock();
+        try
+        {
+            this.insert(name);
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(User user)
+    {
+        if (!this.byName.remove(key(user.getName()), user))
+        {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try
+        {
+            if (this.treeSize > 2 * this.byName.size() + 64)
+            {
+                this.root = null;
+                this.treeSize = 0;
+                for (String name : this.byName.keySet())
+                {
+                    this.insert(name);
+                }
+            }
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void clear()
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            this.byName.clear();
+            this.root = null;
+            this.treeSize = 0;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the user with given name ignoring the case
+     *
+     * @param name the name
+     *
+     * @return the user or null if not indexed
+     */
+    public User get(String name)
+    {
+        return this.byName.get(key(name));
+    }
+
+    /**
+     * Returns the users whose name starts with given prefix ignoring the case
+     *
+     * @param prefix the prefix
+     *
+     * @return the users sorted by name
+     */
+    public Collection<User> getByPrefix(String prefix)
+    {
+        prefix = key(prefix);
+        return new ArrayList<>(this.byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     * Finds the user best matching the name.
+     * <p>An exact match is preferred over a single typo, then over the shortest name starting with the name
+     * and last over two typos.
+     *
+     * @param name the name
+     *
+     * @return the user or null if nothing matched
+     */
+    public User find(String name)
+    {
+        name = key(name);
+        User user = this.byName.get(name);
+        if (user != null)
+        {
+            return user;
+        }
+        user = this.findSimilar(name, 1);
+        if (user != null)
+        {
+            return user;
+        }
+        Map.Entry<String, User> shortest = null;
+        for (Map.Entry<String, User> entry : this.byName.subMap(name, true, name + Character.MAX_VALUE, false).entrySet())
+        {
+            if (shortest == null || entry.getKey().length() < shortest.getKey().length())
+            {
+                shortest = entry;
+            }
+        }
+        if (shortest != null)
+        {
+            return shortest.getValue();
+        }
+        if (name.length() < 3)
+        {
+            return null;
+        }
+        return this.findSimilar(name, 2);
+    }
+
+    /**
+     * Returns the indexed users within given edit distance of the name
+     *
+     * @param name        the name
+     * @param maxDistance the maximum edit distance
+     *
+     * @return the users by their edit distance
+     */
+    public Map<User, Integer> search(String name, int maxDistance)
+    {
+        name = key(name);
+        Map<User, Integer> result = new HashMap<>();
+        this.lock.readLock().lock();
+        try
+        {
+            if (this.root == null)
+            {
+                return result;
+            }
+            List<Node> candidates = new ArrayList<>();
+            candidates.add(this.root);
+            while (!candidates.isEmpty())
+            {
+                Node node = candidates.remove(candidates.size() - 1);
+                int distance = distance(name, node.name);
+                if (distance <= maxDistance)
+                {
+                    User user = this.byName.get(node.name);
+                    if (user != null)
+                    {
+                        result.put(user, distance);
+                    }
+                }
+                if (node.children != null)
+                {
+                    for (int i = Math.max(1, distance - maxDistance); i <= distance + maxDistance; i++)
+                    {
+                        Node child = node.children.get(i);
+                        if (child != null)
+                        {
+                            candidates.add(child);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private User findSimilar(String name, int maxDistance)
+    {
+        User best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Map.Entry<User, Integer> entry : this.search(name, maxDistance).entrySet())
+        {
+            int length = entry.getKey().getName().length();
+            int distance = entry.getValue();
+            if ((length - distance) * 100 / length < MIN_PERCENT_CORRECT)
+            {
+                continue;
+            }
+            if (distance < bestDistance || (distance == bestDistance && length < best.getName().length()))
+            {
+                best = entry.getKey();
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private void insert(String name)
+    {
+        if (this.root == null)
+        {
+            this.root = new Node(name);
+            this.treeSize++;
+            return;
+        }
+        Node node = this.root;
+        while (true)
+        {
+            int distance = distance(name, node.name);
+            if (distance == 0)
+            {
+                return; // already in the tree
+            }
+            if (node.children == null)
+            {
+                node.children = new HashMap<>();
+            }
+            Node child = node.children.get(distance);
+            if (child == null)
+            {
+                node.children.put(distance, new Node(name));
+                this.treeSize++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Computes the Levenshtein distance which unlike the Damerau-Levenshtein distance is a metric as needed by the BK-tree
+     */
+    private static int distance(String a, String b)
+    {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+        {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++)
+        {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++)
+            {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String key(String name)
+    {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static final class Node
+    {
+        private final String name;
+        private Map<Integer, Node> children;
+
+        private Node(String name)
+        {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The registry of the online users.
+ * <p>Users are indexed by UUID and by their lower case name. Adding and removing users happens on join and quit,
+ * all reads are lock-free and the snapshot returned by {@link #getAll()} is only rebuilt when the registry changes.
+ */
+public class OnlineUsers
+{
+    private final Map<UUID, User> byUUID = new ConcurrentHashMap<>();
+    private final NavigableMap<String, User> byName = new ConcurrentSkipListMap<>();
+    private volatile Set<User> snapshot = Collections.emptySet();
+
+    public synchronized boolean add(User user)
+    {
+        User old = this.byUUID.put(user.getUniqueId(), user);
+        if (old == user)
+        {
+            return false;
+        }
+        if (old != null)
+        {
+            this.byName.remove(key(old.getName()), old);
+        }
+        this.byName.put(key(user.getName()), user);
+        this.update();
+        return true;
+    }
+
+    public synchronized boolean remove(User user)
+    {
+        if (!this.byUUID.remove(user.getUniqueId(), user))
+        {
+            return false;
+        }
+        this.byName.remove(key(user.getName()), user);
+        this.update();
+        return true;
+    }
+
+    public synchronized void clear()
+    {
+        this.byUUID.clear();
+        this.byName.clear();
+        this.update();
+    }
+
+    private void update()
+    {
+        this.snapshot = Collections.unmodifiableSet(new HashSet<>(this.byUUID.values()));
+    }
+
+    public User get(UUID uuid)
+    {
+        return this.byUUID.get(uuid);
+    }
+
+    /**
+     * Returns the online user with given name ignoring the case
+     *
+     * @param name the name
+     *
+     * @return the user or null if not online
+     */
+    public User getByName(String name)
+    {
+        return this.byName.get(key(name));
+    }
+
+    /**
+     * Returns the online users whose name starts with given prefix ignoring the case
+     *
+     * @param prefix the prefix
+     *
+     * @return the users
+     */
+    public Collection<User> getByPrefix(String prefix)
+    {
+        if (prefix.isEmpty())
+        {
+            return this.snapshot;
+        }
+        prefix = key(prefix);
+        return new ArrayList<>(this.byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    public boolean contains(User user)
+    {
+        return this.byUUID.get(user.getUniqueId()) == user;
+    }
+
+    /**
+     * Returns an immutable snapshot of the online users
+     *
+     * @return the users
+     */
+    public Set<User> getAll()
+    {
+        return this.snapshot;
+    }
+
+    public int size()
+    {
+        return this.byUUID.size();
+    }
+
+    private static String key(String name)
+    {
+        return name.toLowerCase(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+/**
+ * Creates and verifies the password hashes stored for users.
+ * <p>Implementations have to be thread-safe as hashes are computed concurrently.
+ */
+public interface PasswordHasher
+{
+    /**
+     * Hashes the password of given user
+     *
+     * @param user     the user
+     * @param password the password
+     *
+     * @return the hash to store
+     */
+    byte[] hash(User user, String password);
+
+    /**
+     * Verifies the password of given user against the stored hash
+     *
+     * @param user     the user
+     * @param password the password
+     * @param hash     the stored hash
+     *
+     * @return true if the password matches
+     */
+    boolean verify(User user, String password, byte[] hash);
+
+    /**
+     * Returns whether the stored hash should be replaced by a new hash after it got verified
+     *
+     * @param hash the stored hash
+     *
+     * @return true if the hash is outdated
+     */
+    boolean needsRehash(byte[] hash);
+}
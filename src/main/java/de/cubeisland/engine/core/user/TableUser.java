@@ -32,10 +32,11 @@ import de.cubeisland.engine.core.CubeEngine;
 import de.cubeisland.engine.core.storage.database.AutoIncrementTable;
 import de.cubeisland.engine.core.storage.database.Database;
 import de.cubeisland.engine.core.storage.database.TableUpdateCreator;
-import de.cubeisland.engine.core.storage.database.mysql.MySQLDatabaseConfiguration;
 import de.cubeisland.engine.core.util.McUUID;
 import de.cubeisland.engine.core.util.Version;
+import org.jooq.SQLDialect;
 import org.jooq.TableField;
+import org.jooq.tools.jdbc.JDBCUtils;
 import org.jooq.types.UInteger;
 
 import static org.jooq.impl.SQLDataType.*;
@@ -57,9 +58,10 @@ public class TableUser extends AutoIncrementTable<UserEntity, UInteger> implemen
 
     public TableUser(String prefix)
     {
-        super(prefix + "user", new Version(2));
+        super(prefix + "user", new Version(3));
         this.setAIKey(this.KEY);
         this.addUniqueKey(LEAST, MOST);
+        this.addIndex(LASTNAME);
         this.addFields(KEY, LASTNAME, NOGC, LASTSEEN, PASSWD, FIRSTSEEN, LANGUAGE, LEAST, MOST);
         TABLE_USER = this;
     }
@@ -68,8 +70,7 @@ public class TableUser extends AutoIncrementTable<UserEntity, UInteger> implemen
     {
         if (TABLE_USER == null)
         {
-            MySQLDatabaseConfiguration config = (MySQLDatabaseConfiguration)database.getDatabaseConfig();
-            TABLE_USER = new TableUser(config.tablePrefix);
+            TABLE_USER = new TableUser(database.getTablePrefix());
         }
         return TABLE_USER;
     }
@@ -134,5 +135,15 @@ public class TableUser extends AutoIncrementTable<UserEntity, UInteger> implemen
                                             " CHANGE `player` `lastname` VARCHAR(16) " +
                                             "CHARACTER SET utf8 COLLATE utf8_unicode_ci NOT NULL").execute();
         }
+        if (dbVersion.getMajor() <= 2)
+        {
+            CubeEngine.getLog().info("Updating {} to Version 3", this.getName());
+
+            CubeEngine.getLog().info("Create index on lastname");
+            char quote = JDBCUtils.dialect(connection) == SQLDialect.MYSQL ? '`' : '"';
+            connection.prepareStatement("CREATE INDEX " + quote + this.getName() + "_lastname" + quote +
+                                            " ON " + quote + this.getName() + quote +
+                                            " (" + quote + "lastname" + quote + ")").execute();
+        }
     }
 }
@@ -18,13 +18,15 @@
 package de.cubeisland.engine.core.user;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -34,6 +36,7 @@ import java.util.TreeSet;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.CubeEngine;
 import de.cubeisland.engine.core.attachment.AttachmentHolder;
+import de.cubeisland.engine.core.attachment.AttachmentType;
 import de.cubeisland.engine.core.ban.IpBan;
 import de.cubeisland.engine.core.ban.UserBan;
 import de.cubeisland.engine.core.bukkit.BukkitCore;
@@ -79,7 +82,12 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
     private final UserEntity entity;
 
     boolean loggedInState = false;
-    private final Map<Class<? extends UserAttachment>, UserAttachment> attachments;
+    private static final UserAttachment[] NO_ATTACHMENTS = new UserAttachment[0];
+    // indexed by the slot of the AttachmentType, replaced on every change
+    private volatile UserAttachment[] attachments = NO_ATTACHMENTS;
+    private volatile Set<UserAttachment> attachmentSet = Collections.emptySet();
+    // the attachments overriding each AttachmentHook, indexed by its ordinal
+    private volatile List<List<UserAttachment>> subscribers;
     private final Core core;
 
     /**
@@ -92,7 +100,6 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
     {
         super(player.getUniqueId());
         this.entity = core.getDB().getDSL().newRecord(TABLE_USER).newUser(player);
-        this.attachments = new HashMap<>();
         this.core = core;
     }
 
@@ -106,7 +113,6 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
         super(entity.getUniqueId());
         this.core = CubeEngine.getCore();
         this.entity = entity;
-        this.attachments = new HashMap<>();
     }
 
     @Override
@@ -118,61 +124,68 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
     @Override
     public synchronized <A extends UserAttachment> A attach(Class<A> type, Module module)
     {
-        try
-        {
-            A attachment = type.newInstance();
-            attachment.attachTo(module, this);
-            @SuppressWarnings("unchecked")
-            A oldAttachment = (A) this.attachments.put(type, attachment);
-            if (oldAttachment != null)
-            {
-                oldAttachment.onDetach();
-            }
-            return attachment;
-        }
-        catch (Exception e)
+        AttachmentType<A> attachmentType = AttachmentType.of(type);
+        A attachment = attachmentType.newInstance();
+        attachment.attachTo(module, this);
+        UserAttachment oldAttachment = this.setAttachment(attachmentType.getSlot(), attachment);
+        if (oldAttachment != null)
         {
-            throw new IllegalArgumentException("The given attachment could not be created!", e);
+            oldAttachment.onDetach();
         }
+        return attachment;
     }
 
     @Override
-    public synchronized <A extends UserAttachment> A attachOrGet(Class<A> type, Module module)
+    public <A extends UserAttachment> A attachOrGet(Class<A> type, Module module)
     {
         A attachment = this.get(type);
         if (attachment == null)
         {
-            attachment = this.attach(type, module);
+            synchronized (this)
+            {
+                attachment = this.get(type);
+                if (attachment == null)
+                {
+                    attachment = this.attach(type, module);
+                }
+            }
         }
         return attachment;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public synchronized <A extends UserAttachment> A get(Class<A> type)
+    public <A extends UserAttachment> A get(Class<A> type)
     {
-        return (A)this.attachments.get(type);
+        int slot = AttachmentType.of(type).getSlot();
+        UserAttachment[] attachments = this.attachments;
+        // the slot might have belonged to the class of an unloaded module
+        return slot < attachments.length && type.isInstance(attachments[slot]) ? type.cast(attachments[slot]) : null;
     }
 
+    /**
+     * Returns all attachments of this user
+     *
+     * @return an unmodifiable snapshot of the attachments
+     */
     @Override
-    public synchronized Set<UserAttachment> getAll()
+    public Set<UserAttachment> getAll()
     {
-        return new HashSet<>(this.attachments.values());
+        return this.attachmentSet;
     }
 
     @Override
-    public synchronized <A extends UserAttachment> boolean has(Class<A> type)
+    public <A extends UserAttachment> boolean has(Class<A> type)
     {
-        return this.attachments.containsKey(type);
+        return this.get(type) != null;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public synchronized <A extends UserAttachment> A detach(Class<A> type)
     {
-        A attachment = (A)this.attachments.remove(type);
+        A attachment = this.get(type);
         if (attachment != null)
         {
+            this.setAttachment(AttachmentType.of(type).getSlot(), null);
             attachment.onDetach();
         }
         return attachment;
@@ -181,28 +194,104 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
     @Override
     public synchronized void detachAll(Module module)
     {
-        final Iterator<Entry<Class<? extends UserAttachment>, UserAttachment>> it = this.attachments.entrySet().iterator();
-        UserAttachment attachment;
-        while (it.hasNext())
+        UserAttachment[] attachments = this.attachments.clone();
+        for (int i = 0; i < attachments.length; i++)
         {
-            attachment = it.next().getValue();
-            if (attachment.getModule() == module)
+            if (attachments[i] != null && attachments[i].getModule() == module)
             {
-                attachment.onDetach();
-                it.remove();
+                attachments[i].onDetach();
+                attachments[i] = null;
             }
         }
+        this.publishAttachments(attachments);
     }
 
     @Override
     public synchronized void detachAll()
     {
-        final Iterator<Entry<Class<? extends UserAttachment>, UserAttachment>> it = this.attachments.entrySet().iterator();
-        while (it.hasNext())
+        UserAttachment[] attachments = this.attachments;
+        this.publishAttachments(NO_ATTACHMENTS);
+        for (UserAttachment attachment : attachments)
+        {
+            if (attachment != null)
+            {
+                attachment.onDetach();
+            }
+        }
+    }
+
+    /**
+     * Replaces the attachment in given slot, must be called while holding the lock on this user
+     *
+     * @param slot       the slot
+     * @param attachment the new attachment or null
+     *
+     * @return the previous attachment or null
+     */
+    private UserAttachment setAttachment(int slot, UserAttachment attachment)
+    {
+        UserAttachment[] attachments = this.attachments;
+        if (slot >= attachments.length)
+        {
+            if (attachment == null)
+            {
+                return null;
+            }
+            attachments = Arrays.copyOf(attachments, slot + 1);
+        }
+        else
+        {
+            attachments = attachments.clone();
+        }
+        UserAttachment oldAttachment = attachments[slot];
+        attachments[slot] = attachment;
+        this.publishAttachments(attachments);
+        return oldAttachment;
+    }
+
+    private void publishAttachments(UserAttachment[] attachments)
+    {
+        Set<UserAttachment> set = new LinkedHashSet<>();
+        for (UserAttachment attachment : attachments)
+        {
+            if (attachment != null)
+            {
+                set.add(attachment);
+            }
+        }
+        List<List<UserAttachment>> subscribers = new ArrayList<>(AttachmentHook.count());
+        for (int i = 0; i < AttachmentHook.count(); i++)
+        {
+            subscribers.add(new ArrayList<>());
+        }
+        for (UserAttachment attachment : set)
+        {
+            for (AttachmentHook hook : AttachmentHook.overriddenBy(attachment.getClass()))
+            {
+                subscribers.get(hook.ordinal()).add(attachment);
+            }
+        }
+        for (int i = 0; i < subscribers.size(); i++)
         {
-            it.next().getValue().onDetach();
-            it.remove();
+            List<UserAttachment> list = subscribers.get(i);
+            subscribers.set(i, list.isEmpty() ? Collections.<UserAttachment>emptyList() : Collections.unmodifiableList(list));
         }
+        this.attachments = attachments;
+        this.attachmentSet = set.isEmpty() ? Collections.<UserAttachment>emptySet() : Collections.unmodifiableSet(set);
+        this.subscribers = subscribers;
+    }
+
+    /**
+     * Returns the attachments of this user overriding the given hook
+     *
+     * @param hook the hook
+     *
+     * @return an unmodifiable snapshot of the subscribed attachments
+     */
+    public List<UserAttachment> getSubscribers(AttachmentHook hook)
+    {
+        List<List<UserAttachment>> subscribers = this.subscribers;
+        return subscribers == null ? Collections.<UserAttachment>emptyList() : subscribers.get(hook.ordinal());
     }
 
     public Long getId()
@@ -224,6 +313,19 @@ public class User extends UserBase implements CommandSender, AttachmentHolder<Us
         super.sendMessage(ChatFormat.parseFormats(string));
     }
 
+    /**
+     * Sends a message that is already translated and formatted
+     *
+     * @param message the message
+     */
+    void sendComposedMessage(String message)
+    {
+        if (message != null)
+        {
+            super.sendMessage(message);
+        }
+    }
+
     @Override
     public String getTranslation(MessageType type, String message, Object... params)
     {
@@ -0,0 +1,351 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.jooq.types.UInteger;
+
+/**
+ * A bounded cache for loaded Users indexed by UUID and database ID.
+ * <p>Unpinned users are evicted once they were not accessed for the configured time
+ * or when the cache exceeds its maximum size (least recently accessed first).
+ * Pinned users (e.g. online players) are never evicted.
+ * <p>Lookups are lock-free, modifications are synchronized.
+ */
+public class UserCache
+{
+    private final ConcurrentHashMap<UUID, Entry> byUUID = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UInteger, Entry> byDbId = new ConcurrentHashMap<>();
+    // the unpinned entries in the order they were queued, guarded by this
+    private final LinkedHashMap<UUID, Entry> unpinned = new LinkedHashMap<>();
+
+    private final int maximumSize;
+    private final long expireAfterAccess;
+    private final Consumer<User> evictionListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+
+    /**
+     * @param maximumSize       the maximum amount of users to keep
+     * @param expireAfterAccess the time in milliseconds an unpinned user is kept after its last access
+     * @param evictionListener  called for every evicted user
+     */
+    public UserCache(int maximumSize, long expireAfterAccess, Consumer<User> evictionListener)
+    {
+        this.maximumSize = maximumSize;
+        this.expireAfterAccess = expireAfterAccess;
+        this.evictionListener = evictionListener;
+    }
+
+    public User get(UUID uuid)
+    {
+        return this.access(this.byUUID.get(uuid));
+    }
+
+    public User get(UInteger id)
+    {
+        return this.access(this.byDbId.get(id));
+    }
+
+    /**
+     * Returns the cached user without recording an access
+     *
+     * @param uuid the uuid
+     *
+     * @return the user or null if not cached
+     */
+    public User peek(UUID uuid)
+    {
+        Entry entry = this.byUUID.get(uuid);
+        return entry == null ? null : entry.user;
+    }
+
+    private User access(Entry entry)
+    {
+        if (entry == null)
+        {
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        entry.lastAccess = System.currentTimeMillis();
+        return entry.user;
+    }
+
+    public synchronized void put(User user)
+    {
+        Entry old = this.byUUID.get(user.getUniqueId());
+        if (old != null && old.user == user)
+        {
+            old.lastAccess = System.currentTimeMillis();
+            return;
+        }
+        Entry entry = new Entry(user);
+        if (old != null)
+        {
+            // another instance of the same user gets replaced
+            entry.pinned = old.pinned;
+            this.discard(old);
+            this.evictionListener.accept(old.user);
+        }
+        this.byUUID.put(user.getUniqueId(), entry);
+        this.indexDbId(entry);
+        if (!entry.pinned)
+        {
+            this.enqueue(entry);
+        }
+        this.evictOverflow();
+    }
+
+    /**
+     * Indexes the user by its database ID if it was not known when it was cached, e.g. after inserting a new user
+     *
+     * @param user the user
+     */
+    public synchronized void index(User user)
+    {
+        Entry entry = this.byUUID.get(user.getUniqueId());
+        if (entry != null && entry.user == user && entry.dbId == null)
+        {
+            this.indexDbId(entry);
+        }
+    }
+
+    private void indexDbId(Entry entry)
+    {
+        UInteger id = entry.user.getEntity().getKey();
+        if (id != null && id.longValue() != 0) // new users get their ID once inserted
+        {
+            entry.dbId = id;
+            this.byDbId.put(id, entry);
+        }
+    }
+
+    /**
+     * Removes the user without notifying the eviction listener
+     *
+     * @param user the user to remove
+     *
+     * @return true if the user was cached
+     */
+    public synchronized boolean remove(User user)
+    {
+        Entry entry = this.byUUID.get(user.getUniqueId());
+        if (entry != null && entry.user == user)
+        {
+            this.discard(entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prevents the user from being evicted until {@link #unpin(User)} is called
+     *
+     * @param user the user
+     */
+    public synchronized void pin(User user)
+    {
+        Entry entry = this.byUUID.get(user.getUniqueId());
+        if (entry == null || entry.user != user)
+        {
+            this.put(user);
+            entry = this.byUUID.get(user.getUniqueId());
+        }
+        entry.pinned = true;
+        this.unpinned.remove(user.getUniqueId());
+    }
+
+    public synchronized void unpin(User user)
+    {
+        Entry entry = this.byUUID.get(user.getUniqueId());
+        if (entry != null && entry.pinned)
+        {
+            entry.lastAccess = System.currentTimeMillis();
+            entry.pinned = false;
+            this.enqueue(entry);
+            this.evictOverflow();
+        }
+    }
+
+    /**
+     * Records the time needed to load a user from the database
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void recordLoad(long nanos)
+    {
+        this.loads.increment();
+        this.loadTime.add(nanos);
+    }
+
+    /**
+     * Evicts all expired users and shrinks the cache to its maximum size
+     */
+    public synchronized void cleanUp()
+    {
+        final long expireBefore = System.currentTimeMillis() - this.expireAfterAccess;
+        for (Entry entry : this.unpinned.values().toArray(new Entry[this.unpinned.size()]))
+        {
+            if (entry.lastAccess < expireBefore)
+            {
+                this.evict(entry);
+            }
+        }
+        this.evictOverflow();
+    }
+
+    /**
+     * Evicts the least recently accessed unpinned users while the cache is too big.
+     * <p>Reads only update the access time of an entry, so the queue is ordered by the time the entries were queued.
+     * An entry accessed since then gets a second chance at the tail, which makes each eviction amortized O(1).
+     */
+    private void evictOverflow()
+    {
+        int chances = this.unpinned.size();
+        while (this.byUUID.size() > this.maximumSize && !this.unpinned.isEmpty())
+        {
+            Iterator<Entry> it = this.unpinned.values().iterator();
+            Entry eldest = it.next();
+            if (chances-- > 0 && eldest.lastAccess > eldest.queuedAt)
+            {
+                it.remove();
+                this.enqueue(eldest);
+                continue;
+            }
+            this.evict(eldest);
+        }
+    }
+
+    private void enqueue(Entry entry)
+    {
+        entry.queuedAt = System.currentTimeMillis();
+        this.unpinned.put(entry.user.getUniqueId(), entry);
+    }
+
+    private void discard(Entry entry)
+    {
+        this.byUUID.remove(entry.user.getUniqueId(), entry);
+        if (entry.dbId != null)
+        {
+            this.byDbId.remove(entry.dbId, entry);
+        }
+        this.unpinned.remove(entry.user.getUniqueId(), entry);
+    }
+
+    private void evict(Entry entry)
+    {
+        this.discard(entry);
+        this.evictions.increment();
+        this.evictionListener.accept(entry.user);
+    }
+
+    public Collection<User> values()
+    {
+        List<User> users = new ArrayList<>(this.byUUID.size());
+        for (Entry entry : this.byUUID.values())
+        {
+            users.add(entry.user);
+        }
+        return users;
+    }
+
+    public int size()
+    {
+        return this.byUUID.size();
+    }
+
+    public int getMaximumSize()
+    {
+        return this.maximumSize;
+    }
+
+    public synchronized void clear()
+    {
+        this.byUUID.clear();
+        this.byDbId.clear();
+        this.unpinned.clear();
+    }
+
+    public long getHitCount()
+    {
+        return this.hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return this.misses.sum();
+    }
+
+    public double getHitRate()
+    {
+        long hits = this.hits.sum();
+        long total = hits + this.misses.sum();
+        return total == 0 ? 1.0 : (double)hits / total;
+    }
+
+    public long getEvictionCount()
+    {
+        return this.evictions.sum();
+    }
+
+    public long getLoadCount()
+    {
+        return this.loads.sum();
+    }
+
+    /**
+     * Returns the average time needed to load a user
+     *
+     * @param unit the unit of the returned time
+     *
+     * @return the average load time
+     */
+    public long getAverageLoadTime(TimeUnit unit)
+    {
+        long loads = this.loads.sum();
+        return loads == 0 ? 0 : unit.convert(this.loadTime.sum() / loads, TimeUnit.NANOSECONDS);
+    }
+
+    private static final class Entry
+    {
+        private final User user;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile boolean pinned = false;
+        private long queuedAt;
+        private UInteger dbId;
+
+        private Entry(User user)
+        {
+            this.user = user;
+        }
+    }
+}
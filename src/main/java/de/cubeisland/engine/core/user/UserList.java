@@ -27,8 +27,6 @@ import de.cubeisland.engine.butler.parameter.reader.ReaderException;
 import de.cubeisland.engine.core.CubeEngine;
 import de.cubeisland.engine.core.command.CommandSender;
 
-import static de.cubeisland.engine.core.util.StringUtils.startsWithIgnoreCase;
-
 /**
  * Represents a list of users.
  * If it is all users the list is the currently online users
@@ -95,12 +93,11 @@ public class UserList
             }
 
             final CommandSender sender = (CommandSender)invocation.getCommandSource();
-            for (User player : CubeEngine.getUserManager().getOnlineUsers())
+            for (User player : CubeEngine.getUserManager().getOnlineUsersByPrefix(invocation.currentToken()))
             {
-                String name = player.getName();
-                if (canSee(sender,  player) && startsWithIgnoreCase(name, invocation.currentToken()))
+                if (canSee(sender,  player))
                 {
-                    list.add(name);
+                    list.add(player.getName());
                 }
             }
             list.remove(sender.getName());
@@ -17,8 +17,10 @@
  */
 package de.cubeisland.engine.core.user;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import de.cubeisland.engine.core.command.CommandSender;
 import de.cubeisland.engine.core.module.Module;
 import de.cubeisland.engine.core.permission.Permission;
@@ -30,12 +32,82 @@ import org.jooq.types.UInteger;
 
 public interface UserManager extends Cleanable
 {
+    /**
+     * Logs the user in by hashing the password on the calling thread
+     *
+     * @deprecated blocks the calling thread while hashing, use {@link #loginAsync(User, String)}
+     */
+    @Deprecated
     boolean login(User user, String password);
 
+    /**
+     * Logs the user in without hashing the password on the calling thread.
+     * <p>The login state is set and the UserAuthorizedEvent is fired on the main thread
+     *
+     * @param user     the user
+     * @param password the password
+     *
+     * @return whether the user is logged in
+     */
+    CompletableFuture<Boolean> loginAsync(User user, String password);
+
+    /**
+     * Checks the password by hashing it on the calling thread
+     *
+     * @deprecated blocks the calling thread while hashing, use {@link #checkPasswordAsync(User, String)}
+     */
+    @Deprecated
     boolean checkPassword(User user, String password);
 
+    /**
+     * Checks the password on the password hashing threads
+     *
+     * @param user     the user
+     * @param password the password
+     *
+     * @return whether the password is correct
+     */
+    CompletableFuture<Boolean> checkPasswordAsync(User user, String password);
+
+    /**
+     * Checks the password on the password hashing threads.
+     * <p>Verified passwords are remembered for the user and connection for a short time
+     *
+     * @param user       the user
+     * @param password   the password
+     * @param connection identifies the connection the password was sent from
+     *
+     * @return whether the password is correct
+     */
+    CompletableFuture<Boolean> checkPasswordAsync(User user, String password, String connection);
+
+    /**
+     * Sets the password by hashing it on the calling thread
+     *
+     * @deprecated blocks the calling thread while hashing, use {@link #setPasswordAsync(User, String)}
+     */
+    @Deprecated
     void setPassword(User user, String password);
 
+    /**
+     * Hashes the password on the password hashing threads and stores it on the main thread
+     *
+     * @param user     the user
+     * @param password the password
+     *
+     * @return completes once the password was set
+     */
+    CompletableFuture<Void> setPasswordAsync(User user, String password);
+
+    PasswordHasher getPasswordHasher();
+
+    /**
+     * Replaces the PasswordHasher. Existing hashes have to be verifiable by the new hasher
+     *
+     * @param hasher the hasher
+     */
+    void setPasswordHasher(PasswordHasher hasher);
+
     void resetPassword(User user);
 
     void resetAllPasswords();
@@ -65,6 +137,17 @@ public interface UserManager extends Cleanable
      */
     User getExactUser(UUID uuid);
 
+    /**
+     * Gets a user by its UUID without blocking the calling thread (creates a new user if not found)
+     * <p>The database lookup runs on the database executor, the returned future completes on the main thread.
+     * Concurrent calls for the same UUID share the same future.
+     *
+     * @param uuid the uuid
+     *
+     * @return a future completing with the user
+     */
+    CompletableFuture<User> getExactUserAsync(UUID uuid);
+
     /**
      * Gets a user by his database ID
      *
@@ -83,6 +166,36 @@ public interface UserManager extends Cleanable
      */
     User findExactUser(String name);
 
+    /**
+     * Gets a user by his name without blocking the calling thread
+     * <p>Loaded users are returned immediately, the database lookup runs on the database executor
+     * and the returned future completes on the main thread.
+     *
+     * @param name the name to get the user by
+     *
+     * @return a future completing with the user or null if not found
+     */
+    CompletableFuture<User> findExactUserAsync(String name);
+
+    /**
+     * Gets an online or loaded user by his name ignoring the case without querying the database
+     *
+     * @param name the name
+     *
+     * @return the user or null if not loaded
+     */
+    User getLoadedUser(String name);
+
+    /**
+     * Matches the name against the names of all loaded users allowing typos and prefixes
+     * without querying the database
+     *
+     * @param name the name
+     *
+     * @return the best matching user or null
+     */
+    User matchLoadedUser(String name);
+
     /**
      * Queries the database directly if the user is not loaded to get its name.
      * <p>Only use with valid key!
@@ -94,12 +207,28 @@ public interface UserManager extends Cleanable
     /**
      * Returns all the users that are currently online
      *
-     * @return a unmodifiable List of players
+     * @return an immutable snapshot of the online users
      */
     Set<User> getOnlineUsers();
 
+    /**
+     * Returns the online users whose name starts with given prefix ignoring the case
+     *
+     * @param prefix the prefix
+     *
+     * @return the matching online users
+     */
+    Collection<User> getOnlineUsersByPrefix(String prefix);
+
     Set<User> getLoadedUsers();
 
+    /**
+     * Returns the cache holding the loaded users
+     *
+     * @return the user cache
+     */
+    UserCache getUserCache();
+
     void shutdown();
 
     /**
@@ -116,12 +245,24 @@ public interface UserManager extends Cleanable
      * Finds an User (can also search for matches in the database)
      *
      * @param name     the name
-     * @param database matches in the database too if true
+     * @param database matches names starting with the name in the database too if true
      *
      * @return the found User or null
      */
     User findUser(String name, boolean database);
 
+    /**
+     * Finds an User without blocking the calling thread
+     * <p>Online users are matched immediately, the database lookup runs on the database executor
+     * and the returned future completes on the main thread.
+     *
+     * @param name     the name
+     * @param database matches in the database too if true
+     *
+     * @return a future completing with the found User or null
+     */
+    CompletableFuture<User> findUserAsync(String name, boolean database);
+
     /**
      * Broadcasts a translated message
      * @param messageType the messageType
@@ -17,23 +17,41 @@
  */
 package de.cubeisland.engine.core.util;
 
-
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.CubeEngine;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.module.ModuleClassLoader;
 import de.cubeisland.engine.core.task.TaskManager;
+import de.cubeisland.engine.core.task.TaskPriority;
 
+/**
+ * Watches the ticks of the main thread.
+ * <p>When no tick happened within the lag threshold the stack of the main thread is sampled
+ * until it ticks again and the stall listeners receive a {@link StallReport}.
+ * When no tick happened within the freeze threshold the freeze listeners are notified once.
+ */
 public class FreezeDetection
 {
     private final Core core;
     private final TaskManager taskManager;
     private ScheduledExecutorService executor;
     private int taskId;
-    private long lastHeartbeat;
+    private volatile long lastHeartbeat;
     private final long freezeThreshold;
+    private final long lagThreshold;
+    private final long sampleInterval;
     private final ConcurrentLinkedQueue<Runnable> listeners = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Consumer<StallReport>> stallListeners = new ConcurrentLinkedQueue<>();
     private volatile boolean freezeNotified = false;
 
     public FreezeDetection(Core core, long freezeThreshold)
@@ -42,13 +60,27 @@ public class FreezeDetection
     }
 
     public FreezeDetection(Core core, long freezeThreshold, TimeUnit unit)
+    {
+        this(core, freezeThreshold, unit, unit.toMillis(freezeThreshold), 10);
+    }
+
+    /**
+     * @param core            the core
+     * @param freezeThreshold the time without a tick after which the freeze listeners are notified
+     * @param unit            the unit of the freeze threshold
+     * @param lagThreshold    the time in milliseconds without a tick after which the main thread is sampled
+     * @param sampleInterval  the time in milliseconds between two samples
+     */
+    public FreezeDetection(Core core, long freezeThreshold, TimeUnit unit, long lagThreshold, long sampleInterval)
     {
         this.core = core;
         this.taskManager = this.core.getTaskManager();
         this.executor = null;
         this.taskId = -1;
         this.lastHeartbeat = -1;
-        this.freezeThreshold = unit.toMillis(freezeThreshold);
+        this.freezeThreshold = unit.toNanos(freezeThreshold);
+        this.lagThreshold = TimeUnit.MILLISECONDS.toNanos(lagThreshold);
+        this.sampleInterval = Math.max(1, sampleInterval);
     }
 
     public void addListener(Runnable r)
@@ -61,17 +93,27 @@ public class FreezeDetection
         this.listeners.remove(r);
     }
 
+    public void addStallListener(Consumer<StallReport> listener)
+    {
+        this.stallListeners.add(listener);
+    }
+
+    public void removeStallListener(Consumer<StallReport> listener)
+    {
+        this.stallListeners.remove(listener);
+    }
+
     public void start()
     {
-        this.taskId = this.taskManager.runAsynchronousTimer(core.getModuleManager().getCoreModule(), new HeartbeatLogger(), 0, 1);
+        this.taskId = this.taskManager.runTimer(core.getModuleManager().getCoreModule(), new HeartbeatLogger(), 0, 1, TaskPriority.HIGH);
         if (this.taskId == -1)
         {
             throw new RuntimeException("Failed to schedule the heartbeat logging for freeze detection");
         }
         this.executor = Executors.newSingleThreadScheduledExecutor(core.getTaskManager().getThreadFactory());
-        this.executor.scheduleAtFixedRate(new FreezeDetector(), this.freezeThreshold, this.freezeThreshold, TimeUnit.MILLISECONDS);
+        this.executor.scheduleAtFixedRate(new FreezeDetector(), this.sampleInterval, this.sampleInterval, TimeUnit.MILLISECONDS);
 
-        this.lastHeartbeat = System.currentTimeMillis();
+        this.lastHeartbeat = System.nanoTime();
     }
 
     public void shutdown()
@@ -94,6 +136,7 @@ public class FreezeDetection
         }
 
         this.listeners.clear();
+        this.stallListeners.clear();
     }
 
     private class HeartbeatLogger implements Runnable
@@ -101,23 +144,106 @@ public class FreezeDetection
         @Override
         public void run()
         {
-            lastHeartbeat = System.currentTimeMillis();
+            lastHeartbeat = System.nanoTime();
             freezeNotified = false;
         }
     }
 
     private class FreezeDetector implements Runnable
     {
+        private Map<List<StackTraceElement>, Integer> samples = null;
+        private long stallStart;
+
         @Override
         public void run()
         {
-            if (System.currentTimeMillis() - lastHeartbeat > freezeThreshold && !freezeNotified)
+            final long heartbeat = lastHeartbeat;
+            final long lag = System.nanoTime() - heartbeat;
+            if (lag > lagThreshold)
+            {
+                if (this.samples == null)
+                {
+                    this.samples = new HashMap<>();
+                    this.stallStart = heartbeat;
+                }
+                this.samples.merge(Arrays.asList(CubeEngine.getMainThread().getStackTrace()), 1, Integer::sum);
+            }
+            else if (this.samples != null)
+            {
+                Map<List<StackTraceElement>, Integer> samples = this.samples;
+                this.samples = null;
+                if (!stallListeners.isEmpty())
+                {
+                    StallReport report = this.fold(samples, TimeUnit.NANOSECONDS.toMillis(heartbeat - this.stallStart));
+                    for (Consumer<StallReport> listener : stallListeners)
+                    {
+                        listener.accept(report);
+                    }
+                }
+            }
+
+            if (lag > freezeThreshold && !freezeNotified)
             {
                 freezeNotified = true;
-                for (Runnable listener : listeners) {
+                for (Runnable listener : listeners)
+                {
                     listener.run();
                 }
             }
         }
+
+        /**
+         * Folds the samples and attributes their frames to modules.
+         * <p>This only runs once the main thread ticks again, as looking up the modules may need locks held by it.
+         */
+        private StallReport fold(Map<List<StackTraceElement>, Integer> samples, long duration)
+        {
+            Map<String, String> classModules = new HashMap<>();
+            Map<String, Integer> stacks = new HashMap<>();
+            Map<String, Integer> modules = new HashMap<>();
+            Iterable<Module> loadedModules = core.getModuleManager().getModules();
+            int count = 0;
+            for (Entry<List<StackTraceElement>, Integer> entry : samples.entrySet())
+            {
+                List<StackTraceElement> trace = entry.getKey();
+                StringBuilder folded = new StringBuilder();
+                String topModule = null;
+                for (int i = trace.size() - 1; i >= 0; i--)
+                {
+                    StackTraceElement frame = trace.get(i);
+                    String module = classModules.computeIfAbsent(frame.getClassName(), name -> findModule(loadedModules, name));
+                    if (folded.length() > 0)
+                    {
+                        folded.append(';');
+                    }
+                    if (!module.isEmpty())
+                    {
+                        folded.append('[').append(module).append(']');
+                        topModule = module;
+                    }
+                    folded.append(frame.getClassName()).append('.').append(frame.getMethodName());
+                }
+                stacks.merge(folded.toString(), entry.getValue(), Integer::sum);
+                if (topModule != null)
+                {
+                    modules.merge(topModule, entry.getValue(), Integer::sum);
+                }
+                count += entry.getValue();
+            }
+            return new StallReport(duration, count, stacks, modules);
+        }
+
+        private String findModule(Iterable<Module> modules, String className)
+        {
+            for (Module module : modules)
+            {
+                ClassLoader loader = module.getClassLoader();
+                if (loader instanceof ModuleClassLoader && ((ModuleClassLoader)loader).hasDefined(className))
+                {
+                    return module.getId();
+                }
+            }
+            return "";
+        }
     }
 }
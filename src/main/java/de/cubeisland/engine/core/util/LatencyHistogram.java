@@ -0,0 +1,113 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds.
+ * <p>Values are counted in power of two buckets, so percentiles are accurate within a factor of two.
+ */
+public class LatencyHistogram
+{
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Records a duration
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos) - (nanos == 0 ? 0 : 1));
+        this.count.increment();
+        this.total.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    public long getCount()
+    {
+        return this.count.sum();
+    }
+
+    public long getTotal(TimeUnit unit)
+    {
+        return unit.convert(this.total.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMax(TimeUnit unit)
+    {
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMean(TimeUnit unit)
+    {
+        long count = this.count.sum();
+        return count == 0 ? 0 : unit.convert(this.total.sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile
+     *
+     * @param percentile the percentile between 0 and 1
+     * @param unit       the unit of the returned value
+     *
+     * @return the estimated percentile
+     */
+    public long getPercentile(double percentile, TimeUnit unit)
+    {
+        long count = this.count.sum();
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = (long)Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < 64; i++)
+        {
+            seen += this.buckets.get(i);
+            if (seen >= rank)
+            {
+                long upperBound = i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+                return unit.convert(Math.min(upperBound, this.max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < 64; i++)
+        {
+            this.buckets.set(i, 0);
+        }
+        this.count.reset();
+        this.total.reset();
+        this.max.reset();
+    }
+}
@@ -17,29 +17,84 @@
  */
 package de.cubeisland.engine.core.util;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import static de.cubeisland.engine.core.contract.Contract.expectNotNull;
 
 /**
- * This class helps profiling code
+ * This class helps profiling code.
+ * <p>Spans are opened for a {@link Handle} registered once, usually in a static field:
+ * <pre>
+ * private static final Profiler.Handle LOAD = Profiler.handle("user.load", 1);
+ *
+ * try (Profiler.Span span = Profiler.start(LOAD))
+ * {
+ *     // measured code
+ * }
+ * </pre>
+ * Spans are kept on a stack per thread, so they can be nested and never contend with other threads.
+ * Opening and closing a span does not allocate and the times are recorded into the lock-free histogram of the handle.
  */
 public class Profiler
 {
-    private static final Map<String, Long> startTimes = new HashMap<>();
+    private static final Map<String, Handle> handles = new ConcurrentHashMap<>();
+    private static final ThreadLocal<SpanStack> spans = ThreadLocal.withInitial(SpanStack::new);
+    private static final ThreadLocal<Map<String, Long>> startTimes = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Returns the handle with the given name, registering it if necessary
+     *
+     * @param name       the name
+     * @param sampleRate only every sampleRate-th span (on average) is measured, 1 measures all
+     *
+     * @return the handle
+     */
+    public static Handle handle(String name, int sampleRate)
+    {
+        expectNotNull(name, "The name must not be null!");
+        if (sampleRate < 1)
+        {
+            throw new IllegalArgumentException("The sample rate must be at least 1!");
+        }
+        return handles.computeIfAbsent(name, n -> new Handle(n, sampleRate));
+    }
+
+    /**
+     * Returns all registered handles
+     *
+     * @return an unmodifiable map of names to their handles
+     */
+    public static Map<String, Handle> getHandles()
+    {
+        return Collections.unmodifiableMap(handles);
+    }
+
+    /**
+     * Opens a span on the current thread, it must be closed on the same thread
+     *
+     * @param handle the handle
+     *
+     * @return the span to close
+     */
+    public static Span start(Handle handle)
+    {
+        SpanStack stack = spans.get();
+        stack.push(handle);
+        return stack;
+    }
 
     public static void startProfiling(String id)
     {
         final long nanos = System.nanoTime();
-        synchronized (startTimes)
+        if (startTimes.get().putIfAbsent(id, nanos) != null)
         {
-            if (startTimes.containsKey(id))
-            {
-                throw new IllegalStateException("This ID is already being profiled!");
-            }
-            startTimes.put(id, nanos);
+            throw new IllegalStateException("This ID is already being profiled!");
         }
     }
 
@@ -47,14 +102,12 @@ public class Profiler
     {
         final long nanos = System.nanoTime();
         expectNotNull(id, "The ID must not be null!");
-        synchronized (startTimes)
+        Long start = startTimes.get().get(id);
+        if (start == null)
         {
-            if (!startTimes.containsKey(id))
-            {
-                throw new IllegalStateException("This ID is not being profiled!");
-            }
-            return nanos - startTimes.get(id);
+            throw new IllegalStateException("This ID is not being profiled!");
         }
+        return nanos - start;
     }
 
     public static long getCurrentDelta(String id, TimeUnit unit)
@@ -66,10 +119,12 @@ public class Profiler
     {
         final long delta = System.nanoTime();
         expectNotNull(id, "The ID must not be null!");
-        synchronized (startTimes)
+        Long start = startTimes.get().remove(id);
+        if (start == null)
         {
-            return delta - startTimes.remove(id);
+            throw new IllegalStateException("This ID is not being profiled!");
         }
+        return delta - start;
     }
 
     public static long endProfiling(String id, TimeUnit unit)
@@ -77,11 +132,97 @@ public class Profiler
         return unit.convert(endProfiling(id), TimeUnit.NANOSECONDS);
     }
 
+    /**
+     * Resets the spans and the profiling IDs of the current thread and the histograms of all handles
+     */
     public static void clean()
     {
-        synchronized (startTimes)
+        startTimes.remove();
+        spans.remove();
+        for (Handle handle : handles.values())
+        {
+            handle.histogram.reset();
+        }
+    }
+
+    public static final class Handle
+    {
+        private final String name;
+        private final int sampleRate;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Handle(String name, int sampleRate)
+        {
+            this.name = name;
+            this.sampleRate = sampleRate;
+        }
+
+        public String getName()
         {
-            startTimes.clear();
+            return this.name;
+        }
+
+        public int getSampleRate()
+        {
+            return this.sampleRate;
+        }
+
+        /**
+         * Returns the times of the measured spans
+         *
+         * @return the histogram
+         */
+        public LatencyHistogram getHistogram()
+        {
+            return this.histogram;
+        }
+    }
+
+    /**
+     * An open span, closing it records its time
+     */
+    public interface Span extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+
+    /**
+     * The open spans of one thread. It is its own {@link Span}, closing it closes the innermost span.
+     */
+    private static final class SpanStack implements Span
+    {
+        private Handle[] handles = new Handle[8];
+        private long[] starts = new long[8];
+        private int depth = 0;
+
+        private void push(Handle handle)
+        {
+            if (this.depth == this.handles.length)
+            {
+                this.handles = Arrays.copyOf(this.handles, this.depth * 2);
+                this.starts = Arrays.copyOf(this.starts, this.depth * 2);
+            }
+            boolean sampled = handle.sampleRate == 1 || ThreadLocalRandom.current().nextInt(handle.sampleRate) == 0;
+            this.handles[this.depth] = sampled ? handle : null; // spans not sampled are only kept for nesting
+            this.starts[this.depth] = sampled ? System.nanoTime() : 0;
+            this.depth++;
+        }
+
+        @Override
+        public void close()
+        {
+            if (this.depth == 0)
+            {
+                throw new IllegalStateException("There is no open span on this thread!");
+            }
+            this.depth--;
+            Handle handle = this.handles[this.depth];
+            if (handle != null)
+            {
+                handle.histogram.record(System.nanoTime() - this.starts[this.depth]);
+                this.handles[this.depth] = null;
+            }
         }
     }
 }
@@ -0,0 +1,105 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The stack samples of the main thread taken while it stalled.
+ * <p>The stacks are folded (frames from the root to the top separated by semicolons)
+ * so the report can be fed directly into flame graph tools.
+ */
+public class StallReport
+{
+    private final long duration;
+    private final int samples;
+    private final Map<String, Integer> stacks;
+    private final Map<String, Integer> modules;
+
+    /**
+     * @param duration the duration of the stall in milliseconds
+     * @param samples  the amount of samples taken
+     * @param stacks   the folded stacks and how often they were sampled
+     * @param modules  the module ids and how often one of their frames was the top-most module frame
+     */
+    public StallReport(long duration, int samples, Map<String, Integer> stacks, Map<String, Integer> modules)
+    {
+        this.duration = duration;
+        this.samples = samples;
+        this.stacks = Collections.unmodifiableMap(stacks);
+        this.modules = Collections.unmodifiableMap(modules);
+    }
+
+    public long getDuration()
+    {
+        return this.duration;
+    }
+
+    public int getSamples()
+    {
+        return this.samples;
+    }
+
+    public Map<String, Integer> getStacks()
+    {
+        return this.stacks;
+    }
+
+    public Map<String, Integer> getModules()
+    {
+        return this.modules;
+    }
+
+    /**
+     * Returns the most often sampled stacks
+     *
+     * @param limit the maximum amount of stacks
+     *
+     * @return the folded stacks, most often sampled first
+     */
+    public List<Entry<String, Integer>> getTopStacks(int limit)
+    {
+        List<Entry<String, Integer>> stacks = new ArrayList<>(this.stacks.entrySet());
+        stacks.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        return stacks.size() > limit ? stacks.subList(0, limit) : stacks;
+    }
+
+    /**
+     * Writes the folded stacks, one stack and its sample count per line
+     *
+     * @param writer the writer
+     *
+     * @throws IOException if the writer fails
+     */
+    public void write(Writer writer) throws IOException
+    {
+        for (Entry<String, Integer> entry : this.stacks.entrySet())
+        {
+            writer.write(entry.getKey());
+            writer.write(' ');
+            writer.write(String.valueOf(entry.getValue()));
+            writer.write('\n');
+        }
+    }
+}
@@ -33,4 +33,9 @@ public @interface Action
     public String value() default "";
 
     public boolean needsAuth() default true;
+
+    /**
+     * Where this action gets executed
+     */
+    public Execution execution() default Execution.BLOCKING;
 }
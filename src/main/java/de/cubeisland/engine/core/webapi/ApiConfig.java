@@ -40,9 +40,21 @@ public class ApiConfig extends ReflectedYaml
         @Comment("The maximum number of threads for the API server")
         public int maxThreads = 2;
 
+        @Comment("The number of threads executing blocking API actions")
+        public int workerThreads = 4;
+
+        @Comment("The maximum number of blocking API actions waiting for a worker thread")
+        public int workerQueueSize = 64;
+
         @Comment("The maxiumum number of concurrent connections from one ip")
         public int maxConnectionPerIp = 2;
 
+        @Comment("The maximum number of requests per second from one ip")
+        public int maxRequestsPerSecond = 20;
+
+        @Comment("The time in seconds after which an idle keep-alive connection gets closed")
+        public int keepAliveTimeout = 30;
+
         @Comment("The maximum amount of data written from a request")
         public int maxContentLength = 1048576;
     }
@@ -28,14 +28,21 @@ public abstract class ApiHandler
     private final Permission permission;
     private final LinkedHashMap<String, Class> parameters;
     private final RequestMethod reqMethod;
+    private final Execution execution;
 
     protected ApiHandler(Module module, String route, Permission perm, LinkedHashMap<String, Class> params, RequestMethod reqMethod)
+    {
+        this(module, route, perm, params, reqMethod, Execution.BLOCKING);
+    }
+
+    protected ApiHandler(Module module, String route, Permission perm, LinkedHashMap<String, Class> params, RequestMethod reqMethod, Execution execution)
     {
         this.module = module;
         this.route = route;
         this.permission = perm;
         this.parameters = params;
         this.reqMethod = reqMethod;
+        this.execution = execution;
     }
 
     public abstract ApiResponse execute(ApiRequest request);
@@ -64,4 +71,9 @@ public abstract class ApiHandler
     {
         return reqMethod;
     }
+
+    public Execution getExecution()
+    {
+        return execution;
+    }
 }
@@ -26,9 +26,13 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -71,6 +75,9 @@ public class ApiServer
     private final AtomicReference<EventLoopGroup> eventLoopGroup = new AtomicReference<>(null);
     private final AtomicReference<Channel> channel = new AtomicReference<>(null);
     private final AtomicInteger maxThreads = new AtomicInteger(2);
+    private final AtomicInteger workerThreads = new AtomicInteger(4);
+    private final AtomicInteger workerQueueSize = new AtomicInteger(64);
+    private final AtomicReference<ThreadPoolExecutor> workerPool = new AtomicReference<>(null);
     private final Set<String> disabledRoutes = new CopyOnWriteArraySet<>();
     private final AtomicBoolean enableWhitelist = new AtomicBoolean(false);
     private final Set<InetAddress> whitelist = new CopyOnWriteArraySet<>();
@@ -79,9 +86,11 @@ public class ApiServer
     private final AtomicBoolean enableAuthorizedList = new AtomicBoolean(false);
     private final Set<InetAddress> authorizedList = new CopyOnWriteArraySet<>();
 
-    private final ConcurrentMap<String, ApiHandler> handlers = new ConcurrentHashMap<>();
+    private final Router router = new Router();
     private final ConcurrentMap<String, Set<WebSocketRequestHandler>> subscriptions = new ConcurrentHashMap<>();
     private final AtomicInteger maxConnectionCount = new AtomicInteger(1);
+    private final AtomicInteger maxRequestsPerSecond = new AtomicInteger(20);
+    private final AtomicInteger keepAliveTimeout = new AtomicInteger(30);
 
 
     public ApiServer(Core core)
@@ -123,7 +132,11 @@ public class ApiServer
         }
         this.setPort(config.network.port);
         this.setMaxThreads(config.network.maxThreads);
+        this.setWorkerThreads(config.network.workerThreads);
+        this.setWorkerQueueSize(config.network.workerQueueSize);
         this.setMaxConnectionCount(config.network.maxConnectionPerIp);
+        this.setMaxRequestsPerSecond(config.network.maxRequestsPerSecond);
+        this.setKeepAliveTimeout(config.network.keepAliveTimeout);
 
         this.setCompressionEnabled(config.compression.enable);
         this.setCompressionLevel(config.compression.level);
@@ -153,6 +166,12 @@ public class ApiServer
 
             try
             {
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(this.workerThreads.get(), this.workerThreads.get(),
+                                                                 60, TimeUnit.SECONDS,
+                                                                 new ArrayBlockingQueue<Runnable>(this.workerQueueSize.get()),
+                                                                 this.core.getTaskManager().getThreadFactory());
+                pool.allowCoreThreadTimeOut(true);
+                this.workerPool.set(pool);
                 this.eventLoopGroup.set(new NioEventLoopGroup(this.maxThreads.get(), this.core.getTaskManager()
                                                                                               .getThreadFactory()));
                 serverBootstrap.group(this.eventLoopGroup.get())
@@ -167,7 +186,16 @@ public class ApiServer
             {
                 this.bootstrap.set(null);
                 this.channel.set(null);
-                this.eventLoopGroup.getAndSet(null).shutdownGracefully(2, 5, TimeUnit.SECONDS);
+                ThreadPoolExecutor pool = this.workerPool.getAndSet(null);
+                if (pool != null)
+                {
+                    pool.shutdown();
+                }
+                EventLoopGroup group = this.eventLoopGroup.getAndSet(null);
+                if (group != null)
+                {
+                    group.shutdownGracefully(2, 5, TimeUnit.SECONDS);
+                }
                 throw new ApiStartupException("The API server failed to start!", e);
             }
         }
@@ -186,6 +214,7 @@ public class ApiServer
             this.bootstrap.set(null);
             this.channel.set(null);
             this.eventLoopGroup.getAndSet(null).shutdownGracefully(2, 5, TimeUnit.SECONDS);
+            this.workerPool.getAndSet(null).shutdown();
         }
         return this;
     }
@@ -200,13 +229,89 @@ public class ApiServer
         return (this.channel.get() != null && this.channel.get().isOpen());
     }
 
+    /**
+     * Returns the handler registered for a route and the GET method
+     *
+     * @param route the path
+     *
+     * @return the handler or null
+     */
     public ApiHandler getApiHandler(String route)
     {
-        if (route == null)
+        return this.getApiHandler(route, RequestMethod.GET);
+    }
+
+    public ApiHandler getApiHandler(String route, RequestMethod method)
+    {
+        Router.Match match = this.findRoute(route, method);
+        return match == null ? null : match.getHandler();
+    }
+
+    /**
+     * Finds the route matching a path
+     *
+     * @param path   the normalized path
+     * @param method the request method
+     *
+     * @return the match or null if no route matches
+     */
+    public Router.Match findRoute(String path, RequestMethod method)
+    {
+        if (path == null)
         {
             return null;
         }
-        return this.handlers.get(route);
+        return this.router.find(path, method);
+    }
+
+    /**
+     * Executes the handler as declared by its {@link Execution}
+     *
+     * @param handler the handler
+     * @param request the request
+     *
+     * @return a future completed with the response, it fails with a {@link RejectedExecutionException} if the server is too busy
+     */
+    public CompletableFuture<ApiResponse> execute(final ApiHandler handler, final ApiRequest request)
+    {
+        final CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+        final Runnable task = () -> {
+            try
+            {
+                future.complete(handler.execute(request));
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+        };
+        switch (handler.getExecution())
+        {
+            case NON_BLOCKING:
+                task.run();
+                break;
+            case MAIN_THREAD:
+                if (this.core.getTaskManager().runTask(handler.getModule(), task) == -1)
+                {
+                    future.completeExceptionally(new RejectedExecutionException("The task could not be scheduled!"));
+                }
+                break;
+            default:
+                ThreadPoolExecutor pool = this.workerPool.get();
+                try
+                {
+                    if (pool == null)
+                    {
+                        throw new RejectedExecutionException("The server is not running!");
+                    }
+                    pool.execute(task);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    future.completeExceptionally(e);
+                }
+        }
+        return future;
     }
 
     public void registerApiHandlers(final Module owner, final Object holder)
@@ -275,52 +380,29 @@ public class ApiServer
                 {
                     reqMethod = method.getAnnotation(de.cubeisland.engine.core.webapi.Method.class).value();
                 }
-                this.handlers.put(route, new ReflectedApiHandler(owner, route, perm, params, reqMethod, method, holder));
+                this.router.register(new ReflectedApiHandler(owner, route, perm, params, reqMethod, aAction.execution(), method, holder));
             }
         }
     }
 
     public void unregisterApiHandler(String route)
     {
-        this.handlers.remove(route);
+        this.router.unregister(route);
     }
 
     public void unregisterApiHandlers(Module module)
     {
-        Iterator<Map.Entry<String, ApiHandler>> iter = this.handlers.entrySet().iterator();
-
-        ApiHandler handler;
-        while (iter.hasNext())
-        {
-            handler = iter.next().getValue();
-            if (handler.getModule() == module)
-            {
-                iter.remove();
-            }
-        }
+        this.router.unregister(module);
     }
 
     public void unregisterApiHandlers(Object holder)
     {
-        Iterator<Map.Entry<String, ApiHandler>> iter = this.handlers.entrySet().iterator();
-
-        ApiHandler handler;
-        while (iter.hasNext())
-        {
-            handler = iter.next().getValue();
-            if (handler instanceof ReflectedApiHandler)
-            {
-                if (((ReflectedApiHandler)handler).getHolder() == holder)
-                {
-                    iter.remove();
-                }
-            }
-        }
+        this.router.unregisterHolder(holder);
     }
 
     public void unregisterApiHandlers()
     {
-        this.handlers.clear();
+        this.router.clear();
     }
 
     public void setBindAddress(String address) throws UnknownHostException
@@ -393,6 +475,26 @@ public class ApiServer
         return this.maxThreads.get();
     }
 
+    public void setWorkerThreads(int workerThreads)
+    {
+        this.workerThreads.set(workerThreads);
+    }
+
+    public int getWorkerThreads()
+    {
+        return this.workerThreads.get();
+    }
+
+    public void setWorkerQueueSize(int workerQueueSize)
+    {
+        this.workerQueueSize.set(workerQueueSize);
+    }
+
+    public int getWorkerQueueSize()
+    {
+        return this.workerQueueSize.get();
+    }
+
     public void setMaxContentLength(int mcl)
     {
         this.maxContentLength.set(mcl);
@@ -719,4 +821,29 @@ public class ApiServer
     {
         return maxConnectionCount.get();
     }
+
+    public void setMaxRequestsPerSecond(int maxRequestsPerSecond)
+    {
+        this.maxRequestsPerSecond.set(maxRequestsPerSecond);
+    }
+
+    public int getMaxRequestsPerSecond()
+    {
+        return this.maxRequestsPerSecond.get();
+    }
+
+    /**
+     * Sets the time after which an idle connection gets closed
+     *
+     * @param keepAliveTimeout the timeout in seconds, 0 disables it
+     */
+    public void setKeepAliveTimeout(int keepAliveTimeout)
+    {
+        this.keepAliveTimeout.set(keepAliveTimeout);
+    }
+
+    public int getKeepAliveTimeout()
+    {
+        return this.keepAliveTimeout.get();
+    }
 }
@@ -25,18 +25,21 @@ import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.timeout.IdleStateHandler;
 
 public class ApiServerInitializer extends ChannelInitializer<SocketChannel>
 {
     private final Core core;
     private final ApiServer server;
     private final ObjectMapper objectMapper;
+    private final IpLimiter ipLimiter;
 
     ApiServerInitializer(Core core, ApiServer server)
     {
         this.core = core;
         this.server = server;
         this.objectMapper = new ObjectMapper();
+        this.ipLimiter = new IpLimiter(server.getMaxConnectionCount(), server.getMaxRequestsPerSecond());
     }
 
     @Override
@@ -44,11 +47,12 @@ public class ApiServerInitializer extends ChannelInitializer<SocketChannel>
     {
         ch.pipeline()
             .addLast("ipfilter", new IpFilter(server))
-            .addLast("iplimiter", new IpLimiter(server.getMaxConnectionCount()))
+            .addLast("iplimiter", this.ipLimiter)
+            .addLast("idle", new IdleStateHandler(0, 0, this.server.getKeepAliveTimeout()))
             .addLast("decoder", new HttpRequestDecoder())
             .addLast("aggregator", new HttpObjectAggregator(this.server.getMaxContentLength()))
             .addLast("encoder", new HttpResponseEncoder())
-            .addLast("httpHandler", new HttpRequestHandler(core, this.server, this.objectMapper));
+            .addLast("httpHandler", new HttpRequestHandler(core, this.server, this.objectMapper, this.ipLimiter));
         if (this.server.isCompressionEnabled())
         {
             ch.pipeline().addLast("deflater", new HttpContentCompressor(this.server.getCompressionLevel(), this.server.getCompressionWindowBits(), this.server.getCompressionMemoryLevel()));
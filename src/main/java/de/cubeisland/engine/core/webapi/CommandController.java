@@ -17,9 +17,6 @@
  */
 package de.cubeisland.engine.core.webapi;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.cubeisland.engine.core.Core;
 import de.cubeisland.engine.core.user.User;
@@ -37,35 +34,15 @@ public class CommandController
         this.core = core;
     }
 
-    @Action
+    @Action(execution = Execution.MAIN_THREAD)
     public ApiResponse command(ApiRequest request, final @Value("cmd") String command)
     {
         User authUser = request.getAuthUser();
         final ApiCommandSender sender = authUser == null ? new ApiServerSender(core, mapper) : new ApiUser(core, authUser, mapper);
 
-        Future<ApiResponse> future = core.getTaskManager().callSync(new Callable<ApiResponse>()
-        {
-            @Override
-            public ApiResponse call() throws Exception
-            {
-                core.getCommandManager().runCommand(sender, command);
-                ApiResponse apiResponse = new ApiResponse();
-                apiResponse.setContent(sender.flush());
-                return apiResponse;
-            }
-        });
-        try
-        {
-            return future.get();
-        }
-        catch (InterruptedException e)
-        {
-            Thread.currentThread().interrupt();
-            return null;
-        }
-        catch (ExecutionException e)
-        {
-            return new ApiResponse();
-        }
+        core.getCommandManager().runCommand(sender, command);
+        ApiResponse apiResponse = new ApiResponse();
+        apiResponse.setContent(sender.flush());
+        return apiResponse;
     }
 }
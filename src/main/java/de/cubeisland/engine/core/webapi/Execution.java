@@ -0,0 +1,38 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+/**
+ * Where the server executes an {@link ApiHandler}
+ */
+public enum Execution
+{
+    /**
+     * The handler returns quickly and never blocks, it runs directly on the network thread
+     */
+    NON_BLOCKING,
+    /**
+     * The handler may block (e.g. on database queries), it runs on the bounded worker pool of the server
+     */
+    BLOCKING,
+    /**
+     * The handler accesses the server and runs as a task on the main thread.
+     * The response is written once the task completed, no thread waits for it
+     */
+    MAIN_THREAD
+}
@@ -17,37 +17,52 @@
  */
 package de.cubeisland.engine.core.webapi;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.cubeisland.engine.core.Core;
-import de.cubeisland.engine.core.CubeEngine;
 import de.cubeisland.engine.core.module.service.Permission;
 import de.cubeisland.engine.core.user.User;
+import de.cubeisland.engine.core.user.UserManager;
 import de.cubeisland.engine.core.webapi.exception.ApiRequestException;
 import de.cubeisland.engine.logscribe.Log;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.timeout.IdleStateEvent;
 
 import static de.cubeisland.engine.core.webapi.MimeType.JSON;
 import static de.cubeisland.engine.core.webapi.RequestStatus.*;
-import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 import static io.netty.channel.ChannelFutureListener.CLOSE;
 import static io.netty.channel.ChannelFutureListener.CLOSE_ON_FAILURE;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaders.Values.KEEP_ALIVE;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
+/**
+ * Handles the HTTP requests of one connection.
+ * <p>Connections are kept alive if the client asks for it. Pipelined requests may complete out of order
+ * (e.g. while a password is checked), so every request gets a sequence number and finished responses are
+ * held back until all responses of previous requests were written.
+ */
 public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequest>
 {
     // TODO rewrite log messages, most of them are incomplete
@@ -57,20 +72,65 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
     private final Core core;
     private final ApiServer server;
     private ObjectMapper objectMapper;
+    private final IpLimiter ipLimiter;
 
-    HttpRequestHandler(Core core, ApiServer server, ObjectMapper mapper)
+    // only accessed from the event loop of the channel
+    private int nextRequest = 0;
+    private int nextResponse = 0;
+    private final Map<Integer, Exchange> completed = new HashMap<>();
+
+    HttpRequestHandler(Core core, ApiServer server, ObjectMapper mapper, IpLimiter ipLimiter)
     {
         this.core = core;
         this.server = server;
         this.objectMapper = mapper;
+        this.ipLimiter = ipLimiter;
         this.log = server.getLog();
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext context, Throwable t)
     {
-        this.error(context, UNKNOWN_ERROR);
         this.log.error(t, "An error occurred while processing an API request!");
+        // the order of the pending responses can't be guaranteed anymore
+        this.discardPending();
+        FullHttpResponse response = this.createError(context, UNKNOWN_ERROR, null);
+        response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+        context.writeAndFlush(response).addListener(CLOSE);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception
+    {
+        this.discardPending();
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * Releases the buffers of all responses still waiting for previous responses
+     */
+    private void discardPending()
+    {
+        for (Exchange exchange : this.completed.values())
+        {
+            if (exchange.response != null)
+            {
+                exchange.response.release();
+            }
+        }
+        this.completed.clear();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception
+    {
+        if (evt instanceof IdleStateEvent)
+        {
+            this.log.debug("Closing an idle connection...");
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
     }
 
     @Override
@@ -82,45 +142,82 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
         {
             this.log.info("Access denied!");
             ctx.channel().close();
+            return;
         }
 
         if (message.getDecoderResult().isFailure())
         {
-            this.error(ctx, UNKNOWN_ERROR);
+            this.error(ctx, new Exchange(this.nextRequest++, false), UNKNOWN_ERROR);
             this.log.info(message.getDecoderResult().cause(), "The decoder failed on this request...");
             return;
         }
 
+        final Exchange exchange = new Exchange(this.nextRequest++, HttpHeaders.isKeepAlive(message));
+        if (!this.ipLimiter.acquireRequest(inetSocketAddress.getAddress()))
+        {
+            this.error(ctx, exchange, TOO_MANY_REQUESTS);
+            return;
+        }
+
         boolean authorized = this.server.isAuthorized(inetSocketAddress.getAddress());
         QueryStringDecoder qsDecoder = new QueryStringDecoder(message.getUri(), this.UTF8, true, 100);
         final Parameters params = new Parameters(qsDecoder.parameters(), core.getCommandManager().getProviderManager());
-        User authUser = null;
-        if (!authorized)
+        if (authorized)
+        {
+            this.handleRequest(ctx, exchange, message, qsDecoder, params, null);
+            return;
+        }
+        if (!core.getModuleManager().getServiceManager().isImplemented(Permission.class))
+        {
+            this.error(ctx, exchange, AUTHENTICATION_FAILURE, new ApiRequestException("Authentication deactivated", 200));
+            return;
+        }
+        String user = params.get("user", String.class);
+        String pass = params.get("pass", String.class);
+        if (user == null || pass == null)
         {
-            if (!core.getModuleManager().getServiceManager().isImplemented(Permission.class))
+            this.error(ctx, exchange, AUTHENTICATION_FAILURE, new ApiRequestException("Could not complete authentication", 200));
+            return;
+        }
+        // the user is looked up on the database executor and the password hashed on the hashing threads,
+        // the request continues on the event loop afterwards
+        message.retain();
+        String connection = inetSocketAddress.getAddress().getHostAddress();
+        UserManager um = core.getUserManager();
+        um.findExactUserAsync(user).thenCompose(exactUser -> {
+            if (exactUser == null || !exactUser.isPasswordSet())
             {
-                this.error(ctx, AUTHENTICATION_FAILURE, new ApiRequestException("Authentication deactivated", 200));
-                return;
+                return CompletableFuture.<User>completedFuture(null);
             }
-            String user = params.get("user", String.class);
-            String pass = params.get("pass", String.class);
-            if (user == null || pass == null)
+            return um.checkPasswordAsync(exactUser, pass, connection).thenApply(valid -> valid ? exactUser : null);
+        }).whenComplete((authUser, t) -> ctx.executor().execute(() -> {
+            try
             {
-                this.error(ctx, AUTHENTICATION_FAILURE, new ApiRequestException("Could not complete authentication", 200));
-                return;
+                if (t != null || authUser == null)
+                {
+                    this.error(ctx, exchange, AUTHENTICATION_FAILURE, new ApiRequestException("Could not complete authentication", 200));
+                    return;
+                }
+                this.handleRequest(ctx, exchange, message, qsDecoder, params, authUser);
             }
-            User exactUser = core.getUserManager().findExactUser(user);
-            if (exactUser == null || !exactUser.isPasswordSet() || !CubeEngine.getUserManager().checkPassword(exactUser, pass))
+            catch (Exception e)
             {
-                this.error(ctx, AUTHENTICATION_FAILURE, new ApiRequestException("Could not complete authentication", 200));
-                return;
+                this.log.error(e, "An error occurred while processing an API request!");
+                this.error(ctx, exchange, UNKNOWN_ERROR);
             }
-            authUser = exactUser;
-        }
+            finally
+            {
+                message.release();
+            }
+        }));
+    }
+
+    private void handleRequest(ChannelHandlerContext ctx, Exchange exchange, FullHttpRequest message, QueryStringDecoder qsDecoder, Parameters params, User authUser)
+    {
         String path = qsDecoder.path().trim();
         if (path.length() == 0 || "/".equals(path))
         {
-            this.error(ctx, ROUTE_NOT_FOUND);
+            this.error(ctx, exchange, ROUTE_NOT_FOUND);
             return;
         }
         path = normalizePath(path);
@@ -139,71 +236,153 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
             {
                 handler = (WebSocketRequestHandler)ctx.pipeline().last();
             }
+            if (ctx.pipeline().get("idle") != null)
+            {
+                ctx.pipeline().remove("idle");
+            }
             this.log.info("received a websocket request...");
             handler.doHandshake(ctx, message);
+            // the handshake writes its own response
+            this.respond(ctx, exchange, null);
             return;
         }
 
-        this.handleHttpRequest(ctx, message, path, params, authUser);
+        this.handleHttpRequest(ctx, exchange, message, path, params, authUser);
     }
 
-    private void handleHttpRequest(ChannelHandlerContext context, FullHttpRequest message, String path, Parameters params, User authUser)
+    private void handleHttpRequest(ChannelHandlerContext context, Exchange exchange, FullHttpRequest message, String path, Parameters params, User authUser)
     {
-        ApiHandler handler = this.server.getApiHandler(path);
+        final RequestMethod method = RequestMethod.getByName(message.getMethod().name());
+        Router.Match match = this.server.findRoute(path, method);
+        if (match == null)
+        {
+            this.error(context, exchange, ROUTE_NOT_FOUND);
+            return;
+        }
+        ApiHandler handler = match.getHandler();
         if (handler == null)
         {
-            this.error(context, ROUTE_NOT_FOUND);
+            this.error(context, exchange, METHOD_NOT_ALLOWED);
             return;
         }
+        params = params.withPathVariables(match.getVariables());
 
         JsonNode data = null;
         ByteBuf requestContent = message.content();
-        if (!requestContent.equals(EMPTY_BUFFER))
+        if (requestContent.isReadable())
         {
             try
             {
-                byte[] bytes = new byte[requestContent.readableBytes()];
-                requestContent.readBytes(bytes);
-                data = this.objectMapper.readTree(bytes);
+                data = this.objectMapper.readTree(new ByteBufInputStream(requestContent));
             }
             catch (Exception ex)
             {
                 this.log.debug(ex, "Failed to parse the request body!");
-                this.error(context, MALFORMED_DATA);
+                this.error(context, exchange, MALFORMED_DATA);
                 return;
             }
         }
-        final RequestMethod method = RequestMethod.getByName(message.getMethod().name());
-
         ApiRequest apiRequest = new ApiRequest((InetSocketAddress)context.channel().remoteAddress(), method, params, message.headers(), data,
                                                authUser);
-        try
+        this.server.execute(handler, apiRequest).whenComplete((response, t) -> {
+            if (context.executor().inEventLoop())
+            {
+                this.complete(context, exchange, response, t);
+            }
+            else
+            {
+                context.executor().execute(() -> this.complete(context, exchange, response, t));
+            }
+        });
+    }
+
+    private void complete(ChannelHandlerContext context, Exchange exchange, ApiResponse response, Throwable t)
+    {
+        if (t instanceof CompletionException && t.getCause() != null)
+        {
+            t = t.getCause();
+        }
+        if (t == null)
         {
-            this.success(context, handler.execute(apiRequest));
+            this.success(context, exchange, response);
         }
-        catch (ApiRequestException e)
+        else if (t instanceof ApiRequestException)
         {
-            this.error(context, REQUEST_EXCEPTION, e);
+            this.error(context, exchange, REQUEST_EXCEPTION, (ApiRequestException)t);
         }
-        catch (Throwable t)
+        else if (t instanceof RejectedExecutionException)
         {
-            this.error(context, UNKNOWN_ERROR);
+            this.error(context, exchange, SERVER_BUSY);
+        }
+        else
+        {
+            this.log.debug(t, "An API handler failed!");
+            this.error(context, exchange, UNKNOWN_ERROR);
         }
     }
 
-    private void success(ChannelHandlerContext context, ApiResponse apiResponse)
+    private void success(ChannelHandlerContext context, Exchange exchange, ApiResponse apiResponse)
     {
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(this.serialize(apiResponse.getContent()), this.UTF8));
+        ByteBuf content;
+        try
+        {
+            content = this.encode(context, apiResponse.getContent());
+        }
+        catch (IOException e)
+        {
+            this.log.error(e, "Failed to generate the JSON code for a response!");
+            this.error(context, exchange, UNKNOWN_ERROR);
+            return;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.OK, content);
         response.headers().set(CONTENT_TYPE, JSON.toString());
-        context.writeAndFlush(response).addListener(CLOSE);
+        this.respond(context, exchange, response);
+    }
+
+    /**
+     * Writes the content into a pooled buffer.
+     * <p>Strings are written as they are, anything else is streamed as JSON by Jackson.
+     *
+     * @param context the context to allocate the buffer from
+     * @param content the content
+     *
+     * @return the buffer
+     *
+     * @throws IOException if the content could not be serialized
+     */
+    private ByteBuf encode(ChannelHandlerContext context, Object content) throws IOException
+    {
+        ByteBuf buffer = context.alloc().buffer();
+        try
+        {
+            if (content instanceof String)
+            {
+                buffer.writeBytes(((String)content).getBytes(this.UTF8));
+            }
+            else
+            {
+                this.objectMapper.writer().writeValue(new ByteBufOutputStream(buffer), content);
+            }
+            return buffer;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    private void error(ChannelHandlerContext context, Exchange exchange, RequestStatus error)
+    {
+        this.error(context, exchange, error, null);
     }
 
-    private void error(ChannelHandlerContext context, RequestStatus error)
+    private void error(ChannelHandlerContext context, Exchange exchange, RequestStatus error, ApiRequestException e)
     {
-        this.error(context, error, null);
+        this.respond(context, exchange, this.createError(context, error, e));
     }
 
-    private void error(ChannelHandlerContext context, RequestStatus error, ApiRequestException e)
+    private FullHttpResponse createError(ChannelHandlerContext context, RequestStatus error, ApiRequestException e)
     {
         Map<String, Object> data = new HashMap<>();
         data.put("id", error.getCode());
@@ -217,9 +396,71 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
             data.put("reason", reason);
         }
 
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, error.getRepsonseStatus(), Unpooled.copiedBuffer(this.serialize(data), this.UTF8));
+        ByteBuf content;
+        try
+        {
+            content = this.encode(context, data);
+        }
+        catch (IOException ex)
+        {
+            this.log.error(ex, "Failed to generate the JSON code for a response!");
+            content = context.alloc().buffer(0);
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, error.getRepsonseStatus(), content);
         response.headers().set(CONTENT_TYPE, JSON.toString());
-        context.writeAndFlush(response).addListener(CLOSE).addListener(CLOSE_ON_FAILURE);
+        return response;
+    }
+
+    /**
+     * Completes the exchange and writes all responses which are next in line
+     *
+     * @param context  the context
+     * @param exchange the completed exchange
+     * @param response the response or null if the response was already written
+     */
+    private void respond(ChannelHandlerContext context, Exchange exchange, FullHttpResponse response)
+    {
+        if (!context.channel().isActive())
+        {
+            if (response != null)
+            {
+                response.release();
+            }
+            return;
+        }
+        exchange.response = response;
+        this.completed.put(exchange.id, exchange);
+
+        boolean written = false;
+        Exchange next;
+        while ((next = this.completed.remove(this.nextResponse)) != null)
+        {
+            this.nextResponse++;
+            if (next.response == null)
+            {
+                continue;
+            }
+            next.response.headers().set(CONTENT_LENGTH, next.response.content().readableBytes());
+            if (next.keepAlive)
+            {
+                next.response.headers().set(CONNECTION, KEEP_ALIVE);
+            }
+            ChannelFuture future = context.write(next.response);
+            next.response = null;
+            written = true;
+            if (next.keepAlive)
+            {
+                future.addListener(CLOSE_ON_FAILURE);
+            }
+            else
+            {
+                future.addListener(CLOSE);
+            }
+        }
+        if (written)
+        {
+            context.flush();
+        }
     }
 
     public static String normalizePath(String route)
@@ -236,27 +477,16 @@ public class HttpRequestHandler extends SimpleChannelInboundHandler<FullHttpRequ
         return route;
     }
 
-    public String serialize(Object object)
+    private static final class Exchange
     {
-        if (object == null)
-        {
-            return "null";
-        }
-        if (object instanceof Map)
-        {
-            try
-            {
-                return this.objectMapper.writer().writeValueAsString(object);
-            }
-            catch (JsonProcessingException e)
-            {
-                this.log.error(e, "Failed to generate the JSON code for a response!");
-                return "null";
-            }
-        }
-        else
+        private final int id;
+        private final boolean keepAlive;
+        private FullHttpResponse response;
+
+        private Exchange(int id, boolean keepAlive)
         {
-            return String.valueOf(object);
+            this.id = id;
+            this.keepAlive = keepAlive;
         }
     }
 }
@@ -19,75 +19,116 @@ package de.cubeisland.engine.core.webapi;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
 
+/**
+ * Limits the concurrent connections and the requests per second of each IP.
+ * <p>One instance is shared by all channels of the server.
+ */
+@Sharable
 public class IpLimiter extends ChannelInboundHandlerAdapter
 {
+    private static final AttributeKey<Boolean> COUNTED = AttributeKey.valueOf("cubeengine.iplimiter.counted");
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
     private final int maxConnectionCount;
-    private Map<InetAddress, Integer> connections = new HashMap<>();
+    private final int maxRequestsPerSecond;
+    private final ConcurrentMap<InetAddress, Client> clients = new ConcurrentHashMap<>();
 
-    public IpLimiter(int maxConnectionCount)
+    public IpLimiter(int maxConnectionCount, int maxRequestsPerSecond)
     {
         this.maxConnectionCount = maxConnectionCount;
-    }
-
-    @Override
-    public void channelRegistered(ChannelHandlerContext ctx) throws Exception
-    {
-        if (ctx.channel().isActive() && !accepts((InetSocketAddress)ctx.channel().remoteAddress()))
-        {
-            reject(ctx);
-            return;
-        }
-        super.channelRegistered(ctx);
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
     }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception
     {
-        if (!accepts((InetSocketAddress)ctx.channel().remoteAddress()))
+        if (!accepts(getAddress(ctx)))
         {
             reject(ctx);
             return;
         }
+        ctx.channel().attr(COUNTED).set(true);
         super.channelActive(ctx);
     }
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception
     {
-        InetAddress address = ((InetSocketAddress)ctx.channel().remoteAddress()).getAddress();
-        Integer conCount = connections.remove(address);
-        if (conCount != null && conCount != 1)
+        if (ctx.channel().attr(COUNTED).getAndRemove() != null)
         {
-            connections.put(address, conCount - 1);
+            this.clients.computeIfPresent(getAddress(ctx), (address, client) -> --client.connections == 0 ? null : client);
         }
         super.channelInactive(ctx);
     }
 
-    private boolean accepts(InetSocketAddress address)
+    private boolean accepts(InetAddress address)
     {
-        if (connections.containsKey(address.getAddress()))
-        {
-            Integer connectionCount = connections.get(address.getAddress());
-            if (maxConnectionCount <= connectionCount)
+        boolean[] accepted = {false};
+        this.clients.compute(address, (a, client) -> {
+            if (client == null)
+            {
+                client = new Client();
+            }
+            if (client.connections < this.maxConnectionCount)
             {
-                return false;
+                client.connections++;
+                accepted[0] = true;
             }
-            connections.put(address.getAddress(), connectionCount + 1);
+            return client.connections == 0 ? null : client;
+        });
+        return accepted[0];
+    }
+
+    /**
+     * Counts a request of the given address
+     *
+     * @param address the address
+     *
+     * @return false if the address exceeded its requests in the current second
+     */
+    public boolean acquireRequest(InetAddress address)
+    {
+        Client client = this.clients.get(address);
+        if (client == null)
+        {
+            return true; // the connection was not counted
         }
-        else
+        synchronized (client)
         {
-            connections.put(address.getAddress(), 1);
+            long now = System.nanoTime();
+            if (now - client.windowStart >= WINDOW)
+            {
+                client.windowStart = now;
+                client.requests = 0;
+            }
+            return ++client.requests <= this.maxRequestsPerSecond;
         }
-        return true;
+    }
+
+    private static InetAddress getAddress(ChannelHandlerContext ctx)
+    {
+        return ((InetSocketAddress)ctx.channel().remoteAddress()).getAddress();
     }
 
     private void reject(ChannelHandlerContext ctx)
     {
         ctx.close();
     }
+
+    private static final class Client
+    {
+        // guarded by the map
+        private int connections = 0;
+        // guarded by this
+        private long windowStart = System.nanoTime();
+        private int requests = 0;
+    }
 }
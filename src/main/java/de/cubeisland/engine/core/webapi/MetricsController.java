@@ -0,0 +1,128 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.module.ModuleProfiler;
+import de.cubeisland.engine.core.module.ModuleProfiler.Category;
+import de.cubeisland.engine.core.storage.database.DatabaseExecutor;
+import de.cubeisland.engine.core.storage.database.QueryMetrics;
+import de.cubeisland.engine.core.storage.database.QueryMetrics.Stats;
+import de.cubeisland.engine.core.util.LatencyHistogram;
+import de.cubeisland.engine.core.util.Profiler;
+import de.cubeisland.engine.core.util.Profiler.Handle;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Exposes the runtime metrics of the core
+ */
+public class MetricsController
+{
+    private final Core core;
+
+    public MetricsController(Core core)
+    {
+        this.core = core;
+    }
+
+    @Action(value = "metrics/database", execution = Execution.NON_BLOCKING)
+    public ApiResponse database(ApiRequest request)
+    {
+        QueryMetrics metrics = this.core.getDB().getMetrics();
+        DatabaseExecutor executor = this.core.getDB().getExecutor();
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("poolWait", toMap(metrics.getPoolWait()));
+        data.put("queueDepth", executor.getQueueDepth());
+        data.put("activeThreads", executor.getActiveCount());
+        data.put("rejected", executor.getRejectedCount());
+        data.put("modules", toMap(metrics.getModuleStats()));
+        data.put("queries", toMap(metrics.getShapeStats()));
+        return new ApiResponse(data);
+    }
+
+    @Action(value = "metrics/modules", execution = Execution.NON_BLOCKING)
+    public ApiResponse modules(ApiRequest request)
+    {
+        ModuleProfiler profiler = this.core.getModuleProfiler();
+        Map<String, Object> data = new LinkedHashMap<>();
+        for (String module : profiler.getModules())
+        {
+            Map<String, Object> categories = new LinkedHashMap<>();
+            for (Category category : Category.values())
+            {
+                ModuleProfiler.Stats stats = profiler.getStats(module, category);
+                Map<String, Object> value = toMap(stats.getTime());
+                value.put("allocated", stats.getAllocated());
+                categories.put(category.name().toLowerCase(), value);
+            }
+            data.put(module, categories);
+        }
+        return new ApiResponse(data);
+    }
+
+    @Action(value = "metrics/spans", execution = Execution.NON_BLOCKING)
+    public ApiResponse spans(ApiRequest request)
+    {
+        Map<String, Object> data = new TreeMap<>();
+        for (Handle handle : Profiler.getHandles().values())
+        {
+            Map<String, Object> value = toMap(handle.getHistogram());
+            value.put("sampleRate", handle.getSampleRate());
+            data.put(handle.getName(), value);
+        }
+        return new ApiResponse(data);
+    }
+
+    private static Map<String, Object> toMap(Map<String, Stats> stats)
+    {
+        Map<String, Object> map = new HashMap<>();
+        for (Entry<String, Stats> entry : stats.entrySet())
+        {
+            Map<String, Object> value = toMap(entry.getValue().getLatency());
+            value.put("rows", entry.getValue().getRows());
+            map.put(entry.getKey(), value);
+        }
+        return map;
+    }
+
+    /**
+     * Converts a histogram into a map with all times in microseconds
+     *
+     * @param histogram the histogram
+     *
+     * @return the map
+     */
+    static Map<String, Object> toMap(LatencyHistogram histogram)
+    {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", histogram.getCount());
+        map.put("total", histogram.getTotal(MICROSECONDS));
+        map.put("mean", histogram.getMean(MICROSECONDS));
+        map.put("p50", histogram.getPercentile(0.5, MICROSECONDS));
+        map.put("p99", histogram.getPercentile(0.99, MICROSECONDS));
+        map.put("max", histogram.getMax(MICROSECONDS));
+        return map;
+    }
+}
@@ -17,8 +17,11 @@
  */
 package de.cubeisland.engine.core.webapi;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import de.cubeisland.engine.butler.CommandInvocation;
 import de.cubeisland.engine.butler.ProviderManager;
 
@@ -35,6 +38,27 @@ public class Parameters
         this.readerManager = readerManager;
     }
 
+    /**
+     * Returns parameters additionally containing the given path variables, which take precedence
+     *
+     * @param variables the path variables
+     *
+     * @return the parameters
+     */
+    Parameters withPathVariables(Map<String, String> variables)
+    {
+        if (variables.isEmpty())
+        {
+            return this;
+        }
+        Map<String, List<String>> data = new HashMap<>(this.data);
+        for (Entry<String, String> entry : variables.entrySet())
+        {
+            data.put(entry.getKey(), Collections.singletonList(entry.getValue()));
+        }
+        return new Parameters(data, this.readerManager);
+    }
+
     @SuppressWarnings("unchecked")
     public <T> T get(String name, int index, Class<T> type)
     {
@@ -17,49 +17,95 @@
  */
 package de.cubeisland.engine.core.webapi;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.lang.reflect.Modifier;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map.Entry;
 import de.cubeisland.engine.butler.CommandInvocation;
 import de.cubeisland.engine.butler.ProviderManager;
 import de.cubeisland.engine.core.module.Module;
 import de.cubeisland.engine.core.permission.Permission;
 
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * An ApiHandler invoking an {@link Action} method.
+ * <p>The method is compiled into a MethodHandle taking the argument array once at registration,
+ * so a request only allocates the arguments and reads each parameter with its precomputed reader.
+ */
 public final class ReflectedApiHandler extends ApiHandler
 {
     private final Method method;
     private final Object holder;
     private final ProviderManager providerManager;
+    private final MethodHandle invoker;
+    private final ParameterReader[] readers;
 
     public ReflectedApiHandler(Module module, String route, Permission permission,
                                LinkedHashMap<String, Class> params, RequestMethod reqMethod, Method method,
                                Object holder)
     {
-        super(module, route, permission, params, reqMethod);
+        this(module, route, permission, params, reqMethod, Execution.BLOCKING, method, holder);
+    }
+
+    public ReflectedApiHandler(Module module, String route, Permission permission,
+                               LinkedHashMap<String, Class> params, RequestMethod reqMethod, Execution execution,
+                               Method method, Object holder)
+    {
+        super(module, route, permission, params, reqMethod, execution);
         this.method = method;
         this.method.setAccessible(true);
         this.holder = holder;
         this.providerManager = module.getCore().getCommandManager().getProviderManager();
+
+        this.readers = new ParameterReader[params.size()];
+        int i = 0;
+        for (Entry<String, Class> entry : params.entrySet())
+        {
+            this.readers[i++] = new ParameterReader(entry.getKey(), entry.getValue());
+        }
+        this.invoker = compile(method, holder);
     }
 
-    @Override
-    public ApiResponse execute(final ApiRequest request)
+    private static MethodHandle compile(Method method, Object holder)
     {
         try
         {
-            Parameters params = request.getParams();
-            List<Object> list = new ArrayList<>();
-            list.add(request);
-            for (Entry<String, Class> entry : this.getParameters().entrySet())
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers()))
             {
-                list.add(providerManager.read(entry.getValue(), entry.getValue(), new CommandInvocation(null, params.getString(entry.getKey()), providerManager)));
+                handle = handle.bindTo(holder);
             }
-            return (ApiResponse)this.method.invoke(this.holder, list.toArray(new Object[list.size()]));
+            return handle.asSpreader(Object[].class, method.getParameterTypes().length)
+                         .asType(methodType(ApiResponse.class, Object[].class));
         }
-        catch (IllegalAccessException | InvocationTargetException e)
+        catch (IllegalAccessException e)
+        {
+            throw new IllegalArgumentException("The action " + method.getName() + " is not accessible!", e);
+        }
+    }
+
+    @Override
+    public ApiResponse execute(final ApiRequest request)
+    {
+        Parameters params = request.getParams();
+        Object[] args = new Object[this.readers.length + 1];
+        args[0] = request;
+        for (int i = 0; i < this.readers.length; i++)
+        {
+            args[i + 1] = this.readers[i].read(this.providerManager, params);
+        }
+        try
+        {
+            return (ApiResponse)this.invoker.invokeExact(args);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
         {
             return new ApiResponse();
         }
@@ -69,4 +115,21 @@ public final class ReflectedApiHandler extends ApiHandler
     {
         return holder;
     }
+
+    private static final class ParameterReader
+    {
+        private final String name;
+        private final Class<?> type;
+
+        private ParameterReader(String name, Class<?> type)
+        {
+            this.name = name;
+            this.type = type;
+        }
+
+        private Object read(ProviderManager providerManager, Parameters params)
+        {
+            return providerManager.read(this.type, this.type, new CommandInvocation(null, params.getString(this.name), providerManager));
+        }
+    }
 }
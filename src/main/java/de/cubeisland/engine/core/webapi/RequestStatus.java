@@ -57,6 +57,14 @@ public enum RequestStatus
         205,
         HttpResponseStatus.BAD_REQUEST,
         "The request body could not be interpreted as valid JSON code"),
+    TOO_MANY_REQUESTS(
+        206,
+        HttpResponseStatus.TOO_MANY_REQUESTS,
+        "Too many requests were sent in a short time"),
+    SERVER_BUSY(
+        207,
+        HttpResponseStatus.SERVICE_UNAVAILABLE,
+        "The server is too busy to process the request"),
     HANDLER_NOT_IMPLEMENTED(
         301,
         HttpResponseStatus.NOT_IMPLEMENTED,
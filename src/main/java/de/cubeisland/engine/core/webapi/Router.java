@@ -0,0 +1,384 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import de.cubeisland.engine.core.module.Module;
+
+/**
+ * A trie of route segments.
+ * <p>A segment in braces like the {@code {id}} in {@code users/{id}/stats} is a path variable matching any single
+ * segment, its value is passed to the handler as the parameter of the same name. Literal segments take precedence
+ * over variables. A route holds one handler per request method.
+ * <p>Lookups are lock-free, modifications are synchronized.
+ */
+public class Router
+{
+    private final Node root = new Node();
+    // guarded by this
+    private final Map<Module, Set<ApiHandler>> byModule = new HashMap<>();
+    private final Map<Object, Set<ApiHandler>> byHolder = new IdentityHashMap<>();
+
+    /**
+     * Registers a handler for its route and request method
+     *
+     * @param handler the handler
+     *
+     * @return the handler previously registered for the same route and method or null
+     */
+    public synchronized ApiHandler register(ApiHandler handler)
+    {
+        String[] segments = split(handler.getRoute());
+        Set<String> variables = new HashSet<>();
+        Node node = this.root;
+        for (String segment : segments)
+        {
+            String variable = getVariable(segment);
+            if (variable == null)
+            {
+                Node child = node.children.get(segment);
+                if (child == null)
+                {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+                continue;
+            }
+            if (!variables.add(variable))
+            {
+                throw new IllegalArgumentException("The path variable " + variable + " is used twice in " + handler.getRoute());
+            }
+            if (!handler.getParameters().containsKey(variable))
+            {
+                throw new IllegalArgumentException("The path variable " + variable + " of " + handler.getRoute() + " has no matching parameter");
+            }
+            if (node.variable == null)
+            {
+                node.variable = new Node();
+            }
+            node = node.variable;
+        }
+
+        Map<RequestMethod, Route> routes = new EnumMap<>(RequestMethod.class);
+        routes.putAll(node.routes);
+        Route previous = routes.put(handler.getReqMethod(), new Route(handler, segments));
+        node.routes = routes;
+
+        if (previous != null)
+        {
+            this.unindex(previous.handler);
+        }
+        this.index(handler);
+        return previous == null ? null : previous.handler;
+    }
+
+    /**
+     * Unregisters a single handler
+     *
+     * @param handler the handler
+     *
+     * @return true if the handler was registered
+     */
+    public synchronized boolean unregister(ApiHandler handler)
+    {
+        Route route = this.remove(this.root, split(handler.getRoute()), 0, handler.getReqMethod(), handler);
+        if (route == null)
+        {
+            return false;
+        }
+        this.unindex(route.handler);
+        return true;
+    }
+
+    /**
+     * Unregisters the handlers of all request methods of a route
+     *
+     * @param route the route as it was registered
+     */
+    public synchronized void unregister(String route)
+    {
+        String[] segments = split(HttpRequestHandler.normalizePath(route));
+        for (RequestMethod method : RequestMethod.values())
+        {
+            Route removed = this.remove(this.root, segments, 0, method, null);
+            if (removed != null)
+            {
+                this.unindex(removed.handler);
+            }
+        }
+    }
+
+    /**
+     * Unregisters all handlers of a module
+     *
+     * @param module the module
+     */
+    public synchronized void unregister(Module module)
+    {
+        this.unregisterAll(this.byModule.get(module));
+    }
+
+    /**
+     * Unregisters all handlers of a {@link ReflectedApiHandler} holder
+     *
+     * @param holder the holder
+     */
+    public synchronized void unregisterHolder(Object holder)
+    {
+        this.unregisterAll(this.byHolder.get(holder));
+    }
+
+    private void unregisterAll(Set<ApiHandler> handlers)
+    {
+        if (handlers == null)
+        {
+            return;
+        }
+        for (ApiHandler handler : handlers.toArray(new ApiHandler[handlers.size()]))
+        {
+            this.unregister(handler);
+        }
+    }
+
+    public synchronized void clear()
+    {
+        this.root.children.clear();
+        this.root.variable = null;
+        this.root.routes = Collections.emptyMap();
+        this.byModule.clear();
+        this.byHolder.clear();
+    }
+
+    /**
+     * Finds the route matching a path
+     *
+     * @param path   the normalized path
+     * @param method the request method
+     *
+     * @return the match or null if no route matches the path
+     */
+    public Match find(String path, RequestMethod method)
+    {
+        String[] segments = split(path);
+        Node node = find(this.root, segments, 0);
+        if (node == null)
+        {
+            return null;
+        }
+        Route route = method == null ? null : node.routes.get(method);
+        if (route == null)
+        {
+            return new Match(null, Collections.<String, String>emptyMap());
+        }
+        Map<String, String> variables = Collections.emptyMap();
+        for (int i = 0; i < segments.length; i++)
+        {
+            String variable = getVariable(route.segments[i]);
+            if (variable != null)
+            {
+                if (variables.isEmpty())
+                {
+                    variables = new HashMap<>();
+                }
+                variables.put(variable, segments[i]);
+            }
+        }
+        return new Match(route.handler, variables);
+    }
+
+    private static Node find(Node node, String[] segments, int index)
+    {
+        if (index == segments.length)
+        {
+            return node.routes.isEmpty() ? null : node;
+        }
+        Node child = node.children.get(segments[index]);
+        if (child != null)
+        {
+            Node found = find(child, segments, index + 1);
+            if (found != null)
+            {
+                return found;
+            }
+        }
+        child = node.variable;
+        if (child != null)
+        {
+            return find(child, segments, index + 1);
+        }
+        return null;
+    }
+
+    private Route remove(Node node, String[] segments, int index, RequestMethod method, ApiHandler handler)
+    {
+        if (index == segments.length)
+        {
+            Route route = node.routes.get(method);
+            if (route == null || (handler != null && route.handler != handler))
+            {
+                return null;
+            }
+            Map<RequestMethod, Route> routes = new EnumMap<>(RequestMethod.class);
+            routes.putAll(node.routes);
+            routes.remove(method);
+            node.routes = routes.isEmpty() ? Collections.<RequestMethod, Route>emptyMap() : routes;
+            return route;
+        }
+        String segment = segments[index];
+        boolean variable = getVariable(segment) != null;
+        Node child = variable ? node.variable : node.children.get(segment);
+        if (child == null)
+        {
+            return null;
+        }
+        Route route = this.remove(child, segments, index + 1, method, handler);
+        if (route != null && child.isEmpty())
+        {
+            if (variable)
+            {
+                node.variable = null;
+            }
+            else
+            {
+                node.children.remove(segment);
+            }
+        }
+        return route;
+    }
+
+    private void index(ApiHandler handler)
+    {
+        Set<ApiHandler> handlers = this.byModule.get(handler.getModule());
+        if (handlers == null)
+        {
+            handlers = Collections.newSetFromMap(new IdentityHashMap<ApiHandler, Boolean>());
+            this.byModule.put(handler.getModule(), handlers);
+        }
+        handlers.add(handler);
+        if (handler instanceof ReflectedApiHandler)
+        {
+            Object holder = ((ReflectedApiHandler)handler).getHolder();
+            handlers = this.byHolder.get(holder);
+            if (handlers == null)
+            {
+                handlers = Collections.newSetFromMap(new IdentityHashMap<ApiHandler, Boolean>());
+                this.byHolder.put(holder, handlers);
+            }
+            handlers.add(handler);
+        }
+    }
+
+    private void unindex(ApiHandler handler)
+    {
+        unindex(this.byModule, handler.getModule(), handler);
+        if (handler instanceof ReflectedApiHandler)
+        {
+            unindex(this.byHolder, ((ReflectedApiHandler)handler).getHolder(), handler);
+        }
+    }
+
+    private static void unindex(Map<?, Set<ApiHandler>> index, Object key, ApiHandler handler)
+    {
+        Set<ApiHandler> handlers = index.get(key);
+        if (handlers != null && handlers.remove(handler) && handlers.isEmpty())
+        {
+            index.remove(key);
+        }
+    }
+
+    private static String[] split(String path)
+    {
+        return path.split("/");
+    }
+
+    private static String getVariable(String segment)
+    {
+        if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}')
+        {
+            return segment.substring(1, segment.length() - 1);
+        }
+        return null;
+    }
+
+    /**
+     * The result of a route lookup
+     */
+    public static final class Match
+    {
+        private final ApiHandler handler;
+        private final Map<String, String> variables;
+
+        private Match(ApiHandler handler, Map<String, String> variables)
+        {
+            this.handler = handler;
+            this.variables = variables;
+        }
+
+        /**
+         * Returns the handler of the matched route
+         *
+         * @return the handler or null if the route does not accept the request method
+         */
+        public ApiHandler getHandler()
+        {
+            return this.handler;
+        }
+
+        /**
+         * Returns the values of the path variables by their name
+         *
+         * @return the variables
+         */
+        public Map<String, String> getVariables()
+        {
+            return this.variables;
+        }
+    }
+
+    private static final class Route
+    {
+        private final ApiHandler handler;
+        private final String[] segments;
+
+        private Route(ApiHandler handler, String[] segments)
+        {
+            this.handler = handler;
+            this.segments = segments;
+        }
+    }
+
+    private static final class Node
+    {
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+        private volatile Node variable;
+        private volatile Map<RequestMethod, Route> routes = Collections.emptyMap();
+
+        private boolean isEmpty()
+        {
+            return this.routes.isEmpty() && this.children.isEmpty() && this.variable == null;
+        }
+    }
+}
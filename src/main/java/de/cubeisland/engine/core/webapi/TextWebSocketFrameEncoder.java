@@ -17,10 +17,13 @@
  */
 package de.cubeisland.engine.core.webapi;
 
+import java.io.IOException;
 import java.util.List;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
@@ -41,15 +44,33 @@ public class TextWebSocketFrameEncoder extends MessageToMessageEncoder<Object>
         {
             ObjectNode node = objectMapper.createObjectNode();
             node.put("desc", (String)msg);
-            out.add(new TextWebSocketFrame(node.toString()));
+            out.add(new TextWebSocketFrame(this.encode(ctx, node)));
         }
         else if (msg instanceof JsonNode)
         {
-            out.add(new TextWebSocketFrame(msg.toString()));
+            out.add(new TextWebSocketFrame(this.encode(ctx, (JsonNode)msg)));
         }
         else
         {
             out.add(msg);
         }
     }
+
+    /**
+     * Streams the node into a pooled buffer
+     */
+    private ByteBuf encode(ChannelHandlerContext ctx, JsonNode node) throws IOException
+    {
+        ByteBuf buffer = ctx.alloc().buffer();
+        try
+        {
+            this.objectMapper.writeValue(new ByteBufOutputStream(buffer), node);
+            return buffer;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            buffer.release();
+            throw e;
+        }
+    }
 }
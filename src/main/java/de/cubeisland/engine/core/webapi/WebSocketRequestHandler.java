@@ -154,21 +154,41 @@ public class WebSocketRequestHandler extends SimpleChannelInboundHandler<WebSock
                     JsonNode reqMethod = data.get("method");
                     RequestMethod method = reqMethod != null ? getByName(reqMethod.asText()) : GET;
                     JsonNode reqdata = data.get("body");
-                    ApiHandler handler = this.server.getApiHandler(normalizePath(qsDecoder.path()));
-                    if (handler == null)
+                    Router.Match match = this.server.findRoute(normalizePath(qsDecoder.path()), method);
+                    if (match == null)
                     {
                         responseNode.put("response", "Unknown route");
                         break;
                     }
-                    Parameters params = new Parameters(qsDecoder.parameters(),
-                                                       core.getCommandManager().getProviderManager());
-                    ApiRequest request = new ApiRequest((InetSocketAddress)ctx.channel().remoteAddress(), method, params, EMPTY_HEADERS, reqdata, authUser);
-                    ApiResponse response = handler.execute(request);
-                    if (msgid != null)
+                    ApiHandler handler = match.getHandler();
+                    if (handler == null)
                     {
-                        responseNode.set("response", objectMapper.valueToTree(response.getContent()));
+                        responseNode.put("response", "Method not allowed");
+                        break;
                     }
-                    break;
+                    Parameters params = new Parameters(qsDecoder.parameters(),
+                                                       core.getCommandManager().getProviderManager())
+                        .withPathVariables(match.getVariables());
+                    ApiRequest request = new ApiRequest((InetSocketAddress)ctx.channel().remoteAddress(), method, params, EMPTY_HEADERS, reqdata, authUser);
+                    // the response is sent once the handler completed
+                    this.server.execute(handler, request).whenComplete((response, t) -> {
+                        if (msgid == null)
+                        {
+                            return;
+                        }
+                        if (t == null)
+                        {
+                            responseNode.set("response", objectMapper.valueToTree(response.getContent()));
+                        }
+                        else
+                        {
+                            this.log.debug(t, "An API handler failed!");
+                            responseNode.put("response", "The request failed");
+                        }
+                        responseNode.put("msgid", msgid);
+                        ctx.writeAndFlush(responseNode);
+                    });
+                    return;
                 case "subscribe":
                     this.server.subscribe(data.asText().trim(), this);
                     break;
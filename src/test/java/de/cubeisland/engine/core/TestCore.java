@@ -28,6 +28,7 @@ import de.cubeisland.engine.core.filesystem.TestFileManager;
 import de.cubeisland.engine.core.i18n.I18n;
 import de.cubeisland.engine.core.logging.LogFactory;
 import de.cubeisland.engine.core.module.ModuleManager;
+import de.cubeisland.engine.core.module.ModuleProfiler;
 import de.cubeisland.engine.core.module.TestModuleManager;
 import de.cubeisland.engine.core.permission.PermissionManager;
 import de.cubeisland.engine.core.storage.database.Database;
@@ -66,6 +67,7 @@ public class TestCore implements Core
     }
 
     private TaskManager taskManager = new TestTaskManager();
+    private ModuleProfiler moduleProfiler = new ModuleProfiler(false, false);
 
     public TestCore()
     {
@@ -181,6 +183,12 @@ public class TestCore implements Core
         return this.taskManager;
     }
 
+    @Override
+    public ModuleProfiler getModuleProfiler()
+    {
+        return this.moduleProfiler;
+    }
+
     @Override
     public UserManager getUserManager()
     {
@@ -0,0 +1,92 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.storage.database.TestTable.TEST_TABLE;
+import static org.junit.Assert.assertEquals;
+
+public class PreparedQueryTest
+{
+    private TestDatabase db;
+
+    @Before
+    public void setUp() throws SQLException
+    {
+        this.db = new TestDatabase("prepared");
+        this.db.createTable(TEST_TABLE);
+    }
+
+    @After
+    public void tearDown() throws SQLException
+    {
+        this.db.shutdown();
+    }
+
+    private static int count(String sql)
+    {
+        return new PreparedQuery(null, sql).getParameterCount();
+    }
+
+    @Test
+    public void testCountParameters()
+    {
+        assertEquals(0, count(""));
+        assertEquals(0, count("SELECT 1"));
+        assertEquals(2, count("SELECT * FROM t WHERE a = ? AND b = ?"));
+        assertEquals(1, count("SELECT '?', \"a?\", `b?` FROM t WHERE c = ?"));
+        assertEquals(0, count("SELECT 'it''s ?'"));
+        assertEquals(1, count("SELECT 'it\\'s ?' FROM t WHERE a = ?"));
+        assertEquals(1, count("SELECT a -- why?\nFROM t WHERE b = ?"));
+        assertEquals(1, count("SELECT a # why?\nFROM t WHERE b = ?"));
+        assertEquals(2, count("SELECT a /* why? */ FROM t WHERE b = ? AND c = ?"));
+        assertEquals(0, count("SELECT a /* unterminated ?"));
+    }
+
+    @Test
+    public void testUpdateAndQuery() throws InterruptedException, ExecutionException
+    {
+        PreparedQuery insert = new PreparedQuery(this.db.getDatabase(), "INSERT INTO \"test_table\" (\"key\", \"name\", \"score\") VALUES (?, ?, ?)");
+        PreparedQuery select = new PreparedQuery(this.db.getDatabase(), "SELECT \"name\", \"score\" FROM \"test_table\" WHERE \"score\" >= ? ORDER BY \"key\"");
+        assertEquals(3, insert.getParameterCount());
+
+        assertEquals(1, (int)insert.update(1, "first", 10).get());
+        assertEquals(1, (int)insert.update(2, "second", 20).get());
+        assertEquals(1, (int)insert.update(3, "third", 30).get());
+
+        // the result is detached and stays usable after the connection was released
+        Result<Record> result = select.query(20).get();
+        assertEquals(2, result.size());
+        assertEquals("second", result.get(0).getValue("name"));
+        assertEquals("third", result.get(1).getValue("name"));
+        assertEquals(30, ((Number)result.get(1).getValue("score")).intValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongParameterCount()
+    {
+        new PreparedQuery(this.db.getDatabase(), "SELECT * FROM \"test_table\" WHERE \"key\" = ?").query(1, 2);
+    }
+}
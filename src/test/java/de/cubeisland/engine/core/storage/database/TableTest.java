@@ -0,0 +1,98 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.jooq.SQLDialect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.storage.database.Table.LONGTEXT;
+import static de.cubeisland.engine.core.storage.database.Table.U_INTEGER;
+import static de.cubeisland.engine.core.storage.database.Table.U_MEDIUMINT;
+import static de.cubeisland.engine.core.storage.database.Table.U_SMALLINT;
+import static de.cubeisland.engine.core.storage.database.Table.getTypeName;
+import static de.cubeisland.engine.core.storage.database.TestTable.TEST_TABLE;
+import static org.junit.Assert.*;
+
+public class TableTest
+{
+    private TestDatabase db;
+
+    @Before
+    public void setUp() throws SQLException
+    {
+        this.db = new TestDatabase("table");
+    }
+
+    @After
+    public void tearDown() throws SQLException
+    {
+        this.db.shutdown();
+    }
+
+    private String queryString(String sql, String... params) throws SQLException
+    {
+        try (Connection connection = this.db.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for (int i = 0; i < params.length; i++)
+            {
+                statement.setString(i + 1, params[i]);
+            }
+            ResultSet result = statement.executeQuery();
+            return result.next() ? result.getString(1) : null;
+        }
+    }
+
+    @Test
+    public void testCreateTable() throws SQLException
+    {
+        this.db.createTable(TEST_TABLE);
+        // creating an existing table does nothing
+        this.db.createTable(TEST_TABLE);
+
+        assertEquals(TEST_TABLE.getTableVersion().toString(), this.queryString(
+            "SELECT REMARKS FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = ?", "test_table"));
+        assertEquals("INTEGER", this.queryString(
+            "SELECT TYPE_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?", "test_table", "level"));
+        assertEquals("YES", this.queryString(
+            "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?", "test_table", "level"));
+        assertEquals("NO", this.queryString(
+            "SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?", "test_table", "name"));
+        assertEquals("name", this.queryString(
+            "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = ? AND INDEX_NAME = ?", "test_table", "test_table_name"));
+        assertEquals("key", this.queryString(
+            "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = ? AND PRIMARY_KEY = TRUE", "test_table"));
+    }
+
+    @Test
+    public void testTypeNames()
+    {
+        assertEquals("integer unsigned", getTypeName(U_INTEGER, SQLDialect.MYSQL));
+        assertEquals("bigint", getTypeName(U_INTEGER, SQLDialect.H2));
+        assertEquals("integer", getTypeName(U_MEDIUMINT, SQLDialect.H2));
+        assertEquals("integer", getTypeName(U_SMALLINT, SQLDialect.H2));
+        assertEquals("longtext", getTypeName(LONGTEXT, SQLDialect.MYSQL));
+        assertEquals("clob", getTypeName(LONGTEXT, SQLDialect.H2));
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.CubeEngine;
+import de.cubeisland.engine.core.logging.LogFactory;
+import de.cubeisland.engine.logscribe.DefaultLogFactory;
+import de.cubeisland.engine.logscribe.Log;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A mocked Database backed by an in-memory H2 database in the MySQL mode like the {@link de.cubeisland.engine.core.storage.database.h2.H2Database}
+ */
+public class TestDatabase
+{
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+    private final DSLContext dsl;
+    private final DatabaseExecutor executor = new DatabaseExecutor(Executors.defaultThreadFactory(), 2, 16);
+    private final Log log = new DefaultLogFactory().getLog(TestDatabase.class);
+    private final Database database;
+
+    public TestDatabase(String name) throws SQLException
+    {
+        this.dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        this.dataSource.setUser("sa");
+        this.dataSource.setPassword("");
+        this.dsl = DSL.using(this.dataSource, SQLDialect.H2);
+
+        this.database = mock(Database.class);
+        when(this.database.getConnection()).thenAnswer(invocation -> this.dataSource.getConnection());
+        when(this.database.getDSL()).thenReturn(this.dsl);
+        when(this.database.getExecutor()).thenReturn(this.executor);
+
+        // tables log their statements to the database log of the core
+        Core core = mock(Core.class);
+        LogFactory logFactory = mock(LogFactory.class);
+        when(core.getLogFactory()).thenReturn(logFactory);
+        when(logFactory.getDatabaseLog()).thenReturn(this.log);
+        CubeEngine.clean();
+        CubeEngine.initialize(core);
+    }
+
+    public Database getDatabase()
+    {
+        return this.database;
+    }
+
+    public DSLContext getDSL()
+    {
+        return this.dsl;
+    }
+
+    public Log getLog()
+    {
+        return this.log;
+    }
+
+    public Connection getConnection() throws SQLException
+    {
+        return this.dataSource.getConnection();
+    }
+
+    public void createTable(TableCreator<?> table) throws SQLException
+    {
+        try (Connection connection = this.getConnection())
+        {
+            table.createTable(connection);
+        }
+    }
+
+    public void shutdown() throws SQLException
+    {
+        this.executor.shutdown(5, TimeUnit.SECONDS);
+        try (Connection connection = this.getConnection())
+        {
+            connection.prepareStatement("DROP ALL OBJECTS").execute();
+        }
+        CubeEngine.clean();
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import de.cubeisland.engine.core.util.Version;
+import org.jooq.TableField;
+import org.jooq.types.UShort;
+
+import static org.jooq.impl.SQLDataType.INTEGER;
+import static org.jooq.impl.SQLDataType.VARCHAR;
+
+public class TestTable extends Table<TestTable.TestRecord>
+{
+    public static final TestTable TEST_TABLE = new TestTable();
+    public final TableField<TestRecord, Integer> KEY = createField("key", INTEGER.nullable(false), this);
+    public final TableField<TestRecord, String> NAME = createField("name", VARCHAR.length(16).nullable(false), this);
+    public final TableField<TestRecord, Integer> SCORE = createField("score", INTEGER.nullable(false), this);
+    public final TableField<TestRecord, UShort> LEVEL = createField("level", U_SMALLINT, this);
+
+    private TestTable()
+    {
+        super("test_table", new Version(2));
+        this.setPrimaryKey(KEY);
+        this.addIndex(NAME);
+        this.addFields(KEY, NAME, SCORE, LEVEL);
+    }
+
+    @Override
+    public Class<TestRecord> getRecordType()
+    {
+        return TestRecord.class;
+    }
+
+    public static class TestRecord extends AsyncRecord<TestRecord>
+    {
+        public TestRecord()
+        {
+            super(TEST_TABLE);
+        }
+    }
+}
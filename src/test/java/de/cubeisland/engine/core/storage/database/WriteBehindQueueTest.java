@@ -0,0 +1,125 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.storage.database;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import de.cubeisland.engine.core.storage.database.TestTable.TestRecord;
+import org.jooq.DSLContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.storage.database.TestTable.TEST_TABLE;
+import static org.junit.Assert.*;
+
+public class WriteBehindQueueTest
+{
+    private TestDatabase db;
+    private DSLContext dsl;
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() throws SQLException
+    {
+        this.db = new TestDatabase("writebehind");
+        this.dsl = this.db.getDSL();
+        this.db.createTable(TEST_TABLE);
+        for (int i = 1; i <= 3; i++)
+        {
+            this.dsl.insertInto(TEST_TABLE, TEST_TABLE.KEY, TEST_TABLE.NAME, TEST_TABLE.SCORE).values(i, "user" + i, 0).execute();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws SQLException
+    {
+        this.scheduler.shutdownNow();
+        this.db.shutdown();
+    }
+
+    private WriteBehindQueue newQueue(int batchSize)
+    {
+        return new WriteBehindQueue(this.db.getDatabase(), this.db.getLog(), this.scheduler, TimeUnit.HOURS.toMillis(1), batchSize);
+    }
+
+    private TestRecord fetch(int key)
+    {
+        return this.dsl.fetchOne(TEST_TABLE, TEST_TABLE.KEY.eq(key));
+    }
+
+    @Test
+    public void testMergesUpdatesOfARecord()
+    {
+        WriteBehindQueue queue = this.newQueue(100);
+        TestRecord record = this.fetch(1);
+        record.setValue(TEST_TABLE.NAME, "renamed");
+        queue.add(record);
+        record.setValue(TEST_TABLE.SCORE, 5);
+        queue.add(record);
+
+        assertEquals(1, queue.size());
+        // queueing only copies the changes
+        assertTrue(record.changed(TEST_TABLE.NAME));
+        assertEquals("user1", this.fetch(1).getValue(TEST_TABLE.NAME));
+
+        queue.flush();
+        assertEquals(0, queue.size());
+        TestRecord stored = this.fetch(1);
+        assertEquals("renamed", stored.getValue(TEST_TABLE.NAME));
+        assertEquals(5, (int)stored.getValue(TEST_TABLE.SCORE));
+    }
+
+    @Test
+    public void testWritesQueuedSnapshot()
+    {
+        WriteBehindQueue queue = this.newQueue(100);
+        TestRecord record = this.fetch(2);
+        record.setValue(TEST_TABLE.NAME, "queued");
+        queue.add(record);
+        // changes made after queueing are not written until queued again
+        record.setValue(TEST_TABLE.NAME, "later");
+        queue.flush();
+
+        assertEquals("queued", this.fetch(2).getValue(TEST_TABLE.NAME));
+        assertEquals("user1", this.fetch(1).getValue(TEST_TABLE.NAME));
+    }
+
+    @Test
+    public void testFlushesFullBatch() throws InterruptedException
+    {
+        WriteBehindQueue queue = this.newQueue(2);
+        for (int i = 1; i <= 2; i++)
+        {
+            TestRecord record = this.fetch(i);
+            record.setValue(TEST_TABLE.SCORE, 10 * i);
+            queue.add(record);
+        }
+
+        // the full batch was handed to the scheduler, the periodic flush is cancelled by the shutdown
+        this.scheduler.shutdown();
+        assertTrue(this.scheduler.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+        assertEquals(10, (int)this.fetch(1).getValue(TEST_TABLE.SCORE));
+        assertEquals(20, (int)this.fetch(2).getValue(TEST_TABLE.SCORE));
+        assertEquals(0, (int)this.fetch(3).getValue(TEST_TABLE.SCORE));
+    }
+}
@@ -55,6 +55,18 @@ public class TestTaskManager implements TaskManager
         return 0;
     }
 
+    @Override
+    public int runTaskDelayed(Module module, Runnable runnable, long delay, TaskPriority priority)
+    {
+        return 0;
+    }
+
+    @Override
+    public int runTimer(Module module, Runnable runnable, long delay, long interval, TaskPriority priority)
+    {
+        return 0;
+    }
+
     @Override
     public int runAsynchronousTask(Module module, Runnable runnable)
     {
@@ -0,0 +1,145 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.logscribe.DefaultLogFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.task.TaskPriority.HIGH;
+import static de.cubeisland.engine.core.task.TaskPriority.LOW;
+import static de.cubeisland.engine.core.task.TaskPriority.NORMAL;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TickSchedulerTest
+{
+    private final List<String> ran = new ArrayList<>();
+    private Core core;
+    private Module module;
+    private int tick = 0;
+
+    @Before
+    public void setUp()
+    {
+        this.core = mock(Core.class);
+        when(this.core.getLog()).thenReturn(new DefaultLogFactory().getLog(TickSchedulerTest.class));
+        this.module = mock(Module.class);
+        when(this.module.getId()).thenReturn("test");
+    }
+
+    private TickScheduler scheduler(long maxDeferral)
+    {
+        return new TickScheduler(this.core, 5, maxDeferral, () -> this.tick);
+    }
+
+    private Runnable task(final String name)
+    {
+        return () -> this.ran.add(name);
+    }
+
+    /**
+     * A task using up the budget of the tick
+     */
+    private Runnable busy(final String name)
+    {
+        return () -> {
+            final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(6);
+            while (System.nanoTime() < end)
+            {
+                Thread.yield();
+            }
+            this.ran.add(name);
+        };
+    }
+
+    @Test
+    public void testDefersOnceTheBudgetIsUsed()
+    {
+        TickScheduler scheduler = this.scheduler(TimeUnit.MINUTES.toMillis(1));
+        scheduler.submit(this.module, NORMAL, this.busy("a"));
+        scheduler.submit(this.module, NORMAL, this.task("b"));
+        scheduler.submit(this.module, HIGH, this.task("c"));
+        assertEquals(asList("a", "c"), this.ran);
+        assertEquals(1, scheduler.getBacklogSize());
+
+        // the budget of the tick is still used up
+        scheduler.run();
+        assertEquals(asList("a", "c"), this.ran);
+        assertEquals(1, scheduler.getUsages().get("test").getDeferred());
+
+        this.tick++;
+        scheduler.run();
+        assertEquals(asList("a", "c", "b"), this.ran);
+        assertEquals(0, scheduler.getBacklogSize());
+    }
+
+    @Test
+    public void testBudgetRestartsWithTheServerTick()
+    {
+        TickScheduler scheduler = this.scheduler(TimeUnit.MINUTES.toMillis(1));
+        scheduler.submit(this.module, NORMAL, this.busy("a"));
+        this.tick++;
+        // the scheduler did not run yet in this tick but the budget is available
+        scheduler.submit(this.module, NORMAL, this.task("b"));
+        assertEquals(asList("a", "b"), this.ran);
+    }
+
+    @Test
+    public void testDrainsBacklogByPriorityAndAge()
+    {
+        TickScheduler scheduler = this.scheduler(TimeUnit.MINUTES.toMillis(1));
+        scheduler.submit(this.module, NORMAL, this.busy("busy"));
+        scheduler.submit(this.module, LOW, this.task("low"));
+        scheduler.submit(this.module, NORMAL, this.task("first"));
+        scheduler.submit(this.module, NORMAL, this.task("second"));
+        this.tick++;
+        scheduler.run();
+        assertEquals(asList("busy", "first", "second", "low"), this.ran);
+    }
+
+    @Test
+    public void testRunsOverdueTasksRegardlessOfBudget()
+    {
+        TickScheduler scheduler = this.scheduler(0);
+        scheduler.submit(this.module, NORMAL, this.busy("a"));
+        scheduler.submit(this.module, LOW, this.task("b"));
+        scheduler.run();
+        assertEquals(asList("a", "b"), this.ran);
+        assertEquals(0, scheduler.getBacklogSize());
+    }
+
+    @Test
+    public void testDrainRunsAllDeferredTasks()
+    {
+        TickScheduler scheduler = this.scheduler(TimeUnit.MINUTES.toMillis(1));
+        scheduler.submit(this.module, NORMAL, this.busy("a"));
+        scheduler.submit(this.module, LOW, this.task("b"));
+        scheduler.submit(this.module, NORMAL, this.task("c"));
+        scheduler.drain();
+        assertEquals(asList("a", "c", "b"), this.ran);
+        assertEquals(0, scheduler.getBacklogSize());
+    }
+}
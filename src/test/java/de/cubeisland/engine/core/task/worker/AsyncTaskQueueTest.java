@@ -0,0 +1,165 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.task.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsyncTaskQueueTest
+{
+    private ExecutorService executor;
+
+    @Before
+    public void setUp()
+    {
+        this.executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException
+    {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testKeyOrder() throws InterruptedException
+    {
+        final int keys = 3;
+        final int tasks = 200;
+        AsyncTaskQueue queue = new AsyncTaskQueue(this.executor, 4, keys * tasks, RejectionPolicy.ABORT);
+        final CountDownLatch done = new CountDownLatch(keys * tasks);
+        final AtomicBoolean overlapped = new AtomicBoolean(false);
+        List<List<Integer>> executed = new ArrayList<>();
+        for (int k = 0; k < keys; k++)
+        {
+            executed.add(new ArrayList<Integer>());
+        }
+        AtomicInteger[] running = new AtomicInteger[keys];
+        for (int k = 0; k < keys; k++)
+        {
+            running[k] = new AtomicInteger();
+        }
+
+        for (int i = 0; i < tasks; i++)
+        {
+            for (int k = 0; k < keys; k++)
+            {
+                final int key = k;
+                final int index = i;
+                queue.addTask("key" + key, () -> {
+                    if (running[key].incrementAndGet() > 1)
+                    {
+                        overlapped.set(true);
+                    }
+                    // tasks of one key run one after another, so the list needs no synchronization
+                    executed.get(key).add(index);
+                    running[key].decrementAndGet();
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue("The tasks did not finish in time", done.await(10, TimeUnit.SECONDS));
+        assertFalse("Tasks of the same key ran at the same time", overlapped.get());
+        for (List<Integer> list : executed)
+        {
+            assertEquals(tasks, list.size());
+            for (int i = 0; i < tasks; i++)
+            {
+                assertEquals(i, (int)list.get(i));
+            }
+        }
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testCapacity() throws InterruptedException
+    {
+        AsyncTaskQueue queue = new AsyncTaskQueue(this.executor, 1, 1, RejectionPolicy.ABORT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.addTask(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        queue.addTask(() -> {});
+        assertEquals(1, queue.size());
+        try
+        {
+            queue.addTask(() -> {});
+            fail("The task should have been rejected");
+        }
+        catch (RejectedExecutionException ignored)
+        {}
+        assertEquals(1, queue.size());
+        release.countDown();
+    }
+
+    @Test
+    public void testShutdownKeepsSizeConsistent() throws InterruptedException
+    {
+        AsyncTaskQueue queue = new AsyncTaskQueue(this.executor, 2, 100, RejectionPolicy.ABORT);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        queue.addTask("key", () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        queue.addTask("key", executed::incrementAndGet);
+        queue.addTask("key", executed::incrementAndGet);
+        assertEquals(2, queue.size());
+
+        queue.shutdown();
+        assertEquals(0, queue.size());
+        release.countDown();
+
+        this.executor.shutdown();
+        assertTrue(this.executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+        assertEquals(0, executed.get());
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
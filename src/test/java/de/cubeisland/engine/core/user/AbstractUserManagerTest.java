@@ -0,0 +1,199 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.CoreConfiguration;
+import de.cubeisland.engine.core.CubeEngine;
+import de.cubeisland.engine.core.filesystem.FileManager;
+import de.cubeisland.engine.core.module.ModuleManager;
+import de.cubeisland.engine.core.storage.database.Database;
+import de.cubeisland.engine.core.task.TaskManager;
+import de.cubeisland.engine.core.task.thread.CoreThreadFactory;
+import de.cubeisland.engine.logscribe.DefaultLogFactory;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.jooq.ResultQuery;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.types.UInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the asynchronous loading of users with the database queries completed by hand on the main thread
+ */
+public class AbstractUserManagerTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // the pending queries in the order they were started
+    private final List<CompletableFuture<UserEntity>> queries = new ArrayList<>();
+    private AbstractUserManager manager;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        if (Bukkit.getServer() == null)
+        {
+            Server server = mock(Server.class);
+            when(server.getLogger()).thenReturn(Logger.getLogger(AbstractUserManagerTest.class.getName()));
+            when(server.getOfflinePlayer(any(UUID.class))).thenAnswer(invocation -> {
+                OfflinePlayer player = mock(OfflinePlayer.class);
+                when(player.getUniqueId()).thenReturn((UUID)invocation.getArguments()[0]);
+                return player;
+            });
+            Bukkit.setServer(server);
+        }
+        if (TABLE_USER == null)
+        {
+            new TableUser("");
+        }
+
+        Database database = mock(Database.class);
+        when(database.getDSL()).thenReturn(DSL.using(SQLDialect.H2));
+        doAnswer(invocation -> {
+            CompletableFuture<UserEntity> query = new CompletableFuture<>();
+            this.queries.add(query);
+            return query;
+        }).when(database).queryOne(any(ResultQuery.class));
+
+        FileManager fileManager = mock(FileManager.class);
+        when(fileManager.getDataPath()).thenReturn(this.folder.getRoot().toPath());
+        TaskManager taskManager = mock(TaskManager.class);
+        when(taskManager.getThreadFactory()).thenReturn(mock(CoreThreadFactory.class));
+
+        CoreConfiguration config = new CoreConfiguration();
+        config.usermanager = config.new UsermanagerSection();
+        config.security = config.new SecuritySection();
+
+        Core core = mock(Core.class);
+        when(core.getDB()).thenReturn(database);
+        when(core.getConfiguration()).thenReturn(config);
+        when(core.getFileManager()).thenReturn(fileManager);
+        when(core.getTaskManager()).thenReturn(taskManager);
+        when(core.getModuleManager()).thenReturn(mock(ModuleManager.class));
+        when(core.getLog()).thenReturn(new DefaultLogFactory().getLog(AbstractUserManagerTest.class));
+        // the test thread is the main thread
+        CubeEngine.clean();
+        CubeEngine.initialize(core);
+
+        this.manager = new AbstractUserManager(core)
+        {
+            @Override
+            protected User getUser(String name, boolean create)
+            {
+                return null;
+            }
+        };
+    }
+
+    @After
+    public void tearDown()
+    {
+        CubeEngine.clean();
+    }
+
+    private static UserEntity entity(UUID uuid, String name, int key)
+    {
+        UserEntity entity = new UserEntity();
+        entity.setValue(TABLE_USER.KEY, UInteger.valueOf(key));
+        entity.setValue(TABLE_USER.LASTNAME, name);
+        entity.setUUID(uuid);
+        return entity;
+    }
+
+    @Test
+    public void testLoadsUserAsynchronously()
+    {
+        UUID uuid = UUID.randomUUID();
+        CompletableFuture<User> future = this.manager.getExactUserAsync(uuid);
+        assertFalse(future.isDone());
+        assertEquals(1, this.queries.size());
+
+        this.queries.get(0).complete(entity(uuid, "alice", 7));
+        User user = future.join();
+        assertEquals(uuid, user.getUniqueId());
+        assertEquals("alice", user.getName());
+
+        // cached by UUID, name and database ID without querying again
+        assertSame(user, this.manager.getExactUserAsync(uuid).join());
+        assertSame(user, this.manager.getLoadedUser("alice"));
+        assertSame(user, this.manager.getUser(UInteger.valueOf(7)));
+        assertEquals(1, this.queries.size());
+    }
+
+    @Test
+    public void testDeduplicatesInFlightLoads()
+    {
+        UUID uuid = UUID.randomUUID();
+        CompletableFuture<User> first = this.manager.getExactUserAsync(uuid);
+        CompletableFuture<User> second = this.manager.getExactUserAsync(uuid);
+        assertSame(first, second);
+        assertEquals(1, this.queries.size());
+
+        this.queries.get(0).complete(entity(uuid, "bob", 8));
+        assertSame(first.join(), second.join());
+        assertTrue(this.manager.loadingUsers.isEmpty());
+    }
+
+    @Test
+    public void testPreloadDoesNotCreateUnknownUsers()
+    {
+        UUID uuid = UUID.randomUUID();
+        CompletableFuture<User> future = this.manager.loadUserAsync(uuid, false);
+        this.queries.get(0).complete(null);
+
+        assertNull(future.join());
+        assertNull(this.manager.userCache.peek(uuid));
+        assertTrue(this.manager.loadingUsers.isEmpty());
+    }
+
+    @Test
+    public void testFailedLoadCanBeRetried()
+    {
+        UUID uuid = UUID.randomUUID();
+        CompletableFuture<User> future = this.manager.getExactUserAsync(uuid);
+        this.queries.get(0).completeExceptionally(new IllegalStateException("connection lost"));
+        assertTrue(future.isCompletedExceptionally());
+
+        CompletableFuture<User> retry = this.manager.getExactUserAsync(uuid);
+        assertNotSame(future, retry);
+        assertEquals(2, this.queries.size());
+        this.queries.get(1).complete(entity(uuid, "carol", 9));
+        assertEquals(uuid, retry.join().getUniqueId());
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultPasswordHasherTest
+{
+    private static final String STATIC_SALT = "static salt";
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        this.user = TestUsers.create("user", UUID.randomUUID(), 1);
+        this.user.getEntity().setValue(TABLE_USER.FIRSTSEEN, new Timestamp(1400000000000L));
+    }
+
+    private byte[] legacyHash(String password) throws Exception
+    {
+        String salted = password + STATIC_SALT + this.user.getEntity().getValue(TABLE_USER.FIRSTSEEN).toString();
+        return MessageDigest.getInstance("SHA-512").digest(salted.getBytes());
+    }
+
+    @Test
+    public void testLegacyHash() throws Exception
+    {
+        DefaultPasswordHasher hasher = new DefaultPasswordHasher(STATIC_SALT, 1000);
+        byte[] legacy = this.legacyHash("secret");
+
+        assertTrue(hasher.verify(this.user, "secret", legacy));
+        assertFalse(hasher.verify(this.user, "Secret", legacy));
+        assertFalse(new DefaultPasswordHasher("other salt", 1000).verify(this.user, "secret", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+    }
+
+    @Test
+    public void testHash()
+    {
+        DefaultPasswordHasher hasher = new DefaultPasswordHasher(STATIC_SALT, 1000);
+        byte[] hash = hasher.hash(this.user, "secret");
+
+        assertTrue(hasher.verify(this.user, "secret", hash));
+        assertFalse(hasher.verify(this.user, "secret2", hash));
+        assertFalse(hasher.needsRehash(hash));
+        // the salt is random per hash
+        assertFalse(MessageDigest.isEqual(hash, hasher.hash(this.user, "secret")));
+    }
+
+    @Test
+    public void testMoreIterationsNeedRehash()
+    {
+        byte[] hash = new DefaultPasswordHasher(STATIC_SALT, 1000).hash(this.user, "secret");
+        DefaultPasswordHasher hasher = new DefaultPasswordHasher(STATIC_SALT, 2000);
+
+        assertTrue(hasher.verify(this.user, "secret", hash));
+        assertTrue(hasher.needsRehash(hash));
+    }
+}
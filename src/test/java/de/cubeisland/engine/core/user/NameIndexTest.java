@@ -0,0 +1,103 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class NameIndexTest
+{
+    private NameIndex index;
+    private User alex;
+    private User alexander;
+    private User notchbot;
+    private User notchy;
+    private User nytch;
+
+    @Before
+    public void setUp()
+    {
+        this.index = new NameIndex();
+        this.alex = this.add("Alex", 1);
+        this.alexander = this.add("alexander", 2);
+        this.notchbot = this.add("notchbot", 3);
+        this.notchy = this.add("notchy", 4);
+        this.nytch = this.add("nytch", 5);
+    }
+
+    private User add(String name, int key)
+    {
+        User user = TestUsers.create(name, UUID.randomUUID(), key);
+        this.index.add(user);
+        return user;
+    }
+
+    @Test
+    public void testExactMatchIgnoresCase()
+    {
+        assertSame(this.alex, this.index.get("ALEX"));
+        assertSame(this.alex, this.index.find("aLeX"));
+        assertNull(this.index.get("alexa"));
+    }
+
+    @Test
+    public void testOneTypoBeforePrefix()
+    {
+        // "alexander" starts with "alexa", but "alex" is only one typo away
+        assertSame(this.alex, this.index.find("alexa"));
+        assertSame(this.alex, this.index.find("alx"));
+    }
+
+    @Test
+    public void testShortestPrefixBeforeTwoTypos()
+    {
+        // "nytch" is two typos away from "notc"
+        assertSame(this.notchy, this.index.find("notc"));
+        assertSame(this.alexander, this.index.find("alexan"));
+    }
+
+    @Test
+    public void testTwoTypos()
+    {
+        assertSame(this.nytch, this.index.find("nitca"));
+        // names shorter than three characters are not matched with two typos
+        assertNull(this.index.find("xy"));
+    }
+
+    @Test
+    public void testPrefix()
+    {
+        assertEquals(2, this.index.getByPrefix("NOTCH").size());
+        assertSame(this.notchbot, this.index.getByPrefix("notchb").iterator().next());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        this.index.remove(this.alex);
+
+        assertNull(this.index.get("alex"));
+        assertSame(this.alexander, this.index.find("alex"));
+        assertEquals(0, this.index.search("alex", 1).size());
+    }
+}
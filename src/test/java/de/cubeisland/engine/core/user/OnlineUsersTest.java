@@ -0,0 +1,119 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class OnlineUsersTest
+{
+    private int nextKey = 1;
+
+    private User user(String name)
+    {
+        return this.user(name, UUID.randomUUID());
+    }
+
+    private User user(String name, UUID uuid)
+    {
+        return TestUsers.create(name, uuid, this.nextKey++);
+    }
+
+    @Test
+    public void testLookup()
+    {
+        OnlineUsers users = new OnlineUsers();
+        User alice = this.user("Alice");
+        assertTrue(users.add(alice));
+        assertFalse(users.add(alice));
+
+        assertSame(alice, users.get(alice.getUniqueId()));
+        assertSame(alice, users.getByName("alice"));
+        assertSame(alice, users.getByName("ALICE"));
+        assertNull(users.getByName("bob"));
+        assertTrue(users.contains(alice));
+        assertEquals(1, users.size());
+    }
+
+    @Test
+    public void testPrefix()
+    {
+        OnlineUsers users = new OnlineUsers();
+        User alice = this.user("Alice");
+        User alex = this.user("alex");
+        User bob = this.user("Bob");
+        users.add(alice);
+        users.add(alex);
+        users.add(bob);
+
+        assertEquals(new HashSet<>(asList(alice, alex)), new HashSet<>(users.getByPrefix("AL")));
+        assertEquals(asList(alice), asList(users.getByPrefix("ali").toArray()));
+        assertTrue(users.getByPrefix("c").isEmpty());
+        assertEquals(3, users.getByPrefix("").size());
+    }
+
+    @Test
+    public void testSnapshotOnlyChangesWithTheRegistry()
+    {
+        OnlineUsers users = new OnlineUsers();
+        User alice = this.user("alice");
+        users.add(alice);
+        Set<User> snapshot = users.getAll();
+        assertSame(snapshot, users.getAll());
+
+        users.add(this.user("bob"));
+        assertNotSame(snapshot, users.getAll());
+        assertEquals(1, snapshot.size());
+        assertEquals(2, users.getAll().size());
+        try
+        {
+            users.getAll().clear();
+            fail("The snapshot must be immutable");
+        }
+        catch (UnsupportedOperationException ignored)
+        {}
+    }
+
+    @Test
+    public void testReplacesOtherInstanceOfTheSameUser()
+    {
+        OnlineUsers users = new OnlineUsers();
+        UUID uuid = UUID.randomUUID();
+        User old = this.user("oldname", uuid);
+        User renamed = this.user("newname", uuid);
+        users.add(old);
+        users.add(renamed);
+
+        assertEquals(1, users.size());
+        assertSame(renamed, users.get(uuid));
+        assertNull(users.getByName("oldname"));
+        assertSame(renamed, users.getByName("newname"));
+
+        // removing the replaced instance keeps the current one
+        assertFalse(users.remove(old));
+        assertSame(renamed, users.get(uuid));
+        assertTrue(users.remove(renamed));
+        assertTrue(users.getAll().isEmpty());
+        assertNull(users.getByName("newname"));
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.UUID;
+import org.jooq.types.UInteger;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates mocked Users backed by a detached UserEntity
+ */
+public final class TestUsers
+{
+    private TestUsers()
+    {
+    }
+
+    public static User create(String name, UUID uuid, int key)
+    {
+        if (TABLE_USER == null)
+        {
+            new TableUser("");
+        }
+        UserEntity entity = new UserEntity();
+        entity.setValue(TABLE_USER.KEY, UInteger.valueOf(key));
+        User user = mock(User.class);
+        when(user.getName()).thenReturn(name);
+        when(user.getUniqueId()).thenReturn(uuid);
+        when(user.getEntity()).thenReturn(entity);
+        return user;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.user;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.jooq.types.UInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.user.TableUser.TABLE_USER;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+public class UserCacheTest
+{
+    private final List<User> evicted = new ArrayList<>();
+    private int nextKey = 1;
+
+    @Before
+    public void setUp()
+    {
+        this.evicted.clear();
+    }
+
+    private User user(String name)
+    {
+        return TestUsers.create(name, UUID.randomUUID(), this.nextKey++);
+    }
+
+    @Test
+    public void testLookup()
+    {
+        UserCache cache = new UserCache(10, 60000, this.evicted::add);
+        User a = this.user("a");
+        cache.put(a);
+
+        assertSame(a, cache.get(a.getUniqueId()));
+        assertSame(a, cache.get(a.getEntity().getKey()));
+        assertNull(cache.get(UUID.randomUUID()));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testIndexesNewUserOnceInserted()
+    {
+        UserCache cache = new UserCache(10, 60000, this.evicted::add);
+        User a = TestUsers.create("a", UUID.randomUUID(), 0);
+        User b = TestUsers.create("b", UUID.randomUUID(), 0);
+        cache.put(a);
+        cache.put(b);
+        assertNull(cache.get(UInteger.valueOf(0)));
+
+        a.getEntity().setValue(TABLE_USER.KEY, UInteger.valueOf(42));
+        cache.index(a);
+        assertSame(a, cache.get(UInteger.valueOf(42)));
+
+        cache.remove(a);
+        assertNull(cache.get(UInteger.valueOf(42)));
+        assertSame(b, cache.get(b.getUniqueId()));
+        assertTrue(this.evicted.isEmpty());
+    }
+
+    @Test
+    public void testEvictsOldestOnOverflow()
+    {
+        UserCache cache = new UserCache(2, 60000, this.evicted::add);
+        User a = this.user("a");
+        User b = this.user("b");
+        User c = this.user("c");
+        cache.put(a);
+        cache.put(b);
+        cache.put(c);
+
+        assertEquals(asList(a), this.evicted);
+        assertEquals(2, cache.size());
+        assertNull(cache.peek(a.getUniqueId()));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testAccessedUserGetsSecondChance() throws InterruptedException
+    {
+        UserCache cache = new UserCache(2, 60000, this.evicted::add);
+        User a = this.user("a");
+        User b = this.user("b");
+        cache.put(a);
+        cache.put(b);
+        Thread.sleep(5);
+        cache.get(a.getUniqueId());
+        cache.put(this.user("c"));
+
+        assertEquals(asList(b), this.evicted);
+        assertSame(a, cache.peek(a.getUniqueId()));
+    }
+
+    @Test
+    public void testPinnedUserIsNotEvicted() throws InterruptedException
+    {
+        UserCache cache = new UserCache(1, 1, this.evicted::add);
+        User a = this.user("a");
+        User b = this.user("b");
+        cache.pin(a);
+        cache.put(b);
+
+        assertEquals(asList(b), this.evicted);
+        Thread.sleep(5);
+        cache.cleanUp();
+        assertSame(a, cache.peek(a.getUniqueId()));
+
+        cache.unpin(a);
+        Thread.sleep(5);
+        cache.cleanUp();
+        assertEquals(asList(b, a), this.evicted);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReplacedUserIsReported()
+    {
+        UserCache cache = new UserCache(10, 60000, this.evicted::add);
+        UUID uuid = UUID.randomUUID();
+        User old = TestUsers.create("a", uuid, 1);
+        User replacement = TestUsers.create("a", uuid, 1);
+        cache.put(old);
+        cache.put(old);
+        assertTrue(this.evicted.isEmpty());
+
+        cache.put(replacement);
+        assertEquals(asList(old), this.evicted);
+        assertSame(replacement, cache.get(uuid));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRemoveIsNotReported()
+    {
+        UserCache cache = new UserCache(10, 60000, this.evicted::add);
+        User a = this.user("a");
+        cache.put(a);
+
+        assertTrue(cache.remove(a));
+        assertFalse(cache.remove(a));
+        assertTrue(this.evicted.isEmpty());
+        assertNull(cache.get(a.getEntity().getKey()));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.util;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void testEmpty()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(0.99, NANOSECONDS));
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++)
+        {
+            histogram.record(1000);
+        }
+        for (int i = 0; i < 10; i++)
+        {
+            histogram.record(1000000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100900, histogram.getMean(NANOSECONDS));
+        assertEquals(1000000, histogram.getMax(NANOSECONDS));
+        // 1000ns fall into the bucket from 512 to 1023
+        assertEquals(1023, histogram.getPercentile(0.5, NANOSECONDS));
+        assertEquals(1023, histogram.getPercentile(0.9, NANOSECONDS));
+        // the upper bound of the bucket is capped by the maximum
+        assertEquals(1000000, histogram.getPercentile(0.91, NANOSECONDS));
+        assertEquals(1000000, histogram.getPercentile(1, NANOSECONDS));
+    }
+
+    @Test
+    public void testNegativeAndZero()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(0);
+        histogram.record(1);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(1, histogram.getPercentile(1, NANOSECONDS));
+    }
+
+    @Test
+    public void testReset()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax(NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(0.5, NANOSECONDS));
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.filesystem.FileManager;
+import de.cubeisland.engine.core.logging.LogFactory;
+import de.cubeisland.engine.core.module.Module;
+import de.cubeisland.engine.core.task.TaskManager;
+import de.cubeisland.engine.core.task.thread.CoreThreadFactory;
+import de.cubeisland.engine.core.webapi.exception.ApiStartupException;
+import de.cubeisland.engine.logscribe.DefaultLogFactory;
+import de.cubeisland.engine.logscribe.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static de.cubeisland.engine.core.webapi.Execution.BLOCKING;
+import static de.cubeisland.engine.core.webapi.Execution.MAIN_THREAD;
+import static de.cubeisland.engine.core.webapi.Execution.NON_BLOCKING;
+import static de.cubeisland.engine.core.webapi.RequestMethod.GET;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ApiServerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TaskManager taskManager;
+    private Module module;
+    private ApiServer server;
+
+    @Before
+    public void setUp()
+    {
+        Log log = new DefaultLogFactory().getLog(ApiServerTest.class);
+        Core core = mock(Core.class);
+        LogFactory logFactory = mock(LogFactory.class);
+        FileManager fileManager = mock(FileManager.class);
+        this.taskManager = mock(TaskManager.class);
+        when(core.getLog()).thenReturn(log);
+        when(core.getLogFactory()).thenReturn(logFactory);
+        when(logFactory.getLog(any(Class.class), anyString())).thenReturn(log);
+        when(logFactory.getParent()).thenReturn(log);
+        when(core.getFileManager()).thenReturn(fileManager);
+        when(fileManager.getLogPath()).thenReturn(this.folder.getRoot().toPath());
+        when(core.getTaskManager()).thenReturn(this.taskManager);
+        when(this.taskManager.getThreadFactory()).thenReturn(new CoreThreadFactory(core));
+
+        this.module = mock(Module.class);
+        this.server = new ApiServer(core);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.server.stop();
+    }
+
+    private ApiHandler handler(Execution execution, Runnable action)
+    {
+        return new ApiHandler(this.module, "test", null, new LinkedHashMap<>(), GET, execution)
+        {
+            @Override
+            public ApiResponse execute(ApiRequest request)
+            {
+                action.run();
+                return new ApiResponse(Thread.currentThread().getName());
+            }
+        };
+    }
+
+    private static Throwable failure(CompletableFuture<ApiResponse> future) throws InterruptedException, TimeoutException
+    {
+        try
+        {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        }
+        catch (ExecutionException e)
+        {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void testNonBlockingRunsInline() throws InterruptedException, ExecutionException
+    {
+        CompletableFuture<ApiResponse> future = this.server.execute(this.handler(NON_BLOCKING, () -> {}), null);
+        assertTrue(future.isDone());
+        assertEquals(Thread.currentThread().getName(), future.get().getContent());
+    }
+
+    @Test
+    public void testMainThreadRunsAsTask() throws InterruptedException, ExecutionException, TimeoutException
+    {
+        AtomicReference<Runnable> task = new AtomicReference<>();
+        when(this.taskManager.runTask(any(Module.class), any(Runnable.class))).thenAnswer(invocation -> {
+            task.set((Runnable)invocation.getArguments()[1]);
+            return 1;
+        });
+
+        CompletableFuture<ApiResponse> future = this.server.execute(this.handler(MAIN_THREAD, () -> {}), null);
+        assertFalse(future.isDone());
+        task.get().run();
+        assertEquals(Thread.currentThread().getName(), future.get().getContent());
+
+        when(this.taskManager.runTask(any(Module.class), any(Runnable.class))).thenReturn(-1);
+        future = this.server.execute(this.handler(MAIN_THREAD, () -> {}), null);
+        assertTrue(failure(future) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testBlockingWithoutWorkers() throws InterruptedException, TimeoutException
+    {
+        // the worker pool only exists while the server is running
+        CompletableFuture<ApiResponse> future = this.server.execute(this.handler(BLOCKING, () -> {}), null);
+        assertTrue(failure(future) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void testBlockingRejectedIfQueueFull() throws ApiStartupException, InterruptedException, ExecutionException, TimeoutException
+    {
+        this.server.setBindAddress(InetAddress.getLoopbackAddress());
+        this.server.setPort((short)0);
+        this.server.setWorkerThreads(1);
+        this.server.setWorkerQueueSize(1);
+        this.server.start();
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ApiHandler blocking = this.handler(BLOCKING, () -> {
+            running.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<ApiResponse> first = this.server.execute(blocking, null);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        // the only worker is busy, the second request waits in the queue and the third is rejected
+        CompletableFuture<ApiResponse> queued = this.server.execute(blocking, null);
+        CompletableFuture<ApiResponse> rejected = this.server.execute(blocking, null);
+        assertTrue(failure(rejected) instanceof RejectedExecutionException);
+        assertFalse(first.isDone());
+        assertFalse(queued.isDone());
+
+        release.countDown();
+        assertNotEquals(Thread.currentThread().getName(), first.get(5, TimeUnit.SECONDS).getContent());
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.cubeisland.engine.core.Core;
+import de.cubeisland.engine.core.command.CommandManager;
+import de.cubeisland.engine.logscribe.DefaultLogFactory;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.webapi.RequestMethod.GET;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaders.Values.CLOSE;
+import static io.netty.handler.codec.http.HttpHeaders.Values.KEEP_ALIVE;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HttpRequestHandlerTest
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final List<CompletableFuture<ApiResponse>> executions = new ArrayList<>();
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp()
+    {
+        Router router = new Router();
+        router.register(handler("test/first"));
+        router.register(handler("test/second"));
+
+        Core core = mock(Core.class);
+        when(core.getCommandManager()).thenReturn(mock(CommandManager.class));
+        ApiServer server = mock(ApiServer.class);
+        when(server.getLog()).thenReturn(new DefaultLogFactory().getLog(HttpRequestHandlerTest.class));
+        when(server.isAddressAccepted(any(InetAddress.class))).thenReturn(true);
+        when(server.isAuthorized(any(InetAddress.class))).thenReturn(true);
+        when(server.findRoute(anyString(), any(RequestMethod.class))).thenAnswer(
+            invocation -> router.find((String)invocation.getArguments()[0], (RequestMethod)invocation.getArguments()[1]));
+        // the handlers complete when the test decides to
+        when(server.execute(any(ApiHandler.class), any(ApiRequest.class))).thenAnswer(invocation -> {
+            CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+            this.executions.add(future);
+            return future;
+        });
+
+        final HttpRequestHandler handler = new HttpRequestHandler(core, server, new ObjectMapper(), new IpLimiter(10, 100));
+        this.channel = new EmbeddedChannel(handler)
+        {
+            @Override
+            protected SocketAddress remoteAddress0()
+            {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), 12345);
+            }
+        };
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.channel.finish();
+    }
+
+    private static ApiHandler handler(String route)
+    {
+        return new ApiHandler(null, route, null, new LinkedHashMap<>(), GET)
+        {
+            @Override
+            public ApiResponse execute(ApiRequest request)
+            {
+                return null;
+            }
+        };
+    }
+
+    private static FullHttpRequest request(String uri, String connection)
+    {
+        FullHttpRequest request = new DefaultFullHttpRequest(HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(CONNECTION, connection);
+        return request;
+    }
+
+    private FullHttpResponse readResponse()
+    {
+        return (FullHttpResponse)this.channel.readOutbound();
+    }
+
+    private static String content(FullHttpResponse response)
+    {
+        try
+        {
+            return response.content().toString(UTF8);
+        }
+        finally
+        {
+            response.release();
+        }
+    }
+
+    @Test
+    public void testPipelinedResponsesInRequestOrder()
+    {
+        this.channel.writeInbound(request("/test/first", KEEP_ALIVE));
+        this.channel.writeInbound(request("/test/second", KEEP_ALIVE));
+        assertEquals(2, this.executions.size());
+
+        // the second response is held back until the first one was written
+        this.executions.get(1).complete(new ApiResponse("second"));
+        assertNull(this.channel.readOutbound());
+
+        this.executions.get(0).complete(new ApiResponse("first"));
+        FullHttpResponse first = this.readResponse();
+        FullHttpResponse second = this.readResponse();
+        assertNull(this.channel.readOutbound());
+
+        assertEquals(HttpResponseStatus.OK, first.getStatus());
+        assertEquals(KEEP_ALIVE, first.headers().get(CONNECTION));
+        assertEquals("5", first.headers().get(CONTENT_LENGTH));
+        assertEquals("first", content(first));
+        assertEquals(HttpResponseStatus.OK, second.getStatus());
+        assertEquals("6", second.headers().get(CONTENT_LENGTH));
+        assertEquals("second", content(second));
+        assertTrue(this.channel.isOpen());
+    }
+
+    @Test
+    public void testCloseAfterLastResponse()
+    {
+        this.channel.writeInbound(request("/test/first", KEEP_ALIVE));
+        this.channel.writeInbound(request("/test/second", CLOSE));
+
+        this.executions.get(0).complete(new ApiResponse("first"));
+        assertEquals("first", content(this.readResponse()));
+        assertTrue(this.channel.isOpen());
+
+        this.executions.get(1).complete(new ApiResponse("second"));
+        FullHttpResponse second = this.readResponse();
+        assertNull(second.headers().get(CONNECTION));
+        assertEquals("second", content(second));
+        assertFalse(this.channel.isOpen());
+    }
+
+    @Test
+    public void testRejectedExecutionIsServerBusy()
+    {
+        this.channel.writeInbound(request("/test/first", KEEP_ALIVE));
+        this.executions.get(0).completeExceptionally(new RejectedExecutionException("The worker queue is full!"));
+
+        FullHttpResponse response = this.readResponse();
+        assertEquals(RequestStatus.SERVER_BUSY.getRepsonseStatus(), response.getStatus());
+        assertTrue(content(response).contains(String.valueOf(RequestStatus.SERVER_BUSY.getCode())));
+        // a busy server doesn't break the connection
+        assertTrue(this.channel.isOpen());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * This file is part of CubeEngine.
+ * CubeEngine is licensed under the GNU General Public License Version 3.
+ *
+ * CubeEngine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CubeEngine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with CubeEngine.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.cubeisland.engine.core.webapi;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.cubeisland.engine.core.webapi.RequestMethod.GET;
+import static de.cubeisland.engine.core.webapi.RequestMethod.POST;
+import static org.junit.Assert.*;
+
+public class RouterTest
+{
+    private Router router;
+
+    @Before
+    public void setUp()
+    {
+        this.router = new Router();
+    }
+
+    private static ApiHandler handler(String route, RequestMethod method, String... params)
+    {
+        LinkedHashMap<String, Class> parameters = new LinkedHashMap<>();
+        for (String param : params)
+        {
+            parameters.put(param, String.class);
+        }
+        return new ApiHandler(null, route, null, parameters, method)
+        {
+            @Override
+            public ApiResponse execute(ApiRequest request)
+            {
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testLiteralBeforeVariable()
+    {
+        ApiHandler byId = handler("users/{id}", GET, "id");
+        ApiHandler online = handler("users/online", GET);
+        this.router.register(byId);
+        this.router.register(online);
+
+        Router.Match match = this.router.find("users/online", GET);
+        assertSame(online, match.getHandler());
+        assertEquals(Collections.<String, String>emptyMap(), match.getVariables());
+        assertSame(byId, this.router.find("users/offline", GET).getHandler());
+    }
+
+    @Test
+    public void testVariables()
+    {
+        ApiHandler stats = handler("users/{id}/stats/{stat}", GET, "id", "stat");
+        this.router.register(stats);
+
+        Router.Match match = this.router.find("users/42/stats/kills", GET);
+        assertSame(stats, match.getHandler());
+        assertEquals("42", match.getVariables().get("id"));
+        assertEquals("kills", match.getVariables().get("stat"));
+        assertNull(this.router.find("users/42", GET));
+    }
+
+    @Test
+    public void testBacktracksToVariable()
+    {
+        // "users/online" exists, but has no "stats" below it
+        ApiHandler stats = handler("users/{id}/stats", GET, "id");
+        this.router.register(handler("users/online", GET));
+        this.router.register(stats);
+
+        Router.Match match = this.router.find("users/online/stats", GET);
+        assertSame(stats, match.getHandler());
+        assertEquals("online", match.getVariables().get("id"));
+    }
+
+    @Test
+    public void testMethodNotAllowed()
+    {
+        ApiHandler get = handler("server/info", GET);
+        this.router.register(get);
+
+        Router.Match match = this.router.find("server/info", POST);
+        assertNotNull(match);
+        assertNull(match.getHandler());
+        assertNull(this.router.find("server/unknown", GET));
+        assertNull(this.router.find("server", GET));
+    }
+
+    @Test
+    public void testReplaceAndUnregister()
+    {
+        ApiHandler first = handler("server/info", GET);
+        ApiHandler second = handler("server/info", GET);
+        ApiHandler post = handler("server/info", POST);
+
+        assertNull(this.router.register(first));
+        assertSame(first, this.router.register(second));
+        this.router.register(post);
+        assertFalse(this.router.unregister(first));
+        assertTrue(this.router.unregister(second));
+
+        assertNull(this.router.find("server/info", GET).getHandler());
+        assertSame(post, this.router.find("server/info", POST).getHandler());
+        this.router.unregister("server/info");
+        assertNull(this.router.find("server/info", POST));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVariableWithoutParameter()
+    {
+        this.router.register(handler("users/{id}", GET));
+    }
+}